@@ -0,0 +1,151 @@
+package uk.ac.imperial.explorer;
+
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.ExploredSet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Periodically saves an {@link uk.ac.imperial.explorer.ExplorationCheckpoint} of an exploration
+ * that writes its states and transitions to the given outputs.
+ * <p>
+ * Before each checkpoint the outputs are flushed, and synced to disk if they write to a file, so the
+ * offsets recorded mark the end of complete records. The checkpoint is written to a temporary file and
+ * then moved over the previous one, so a crash whilst checkpointing leaves the previous checkpoint intact.
+ * </p>
+ */
+public final class Checkpointer {
+
+    /**
+     * Checkpoint file
+     */
+    private final File file;
+
+    /**
+     * Minimum time between checkpoints
+     */
+    private final long intervalMillis;
+
+    /**
+     * Output transitions are written to
+     */
+    private final Output transitionOutput;
+
+    /**
+     * Output states are written to
+     */
+    private final Output stateOutput;
+
+    /**
+     * Bytes of the transition file written before the transition output was opened
+     */
+    private final long transitionBase;
+
+    /**
+     * Bytes of the state file written before the state output was opened
+     */
+    private final long stateBase;
+
+    /**
+     * Writes frontier states
+     */
+    private final KryoStateIO io = new KryoStateIO();
+
+    /**
+     * Time of the last checkpoint
+     */
+    private long lastCheckpoint = System.currentTimeMillis();
+
+    /**
+     * Checkpointer for a new exploration
+     *
+     * @param file checkpoint file
+     * @param intervalMillis minimum time between checkpoints
+     * @param transitionOutput output transitions are written to
+     * @param stateOutput output states are written to
+     */
+    public Checkpointer(File file, long intervalMillis, Output transitionOutput, Output stateOutput) {
+        this(file, intervalMillis, transitionOutput, stateOutput, 0, 0);
+    }
+
+    /**
+     * Checkpointer for a resumed exploration whose outputs append to the files the checkpoint was taken from
+     *
+     * @param file checkpoint file
+     * @param intervalMillis minimum time between checkpoints
+     * @param transitionOutput output transitions are appended to
+     * @param stateOutput output states are appended to
+     * @param resumedFrom checkpoint the exploration was resumed from
+     */
+    public Checkpointer(File file, long intervalMillis, Output transitionOutput, Output stateOutput,
+                        ExplorationCheckpoint resumedFrom) {
+        this(file, intervalMillis, transitionOutput, stateOutput, resumedFrom.transitionOffset,
+                resumedFrom.stateOffset);
+    }
+
+    private Checkpointer(File file, long intervalMillis, Output transitionOutput, Output stateOutput,
+                         long transitionBase, long stateBase) {
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+        this.transitionOutput = transitionOutput;
+        this.stateOutput = stateOutput;
+        this.transitionBase = transitionBase;
+        this.stateBase = stateBase;
+    }
+
+    /**
+     * @return true if the interval has passed since the last checkpoint
+     */
+    public boolean isDue() {
+        return System.currentTimeMillis() - lastCheckpoint >= intervalMillis;
+    }
+
+    /**
+     * Flushes the outputs and saves the checkpoint
+     *
+     * @param explored states explored so far
+     * @param nextId id the next new state will be given
+     * @param frontier states in the next level to be expanded
+     * @param frontierIds ids of the states in the next level
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint(ExploredSet explored, int nextId, List<ClassifiedState> frontier, List<Integer> frontierIds)
+            throws IOException {
+        flush(transitionOutput);
+        flush(stateOutput);
+        ExplorationCheckpoint checkpoint = new ExplorationCheckpoint(explored, nextId, frontier, frontierIds,
+                transitionBase + transitionOutput.total(), stateBase + stateOutput.total());
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary);
+             Output output = new Output(new BufferedOutputStream(stream))) {
+            checkpoint.write(output, io);
+            output.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        lastCheckpoint = System.currentTimeMillis();
+    }
+
+    /**
+     * @param output to flush, syncing it to disk if it writes directly to a file
+     * @throws IOException if the output cannot be synced
+     */
+    private static void flush(Output output) throws IOException {
+        output.flush();
+        OutputStream stream = output.getOutputStream();
+        if (stream instanceof FileOutputStream) {
+            ((FileOutputStream) stream).getFD().sync();
+        }
+    }
+}
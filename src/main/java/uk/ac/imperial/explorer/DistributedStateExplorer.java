@@ -0,0 +1,613 @@
+package uk.ac.imperial.explorer;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateMapping;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.ExploredSet;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single worker of a state space exploration that is distributed over several processes.
+ * <p>
+ * Each worker owns the states whose primary hash modulo the number of workers is its index.
+ * It keeps its own {@link uk.ac.imperial.utils.ExploredSet} for those states, expands them, and
+ * writes them and their transitions to its own {@link uk.ac.imperial.io.StateProcessor}, so the
+ * output of the exploration is one shard per worker.
+ * </p><p>
+ * Successors owned by another worker are sent to it in batches. The owner looks up or assigns the
+ * id of each successor and replies with it, and once every successor id of a state is known its
+ * transitions are processed. Ids are globally unique without coordination since worker
+ * {@code w} of {@code n} hands out the ids {@code w, w + n, w + 2n, ...}
+ * </p><p>
+ * The ids are therefore not contiguous unless every worker owns the same number of states. Consumers that
+ * index states by id, such as {@link uk.ac.imperial.markov.SparseRateMatrix},
+ * {@link uk.ac.imperial.markov.StreamingRateMatrix} and {@link uk.ac.imperial.io.ChainExporter}, need ids
+ * 0 to n - 1 and reject the shards of a distributed exploration. Gather the number of states each worker
+ * returns from {@link #explore(ClassifiedState)} and renumber the shards with {@link #denseId(int, int[])}
+ * before passing them on.
+ * </p><p>
+ * Worker 0 also detects termination by repeatedly probing every worker for the number of data
+ * messages it has sent and received. Workers only answer a probe when they have no work left,
+ * and the exploration is over once two consecutive rounds report the same totals with every
+ * message sent having been received.
+ * </p>
+ */
+public final class DistributedStateExplorer {
+
+    /**
+     * Batch of successor states for their owner to assign ids to
+     */
+    private static final byte SUCCESSORS = 1;
+
+    /**
+     * Batch of ids assigned to previously sent successor states
+     */
+    private static final byte IDS = 2;
+
+    /**
+     * Request for a worker to report its message counts once idle
+     */
+    private static final byte PROBE = 3;
+
+    /**
+     * Message counts of a worker in reply to a probe
+     */
+    private static final byte STATUS = 4;
+
+    /**
+     * The exploration has finished
+     */
+    private static final byte TERMINATE = 5;
+
+    /**
+     * A worker has failed so the exploration cannot finish
+     */
+    private static final byte ABORT = 6;
+
+    /**
+     * Index of the worker that detects termination
+     */
+    private static final int COORDINATOR = 0;
+
+    /**
+     * Bytes in the header of every message, type and sending worker
+     */
+    private static final int HEADER_BYTES = 5;
+
+    /**
+     * Time to wait for a message when there is no local work
+     */
+    private static final long IDLE_POLL_MILLIS = 10;
+
+    /**
+     * Index of this worker
+     */
+    private final int workerIndex;
+
+    /**
+     * Total number of workers
+     */
+    private final int workers;
+
+    /**
+     * Carries messages to the other workers
+     */
+    private final Transport transport;
+
+    /**
+     * Generates successors of a state
+     */
+    private final SuccessorFunction successorFunction;
+
+    /**
+     * Receives the states owned by this worker and their transitions
+     */
+    private final StateProcessor processor;
+
+    /**
+     * Underlying array size of the explored set of this worker
+     */
+    private final int exploredSetSize;
+
+    /**
+     * Number of states or ids sent in a single message
+     */
+    private final int batchSize;
+
+    /**
+     * @param workerIndex index of this worker, between 0 and workers - 1
+     * @param workers total number of workers
+     * @param transport carries messages to the other workers
+     * @param successorFunction generates successors of a state
+     * @param processor receives the states owned by this worker and their transitions
+     * @param exploredSetSize underlying array size of the explored set of this worker
+     * @param batchSize number of states or ids sent in a single message
+     */
+    public DistributedStateExplorer(int workerIndex, int workers, Transport transport,
+                                    SuccessorFunction successorFunction, StateProcessor processor,
+                                    int exploredSetSize, int batchSize) {
+        this.workerIndex = workerIndex;
+        this.workers = workers;
+        this.transport = transport;
+        this.successorFunction = successorFunction;
+        this.processor = processor;
+        this.exploredSetSize = exploredSetSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Explores this workers partition of the states reachable from the initial state.
+     * Every worker must be given the same initial state, and returns once all workers have finished.
+     *
+     * @param initialState state to start exploring from
+     * @return number of states owned by this worker
+     * @throws ExplorationException if successors could not be generated for a state on any worker
+     * @throws IOException if messages could not be sent or received
+     * @throws InterruptedException if interrupted whilst waiting for messages
+     */
+    public int explore(ClassifiedState initialState)
+            throws ExplorationException, IOException, InterruptedException {
+        return new Exploration().run(initialState);
+    }
+
+    /**
+     * @param id assigned by a distributed exploration
+     * @param stateCounts number of states owned by each worker, indexed by worker
+     * @return id between 0 and the total number of states - 1, numbering the states of worker 0 first,
+     * then those of worker 1 and so on
+     */
+    public static int denseId(int id, int[] stateCounts) {
+        int worker = id % stateCounts.length;
+        int offset = 0;
+        for (int i = 0; i < worker; i++) {
+            offset += stateCounts[i];
+        }
+        return offset + id / stateCounts.length;
+    }
+
+    /**
+     * @param state to find the owner of
+     * @param workers total number of workers
+     * @return index of the worker that owns the state
+     */
+    public static int owner(ClassifiedState state, int workers) {
+        return Math.abs(state.primaryHash() % workers);
+    }
+
+    /**
+     * Mutable state of a single exploration
+     */
+    private final class Exploration {
+        /**
+         * Writes and reads states in messages
+         */
+        private final KryoStateIO io = new KryoStateIO();
+
+        /**
+         * States owned by this worker
+         */
+        private final ExploredSet explored = new ExploredSet(exploredSetSize);
+
+        /**
+         * Owned states that have not yet been expanded
+         */
+        private final Deque<StateMapping> frontier = new ArrayDeque<>();
+
+        /**
+         * States expanded whose successor ids are still awaited from other workers, by state id
+         */
+        private final Map<Integer, PendingTransitions> pending = new HashMap<>();
+
+        /**
+         * Outgoing successor states, indexed by destination worker
+         */
+        private final Batch[] successorBatches = new Batch[workers];
+
+        /**
+         * Outgoing successor ids, indexed by destination worker
+         */
+        private final Batch[] idBatches = new Batch[workers];
+
+        /**
+         * Number of states owned by this worker
+         */
+        private int localCount = 0;
+
+        /**
+         * Data messages sent
+         */
+        private long sent = 0;
+
+        /**
+         * Data messages received
+         */
+        private long received = 0;
+
+        /**
+         * Latest probe round received
+         */
+        private int probeRound = 0;
+
+        /**
+         * Latest probe round answered
+         */
+        private int answeredRound = 0;
+
+        /**
+         * Set once the coordinator has declared the exploration over
+         */
+        private boolean terminated = false;
+
+        /**
+         * Set once another worker has aborted the exploration, so there is no need to tell the others
+         */
+        private boolean aborted = false;
+
+        /**
+         * Coordinator only, round currently being collected
+         */
+        private int round = 0;
+
+        /**
+         * Coordinator only, number of workers that have answered the current round
+         */
+        private int responses;
+
+        /**
+         * Coordinator only, totals of the current round
+         */
+        private long roundSent;
+
+        private long roundReceived;
+
+        /**
+         * Coordinator only, totals of the previous round
+         */
+        private long previousSent = -1;
+
+        private long previousReceived = -1;
+
+        private Exploration() {
+            for (int i = 0; i < workers; i++) {
+                successorBatches[i] = new Batch(SUCCESSORS);
+                idBatches[i] = new Batch(IDS);
+            }
+        }
+
+        /**
+         * Tells every other worker to abort if this worker fails for any reason, so that none of them
+         * waits for it forever
+         *
+         * @param initialState state to start exploring from
+         * @return number of states owned by this worker
+         */
+        private int run(ClassifiedState initialState) throws ExplorationException, IOException, InterruptedException {
+            try {
+                return explore(initialState);
+            } catch (ExplorationException | IOException | InterruptedException | RuntimeException e) {
+                if (!aborted) {
+                    try {
+                        broadcast(ABORT);
+                    } catch (IOException | RuntimeException broadcastFailure) {
+                        e.addSuppressed(broadcastFailure);
+                    }
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * @param initialState state to start exploring from
+         * @return number of states owned by this worker
+         */
+        private int explore(ClassifiedState initialState)
+                throws ExplorationException, IOException, InterruptedException {
+            if (owner(initialState, workers) == workerIndex) {
+                resolve(initialState);
+            }
+            if (workerIndex == COORDINATOR) {
+                startRound();
+            }
+            while (!terminated) {
+                byte[] message = transport.poll(0);
+                if (message != null) {
+                    handle(message);
+                } else if (!frontier.isEmpty()) {
+                    expand(frontier.poll());
+                } else {
+                    flushAll();
+                    answerProbe();
+                    message = transport.poll(IDLE_POLL_MILLIS);
+                    if (message != null) {
+                        handle(message);
+                    }
+                }
+            }
+            return explored.size();
+        }
+
+        /**
+         * Generates the successors of the state, resolving the ids of those owned by this worker
+         * and sending the others to their owners
+         *
+         * @param mapping state to expand and its id
+         */
+        private void expand(StateMapping mapping) throws ExplorationException, IOException {
+            Map<ClassifiedState, Double> successors;
+            try {
+                successors = successorFunction.getSuccessors(mapping.state);
+            } catch (RuntimeException e) {
+                throw new ExplorationException("Could not generate successors of " + mapping.state, e);
+            }
+
+            PendingTransitions transitions = new PendingTransitions();
+            for (Map.Entry<ClassifiedState, Double> entry : successors.entrySet()) {
+                ClassifiedState successor = entry.getKey();
+                int owner = owner(successor, workers);
+                if (owner == workerIndex) {
+                    ParallelStateExplorer.addRate(transitions.rates, resolve(successor), entry.getValue());
+                } else {
+                    transitions.remaining++;
+                    Batch batch = successorBatches[owner];
+                    batch.body.writeDouble(entry.getValue());
+                    io.writeState(successor, mapping.id, batch.body);
+                    batch.count++;
+                }
+            }
+
+            if (transitions.remaining == 0) {
+                processor.processTransitions(mapping.id, transitions.rates);
+            } else {
+                pending.put(mapping.id, transitions);
+                for (int worker = 0; worker < workers; worker++) {
+                    if (successorBatches[worker].count >= batchSize) {
+                        flush(worker, successorBatches[worker]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param state owned by this worker
+         * @return id of the state, assigning it a new one and queueing it for expansion if not yet seen
+         */
+        private int resolve(ClassifiedState state) {
+            if (explored.contains(state)) {
+                return explored.getId(state);
+            }
+            int id = localCount * workers + workerIndex;
+            localCount++;
+            explored.add(state, id);
+            processor.processState(state, id);
+            frontier.add(new StateMapping(state, id));
+            return id;
+        }
+
+        /**
+         * @param message received from a worker
+         */
+        private void handle(byte[] message) throws ExplorationException, IOException {
+            Input input = new Input(message);
+            byte type = input.readByte();
+            int sender = input.readInt();
+            switch (type) {
+                case SUCCESSORS:
+                    received++;
+                    handleSuccessors(sender, input);
+                    break;
+                case IDS:
+                    received++;
+                    handleIds(input);
+                    break;
+                case PROBE:
+                    probeRound = input.readInt();
+                    break;
+                case STATUS:
+                    handleStatus(input.readInt(), input.readLong(), input.readLong());
+                    break;
+                case TERMINATE:
+                    terminated = true;
+                    break;
+                case ABORT:
+                    aborted = true;
+                    throw new ExplorationException("Worker " + sender + " aborted the exploration");
+                default:
+                    throw new IOException("Unknown message type " + type + " from worker " + sender);
+            }
+        }
+
+        /**
+         * Resolves the ids of successor states owned by this worker and queues them to be sent back
+         *
+         * @param sender worker that expanded the states
+         * @param input containing the successors
+         */
+        private void handleSuccessors(int sender, Input input) throws IOException {
+            int count = input.readInt();
+            Batch batch = idBatches[sender];
+            for (int i = 0; i < count; i++) {
+                double rate = input.readDouble();
+                StateMapping mapping = io.readState(input);
+                batch.body.writeInt(mapping.id);
+                batch.body.writeInt(resolve(mapping.state));
+                batch.body.writeDouble(rate);
+                batch.count++;
+            }
+            if (batch.count >= batchSize) {
+                flush(sender, batch);
+            }
+        }
+
+        /**
+         * Completes the transitions of states once all their successor ids are known
+         *
+         * @param input containing the ids
+         */
+        private void handleIds(Input input) {
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                int stateId = input.readInt();
+                int successorId = input.readInt();
+                double rate = input.readDouble();
+                PendingTransitions transitions = pending.get(stateId);
+                ParallelStateExplorer.addRate(transitions.rates, successorId, rate);
+                transitions.remaining--;
+                if (transitions.remaining == 0) {
+                    pending.remove(stateId);
+                    processor.processTransitions(stateId, transitions.rates);
+                }
+            }
+        }
+
+        /**
+         * Coordinator only, collects a workers counts and decides if the exploration has finished
+         *
+         * @param statusRound round the status answers
+         * @param workerSent data messages sent by the worker
+         * @param workerReceived data messages received by the worker
+         */
+        private void handleStatus(int statusRound, long workerSent, long workerReceived) throws IOException {
+            if (statusRound != round) {
+                return;
+            }
+            responses++;
+            roundSent += workerSent;
+            roundReceived += workerReceived;
+            if (responses < workers) {
+                return;
+            }
+            if (roundSent == roundReceived && roundSent == previousSent && roundReceived == previousReceived) {
+                broadcast(TERMINATE);
+            } else {
+                previousSent = roundSent;
+                previousReceived = roundReceived;
+                startRound();
+            }
+        }
+
+        /**
+         * Coordinator only, probes every worker for their counts
+         */
+        private void startRound() throws IOException {
+            round++;
+            responses = 0;
+            roundSent = 0;
+            roundReceived = 0;
+            Output output = new Output(HEADER_BYTES + 4);
+            output.writeByte(PROBE);
+            output.writeInt(workerIndex);
+            output.writeInt(round);
+            for (int worker = 0; worker < workers; worker++) {
+                transport.send(worker, output.toBytes());
+            }
+        }
+
+        /**
+         * Replies to the latest probe, only called when this worker has no work left
+         */
+        private void answerProbe() throws IOException {
+            if (probeRound == answeredRound) {
+                return;
+            }
+            answeredRound = probeRound;
+            Output output = new Output(HEADER_BYTES + 20);
+            output.writeByte(STATUS);
+            output.writeInt(workerIndex);
+            output.writeInt(probeRound);
+            output.writeLong(sent);
+            output.writeLong(received);
+            transport.send(COORDINATOR, output.toBytes());
+        }
+
+        /**
+         * Sends every non empty batch
+         */
+        private void flushAll() throws IOException {
+            for (int worker = 0; worker < workers; worker++) {
+                flush(worker, successorBatches[worker]);
+                flush(worker, idBatches[worker]);
+            }
+        }
+
+        /**
+         * @param worker to send the batch to
+         * @param batch to send, emptied afterwards
+         */
+        private void flush(int worker, Batch batch) throws IOException {
+            if (batch.count == 0) {
+                return;
+            }
+            Output output = new Output(HEADER_BYTES + 4 + batch.body.position());
+            output.writeByte(batch.type);
+            output.writeInt(workerIndex);
+            output.writeInt(batch.count);
+            output.writeBytes(batch.body.getBuffer(), 0, batch.body.position());
+            transport.send(worker, output.toBytes());
+            sent++;
+            batch.body.clear();
+            batch.count = 0;
+        }
+
+        /**
+         * @param type of message with no body to send to every worker
+         */
+        private void broadcast(byte type) throws IOException {
+            Output output = new Output(HEADER_BYTES);
+            output.writeByte(type);
+            output.writeInt(workerIndex);
+            for (int worker = 0; worker < workers; worker++) {
+                transport.send(worker, output.toBytes());
+            }
+        }
+    }
+
+    /**
+     * Transitions of an expanded state, some of whose successor ids are awaited
+     */
+    private static final class PendingTransitions {
+        /**
+         * Successor id to rate, for those resolved so far
+         */
+        private final Map<Integer, Double> rates = new HashMap<>();
+
+        /**
+         * Number of successor ids still awaited
+         */
+        private int remaining = 0;
+    }
+
+    /**
+     * Entries waiting to be sent to a single worker
+     */
+    private static final class Batch {
+        /**
+         * Type of message the batch is sent as
+         */
+        private final byte type;
+
+        /**
+         * Encoded entries
+         */
+        private final Output body = new Output(1024, -1);
+
+        /**
+         * Number of entries in the body
+         */
+        private int count = 0;
+
+        /**
+         * @param type of message the batch is sent as
+         */
+        private Batch(byte type) {
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package uk.ac.imperial.explorer;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateMapping;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.ExploredSet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Struct containing everything needed to resume a breadth first exploration
+ * from the end of a level. The fields are final but the explored set is not copied,
+ * so resuming from the checkpoint adds to it
+ */
+public final class ExplorationCheckpoint {
+
+    /**
+     * Written at the start of every checkpoint file, ending in the version of the format
+     */
+    private static final int MAGIC = 0x50434b32;
+
+    /**
+     * States explored so far
+     */
+    public final ExploredSet explored;
+
+    /**
+     * Id the next new state will be given
+     */
+    public final int nextId;
+
+    /**
+     * States in the next level to be expanded
+     */
+    public final List<ClassifiedState> frontier;
+
+    /**
+     * Ids of the states in the next level, in the same order
+     */
+    public final List<Integer> frontierIds;
+
+    /**
+     * Number of bytes of the transition output that were written when the checkpoint was taken
+     */
+    public final long transitionOffset;
+
+    /**
+     * Number of bytes of the state output that were written when the checkpoint was taken
+     */
+    public final long stateOffset;
+
+    /**
+     * @param explored states explored so far
+     * @param nextId id the next new state will be given
+     * @param frontier states in the next level to be expanded
+     * @param frontierIds ids of the states in the next level
+     * @param transitionOffset bytes of the transition output written
+     * @param stateOffset bytes of the state output written
+     */
+    public ExplorationCheckpoint(ExploredSet explored, int nextId, List<ClassifiedState> frontier,
+                                 List<Integer> frontierIds, long transitionOffset, long stateOffset) {
+        this.explored = explored;
+        this.nextId = nextId;
+        this.frontier = frontier;
+        this.frontierIds = frontierIds;
+        this.transitionOffset = transitionOffset;
+        this.stateOffset = stateOffset;
+    }
+
+    /**
+     * Writes:
+     *   - Magic number
+     *   - Transition and state offsets
+     *   - Next id
+     *   - Explored set
+     *   - Number of frontier states
+     *   - {
+     *      - Frontier state and id
+     *     }
+     *
+     * @param output to write to
+     * @param io writes the frontier states
+     */
+    public void write(Output output, KryoStateIO io) {
+        output.writeInt(MAGIC);
+        output.writeLong(transitionOffset);
+        output.writeLong(stateOffset);
+        output.writeInt(nextId);
+        explored.write(output);
+        output.writeInt(frontier.size());
+        for (int i = 0; i < frontier.size(); i++) {
+            io.writeState(frontier.get(i), frontierIds.get(i), output);
+        }
+    }
+
+    /**
+     * @param file checkpoint file written by a {@link Checkpointer}
+     * @return checkpoint contained in the file
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static ExplorationCheckpoint read(File file) throws IOException {
+        KryoStateIO io = new KryoStateIO();
+        try (Input input = new Input(new FileInputStream(file))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not an exploration checkpoint of this version");
+            }
+            long transitionOffset = input.readLong();
+            long stateOffset = input.readLong();
+            int nextId = input.readInt();
+            ExploredSet explored = ExploredSet.read(input);
+            int frontierSize = input.readInt();
+            List<ClassifiedState> frontier = new ArrayList<>(frontierSize);
+            List<Integer> frontierIds = new ArrayList<>(frontierSize);
+            for (int i = 0; i < frontierSize; i++) {
+                StateMapping mapping = io.readState(input);
+                frontier.add(mapping.state);
+                frontierIds.add(mapping.id);
+            }
+            return new ExplorationCheckpoint(explored, nextId, frontier, frontierIds, transitionOffset, stateOffset);
+        } catch (KryoException e) {
+            throw new IOException("Cannot read checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Removes anything written to the output files after the checkpoint was taken,
+     * so that they can be appended to when the exploration is resumed
+     *
+     * @param transitionFile file transitions were written to
+     * @param stateFile file states were written to
+     * @throws IOException if a file is shorter than the checkpoint or cannot be truncated
+     */
+    public void truncate(File transitionFile, File stateFile) throws IOException {
+        truncate(transitionFile, transitionOffset);
+        truncate(stateFile, stateOffset);
+    }
+
+    /**
+     * @param file to truncate
+     * @param length to truncate to
+     * @throws IOException if the file is shorter than the length or cannot be truncated
+     */
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            if (randomAccessFile.length() < length) {
+                throw new IOException(file + " is shorter than the checkpoint offset " + length);
+            }
+            randomAccessFile.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package uk.ac.imperial.explorer;
+
+/**
+ * Thrown when a state space exploration cannot be completed
+ */
+public class ExplorationException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message reason the exploration failed
+     */
+    public ExplorationException(String message) {
+        super(message);
+    }
+
+    /**
+     * @param message reason the exploration failed
+     * @param cause underlying cause of the failure
+     */
+    public ExplorationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
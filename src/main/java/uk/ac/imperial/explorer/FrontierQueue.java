@@ -0,0 +1,309 @@
+package uk.ac.imperial.explorer;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateMapping;
+import uk.ac.imperial.io.StateReader;
+import uk.ac.imperial.io.StateWriter;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Queue of unexplored states and their ids that spills to disk rather than holding every state on the heap.
+ * <p>
+ * Recently pushed states are kept in memory in a tail and, in FIFO order, the next states to pop in a head.
+ * Once the tail holds the memory limit of states, states are encoded with a {@link uk.ac.imperial.io.StateWriter}
+ * and streamed into a segment file:
+ * </p>
+ * <ul>
+ *     <li>FIFO: the whole tail is spilled and segments are loaded back into the head, oldest first,
+ *     whenever the head is empty.</li>
+ *     <li>LIFO: the older half of the tail is spilled and segments are loaded back into the tail,
+ *     newest first, whenever the tail is empty.</li>
+ * </ul>
+ * <p>
+ * So at most twice the memory limit of states are on the heap. Every method is synchronized, so any number of
+ * threads may push and poll. Segment files are deleted once loaded and on {@link #close()}.
+ * </p>
+ */
+public final class FrontierQueue implements Closeable {
+
+    /**
+     * Order in which states are polled
+     */
+    public enum Order {
+        /**
+         * Oldest state first, for breadth first exploration
+         */
+        FIFO,
+
+        /**
+         * Newest state first, for depth first exploration
+         */
+        LIFO
+    }
+
+    /**
+     * Directory segment files are created in
+     */
+    private final File directory;
+
+    private final Order order;
+
+    /**
+     * Number of states the tail holds before it spills
+     */
+    private final int memoryLimit;
+
+    /**
+     * Encodes spilled states
+     */
+    private final StateWriter writer;
+
+    /**
+     * Decodes spilled states
+     */
+    private final StateReader reader;
+
+    /**
+     * Next states to poll in FIFO order
+     */
+    private Deque<StateMapping> head = new ArrayDeque<>();
+
+    /**
+     * Most recently pushed states
+     */
+    private Deque<StateMapping> tail = new ArrayDeque<>();
+
+    /**
+     * Spilled segments, oldest first
+     */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    /**
+     * Size of the buffers streaming segments to and from disk
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Reused buffer streaming states into segment files
+     */
+    private final Output output = new Output(BUFFER_SIZE);
+
+    /**
+     * Reused buffer streaming states out of segment files
+     */
+    private final Input input = new Input(BUFFER_SIZE);
+
+    private long size = 0;
+
+    private long spilledSegments = 0;
+
+    /**
+     * Spills with {@link uk.ac.imperial.io.KryoStateIO}
+     *
+     * @param directory to create segment files in
+     * @param order in which states are polled
+     * @param memoryLimit number of states the tail holds before spilling, at least 2
+     */
+    public FrontierQueue(File directory, Order order, int memoryLimit) {
+        this(directory, order, memoryLimit, new KryoStateIO(), new KryoStateIO());
+    }
+
+    /**
+     * @param directory to create segment files in
+     * @param order in which states are polled
+     * @param memoryLimit number of states the tail holds before spilling, at least 2
+     * @param writer encodes spilled states
+     * @param reader decodes states encoded by the writer
+     */
+    public FrontierQueue(File directory, Order order, int memoryLimit, StateWriter writer, StateReader reader) {
+        if (memoryLimit < 2) {
+            throw new IllegalArgumentException("Memory limit must be at least 2 but was " + memoryLimit);
+        }
+        this.directory = directory;
+        this.order = order;
+        this.memoryLimit = memoryLimit;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    /**
+     * @param state to add
+     * @param id of the state
+     * @throws IOException if the tail spills and the segment cannot be written
+     */
+    public synchronized void push(ClassifiedState state, int id) throws IOException {
+        tail.addLast(new StateMapping(state, id));
+        size++;
+        if (tail.size() >= memoryLimit) {
+            spill();
+        }
+    }
+
+    /**
+     * @return next state and its id in the queue's order, or null if the queue is empty
+     * @throws IOException if a segment needs loading and cannot be read
+     */
+    public synchronized StateMapping poll() throws IOException {
+        StateMapping next;
+        if (order == Order.FIFO) {
+            if (head.isEmpty()) {
+                if (segments.isEmpty()) {
+                    Deque<StateMapping> swap = head;
+                    head = tail;
+                    tail = swap;
+                } else {
+                    load(segments.pollFirst(), head);
+                }
+            }
+            next = head.pollFirst();
+        } else {
+            if (tail.isEmpty() && !segments.isEmpty()) {
+                load(segments.pollLast(), tail);
+            }
+            next = tail.pollLast();
+        }
+        if (next != null) {
+            size--;
+        }
+        return next;
+    }
+
+    /**
+     * @return number of states in the queue, in memory and spilled
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the queue holds no states
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of segments written since the queue was created
+     */
+    public synchronized long getSpilledSegments() {
+        return spilledSegments;
+    }
+
+    /**
+     * Moves tail states to a new segment. In FIFO order, if nothing is waiting ahead of the tail it
+     * becomes the head instead, without touching the disk.
+     */
+    private void spill() throws IOException {
+        if (order == Order.FIFO) {
+            if (head.isEmpty() && segments.isEmpty()) {
+                Deque<StateMapping> swap = head;
+                head = tail;
+                tail = swap;
+            } else {
+                segments.addLast(write(tail, tail.size()));
+            }
+        } else {
+            segments.addLast(write(tail, memoryLimit / 2));
+        }
+    }
+
+    /**
+     * Encodes the oldest states of the tail into a new segment file, removing them only once the file
+     * is written so that a failed spill leaves every state in the queue
+     *
+     * @param states tail to spill from
+     * @param count number of states to spill
+     * @return segment holding the states
+     */
+    private Segment write(Deque<StateMapping> states, int count) throws IOException {
+        File file = File.createTempFile("frontier", ".segment", directory);
+        try {
+            output.setOutputStream(new FileOutputStream(file));
+            try {
+                Iterator<StateMapping> iterator = states.iterator();
+                for (int i = 0; i < count; i++) {
+                    StateMapping mapping = iterator.next();
+                    writer.writeState(mapping.state, mapping.id, output);
+                }
+            } finally {
+                output.close();
+            }
+        } catch (KryoException e) {
+            file.delete();
+            throw new IOException("Cannot write segment " + file, e);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+        for (int i = 0; i < count; i++) {
+            states.pollFirst();
+        }
+        spilledSegments++;
+        return new Segment(file, count);
+    }
+
+    /**
+     * Decodes every state of the segment onto the end of the states and deletes its file
+     */
+    private void load(Segment segment, Deque<StateMapping> states) throws IOException {
+        input.setInputStream(new FileInputStream(segment.file));
+        try {
+            for (int i = 0; i < segment.count; i++) {
+                states.addLast(reader.readState(input));
+            }
+        } finally {
+            input.close();
+        }
+        delete(segment.file);
+    }
+
+    /**
+     * Empties the queue and deletes every segment file
+     *
+     * @throws IOException if a segment file cannot be deleted
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        head.clear();
+        tail.clear();
+        size = 0;
+        while (!segments.isEmpty()) {
+            delete(segments.pollFirst().file);
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        if (!file.delete()) {
+            throw new IOException("Could not delete segment " + file);
+        }
+    }
+
+    /**
+     * Spilled segment file
+     */
+    private static final class Segment {
+        private final File file;
+
+        /**
+         * Number of states in the file
+         */
+        private final int count;
+
+        private Segment(File file, int count) {
+            this.file = file;
+            this.count = count;
+        }
+    }
+}
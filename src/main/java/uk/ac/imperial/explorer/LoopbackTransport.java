@@ -0,0 +1,67 @@
+package uk.ac.imperial.explorer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In memory transport for running several workers as threads of a single process
+ */
+public final class LoopbackTransport implements Transport {
+
+    /**
+     * Incoming message queues of every worker in the network
+     */
+    private final List<BlockingQueue<byte[]>> queues;
+
+    /**
+     * Index of the worker this transport belongs to
+     */
+    private final int workerIndex;
+
+    /**
+     * Private constructor. Use {@link #createNetwork(int)}
+     *
+     * @param queues incoming message queues of every worker in the network
+     * @param workerIndex index of the worker this transport belongs to
+     */
+    private LoopbackTransport(List<BlockingQueue<byte[]>> queues, int workerIndex) {
+        this.queues = queues;
+        this.workerIndex = workerIndex;
+    }
+
+    /**
+     * @param workers number of workers in the network
+     * @return transports for each worker, indexed by worker
+     */
+    public static List<Transport> createNetwork(int workers) {
+        List<BlockingQueue<byte[]>> queues = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            queues.add(new LinkedBlockingQueue<byte[]>());
+        }
+        List<Transport> transports = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            transports.add(new LoopbackTransport(queues, i));
+        }
+        return transports;
+    }
+
+    @Override
+    public void send(int worker, byte[] message) {
+        queues.get(worker).add(message);
+    }
+
+    @Override
+    public byte[] poll(long timeoutMillis) throws InterruptedException {
+        return queues.get(workerIndex).poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Nothing to release
+     */
+    @Override
+    public void close() {
+    }
+}
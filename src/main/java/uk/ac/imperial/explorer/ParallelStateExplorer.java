@@ -0,0 +1,479 @@
+package uk.ac.imperial.explorer;
+
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.ConcurrentExploredSet;
+import uk.ac.imperial.utils.ExploredSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Breadth first state space explorer that generates successors on several threads.
+ * <p>
+ * Every state reached from the initial state is given a unique id, passed once to
+ * {@link uk.ac.imperial.io.StateProcessor#processState(ClassifiedState, int)}, and its
+ * outgoing rates are passed once to {@link uk.ac.imperial.io.StateProcessor#processTransitions(int, Map)}.
+ * Calls to the processor are serialized so it does not need to be thread safe.
+ * </p><p>
+ * Two modes are supported:
+ * </p>
+ * <ul>
+ *     <li>Concurrent: each state is expanded by a task on a work stealing {@link java.util.concurrent.ForkJoinPool}
+ *     and new states are forked as soon as they are found. Ids depend on thread scheduling.</li>
+ *     <li>Deterministic: each breadth first level is expanded in parallel, then ids are assigned
+ *     on a single thread in level order. Ids are the same on every run.</li>
+ * </ul>
+ */
+public final class ParallelStateExplorer {
+
+    /**
+     * Number of states a task expands in deterministic mode before it stops splitting
+     */
+    private static final int LEVEL_CHUNK = 32;
+
+    /**
+     * Segments per thread used in the concurrent explored set
+     */
+    private static final int SEGMENTS_PER_THREAD = 16;
+
+    /**
+     * Generates successors of a state
+     */
+    private final SuccessorFunction successorFunction;
+
+    /**
+     * Receives the states and transitions found
+     */
+    private final StateProcessor processor;
+
+    /**
+     * Number of threads used to explore
+     */
+    private final int threads;
+
+    /**
+     * Underlying array size of the explored set
+     */
+    private final int exploredSetSize;
+
+    /**
+     * True if ids should be the same on every run
+     */
+    private final boolean deterministicIds;
+
+    /**
+     * @param successorFunction generates successors of a state, must be thread safe
+     * @param processor receives the states and transitions found
+     * @param threads number of threads used to explore
+     * @param exploredSetSize underlying array size of the explored set
+     * @param deterministicIds true if ids should be the same on every run
+     */
+    public ParallelStateExplorer(SuccessorFunction successorFunction, StateProcessor processor, int threads,
+                                 int exploredSetSize, boolean deterministicIds) {
+        this.successorFunction = successorFunction;
+        this.processor = processor;
+        this.threads = threads;
+        this.exploredSetSize = exploredSetSize;
+        this.deterministicIds = deterministicIds;
+    }
+
+    /**
+     * Explores every state reachable from the initial state, which is given id 0
+     *
+     * @param initialState state to start exploring from
+     * @return number of states explored
+     * @throws ExplorationException if successors could not be generated for a state
+     * @throws InterruptedException if interrupted whilst waiting for the exploration to finish
+     */
+    public int explore(ClassifiedState initialState) throws ExplorationException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            if (deterministicIds) {
+                return exploreLevels(initialState, pool, null);
+            }
+            return exploreConcurrently(initialState, pool);
+        } catch (IOException e) {
+            throw new IllegalStateException("Checkpoints are never saved without a checkpointer", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Explores every state reachable from the initial state, checkpointing at the end of
+     * a level whenever the checkpointer is due. Only supported with deterministic ids
+     *
+     * @param initialState state to start exploring from
+     * @param checkpointer saves checkpoints of the exploration
+     * @return number of states explored
+     * @throws ExplorationException if successors could not be generated for a state
+     * @throws IOException if a checkpoint could not be saved
+     */
+    public int explore(ClassifiedState initialState, Checkpointer checkpointer)
+            throws ExplorationException, IOException {
+        requireDeterministicIds();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return exploreLevels(initialState, pool, checkpointer);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Resumes an exploration from a checkpoint. The outputs of the processor must append to
+     * the files the checkpoint was taken from once they have been truncated with
+     * {@link ExplorationCheckpoint#truncate(java.io.File, java.io.File)}, in which case they end
+     * up identical to those of an uninterrupted exploration. Only supported with deterministic ids
+     *
+     * @param checkpoint to resume from
+     * @param checkpointer saves further checkpoints of the exploration
+     * @return number of states explored, including those explored before the checkpoint
+     * @throws ExplorationException if successors could not be generated for a state
+     * @throws IOException if a checkpoint could not be saved
+     */
+    public int resume(ExplorationCheckpoint checkpoint, Checkpointer checkpointer)
+            throws ExplorationException, IOException {
+        requireDeterministicIds();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return exploreLevels(checkpoint.explored, checkpoint.nextId, checkpoint.frontier,
+                    checkpoint.frontierIds, pool, checkpointer);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Checkpoints are taken between levels, which only exist in deterministic mode
+     */
+    private void requireDeterministicIds() {
+        if (!deterministicIds) {
+            throw new IllegalStateException("Checkpointing is only supported with deterministic ids");
+        }
+    }
+
+    /**
+     * @param initialState state to start exploring from
+     * @param pool to run successor generation on
+     * @param checkpointer saves checkpoints of the exploration, or null for none
+     * @return number of states explored
+     * @throws ExplorationException if successors could not be generated for a state
+     * @throws IOException if a checkpoint could not be saved
+     */
+    private int exploreLevels(ClassifiedState initialState, ForkJoinPool pool, Checkpointer checkpointer)
+            throws ExplorationException, IOException {
+        ExploredSet explored = new ExploredSet(exploredSetSize);
+        explored.add(initialState, 0);
+        processState(initialState, 0);
+        return exploreLevels(explored, 1, Collections.singletonList(initialState), Collections.singletonList(0),
+                pool, checkpointer);
+    }
+
+    /**
+     * Expands each level in parallel and then assigns ids on this thread
+     *
+     * @param explored states explored so far
+     * @param nextId id the next new state will be given
+     * @param level states to be expanded next
+     * @param levelIds ids of the states to be expanded next
+     * @param pool to run successor generation on
+     * @param checkpointer saves checkpoints of the exploration, or null for none
+     * @return number of states explored
+     * @throws ExplorationException if successors could not be generated for a state
+     * @throws IOException if a checkpoint could not be saved
+     */
+    private int exploreLevels(ExploredSet explored, int nextId, List<ClassifiedState> level, List<Integer> levelIds,
+                              ForkJoinPool pool, Checkpointer checkpointer) throws ExplorationException, IOException {
+        while (!level.isEmpty()) {
+            LevelTask task = new LevelTask(level, 0, level.size());
+            pool.invoke(task);
+            task.rethrow();
+
+            List<ClassifiedState> nextLevel = new ArrayList<>();
+            List<Integer> nextLevelIds = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                Map<Integer, Double> rates = new HashMap<>();
+                for (Map.Entry<ClassifiedState, Double> entry : task.results[i].entrySet()) {
+                    ClassifiedState successor = entry.getKey();
+                    int successorId;
+                    if (explored.contains(successor)) {
+                        successorId = explored.getId(successor);
+                    } else {
+                        successorId = nextId++;
+                        explored.add(successor, successorId);
+                        processState(successor, successorId);
+                        nextLevel.add(successor);
+                        nextLevelIds.add(successorId);
+                    }
+                    addRate(rates, successorId, entry.getValue());
+                }
+                processTransitions(levelIds.get(i), rates);
+            }
+            level = nextLevel;
+            levelIds = nextLevelIds;
+            if (checkpointer != null && !level.isEmpty() && checkpointer.isDue()) {
+                checkpointer.checkpoint(explored, nextId, level, levelIds);
+            }
+        }
+        return explored.size();
+    }
+
+    /**
+     * Forks a task for every new state found and waits for all of them to complete
+     *
+     * @param initialState state to start exploring from
+     * @param pool to run the exploration on
+     * @return number of states explored
+     * @throws ExplorationException if successors could not be generated for a state
+     * @throws InterruptedException if interrupted whilst waiting for the exploration to finish
+     */
+    private int exploreConcurrently(ClassifiedState initialState, ForkJoinPool pool)
+            throws ExplorationException, InterruptedException {
+        ConcurrentExploredSet explored = new ConcurrentExploredSet(exploredSetSize, threads * SEGMENTS_PER_THREAD);
+        int initialId = explored.addIfAbsent(initialState);
+        processState(initialState, initialId);
+
+        ConcurrentExploration exploration = new ConcurrentExploration(explored);
+        exploration.pending.incrementAndGet();
+        pool.execute(exploration.new ExpandTask(initialState, initialId));
+        exploration.finished.await();
+
+        ExplorationException failure = exploration.failure.get();
+        if (failure != null) {
+            throw failure;
+        }
+        return explored.size();
+    }
+
+    /**
+     * @param state to find the successors of
+     * @return successors of the state, wrapping any unexpected runtime errors
+     * @throws ExplorationException if successors could not be generated for the state
+     */
+    private Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException {
+        try {
+            return successorFunction.getSuccessors(state);
+        } catch (RuntimeException e) {
+            throw new ExplorationException("Could not generate successors of " + state, e);
+        }
+    }
+
+    /**
+     * Sums the rate into the successor, since a tangible and vanishing successor with the same
+     * marking share an id
+     *
+     * @param rates successor id to rate
+     * @param successorId id of successor
+     * @param rate rate into successor
+     */
+    static void addRate(Map<Integer, Double> rates, int successorId, double rate) {
+        Double previous = rates.get(successorId);
+        rates.put(successorId, previous == null ? rate : previous + rate);
+    }
+
+    /**
+     * @param state to process
+     * @param stateId id of the state
+     */
+    private void processState(ClassifiedState state, int stateId) {
+        synchronized (processor) {
+            processor.processState(state, stateId);
+        }
+    }
+
+    /**
+     * @param stateId unique id for state
+     * @param rates unique id for successors to the rate at which they are entered
+     */
+    private void processTransitions(int stateId, Map<Integer, Double> rates) {
+        synchronized (processor) {
+            processor.processTransitions(stateId, rates);
+        }
+    }
+
+    /**
+     * Generates successors for a contiguous range of a level, splitting the range
+     * in two until it is small enough
+     */
+    private final class LevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Level being expanded
+         */
+        private final List<ClassifiedState> level;
+
+        /**
+         * Inclusive start of range
+         */
+        private final int from;
+
+        /**
+         * Exclusive end of range
+         */
+        private final int to;
+
+        /**
+         * Successors of each state in the level, shared by all subtasks
+         */
+        private final Map<ClassifiedState, Double>[] results;
+
+        /**
+         * First failure of any subtask, shared by all subtasks
+         */
+        private final AtomicReference<ExplorationException> failure;
+
+        /**
+         * @param level to expand
+         * @param from inclusive start of range
+         * @param to exclusive end of range
+         */
+        @SuppressWarnings("unchecked")
+        private LevelTask(List<ClassifiedState> level, int from, int to) {
+            this(level, from, to, (Map<ClassifiedState, Double>[]) new Map<?, ?>[level.size()],
+                 new AtomicReference<ExplorationException>());
+        }
+
+        private LevelTask(List<ClassifiedState> level, int from, int to, Map<ClassifiedState, Double>[] results,
+                          AtomicReference<ExplorationException> failure) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEVEL_CHUNK) {
+                for (int i = from; i < to && failure.get() == null; i++) {
+                    try {
+                        results[i] = getSuccessors(level.get(i));
+                    } catch (ExplorationException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LevelTask(level, from, middle, results, failure),
+                      new LevelTask(level, middle, to, results, failure));
+        }
+
+        /**
+         * @throws ExplorationException first failure of any subtask
+         */
+        private void rethrow() throws ExplorationException {
+            ExplorationException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Shared state of a single concurrent exploration
+     */
+    private final class ConcurrentExploration {
+        /**
+         * States explored so far
+         */
+        private final ConcurrentExploredSet explored;
+
+        /**
+         * Number of tasks forked that have not yet completed
+         */
+        private final AtomicInteger pending = new AtomicInteger(0);
+
+        /**
+         * Released when there are no pending tasks left
+         */
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * First failure of any task, once set no more states are expanded
+         */
+        private final AtomicReference<ExplorationException> failure = new AtomicReference<>();
+
+        /**
+         * @param explored states explored so far
+         */
+        private ConcurrentExploration(ConcurrentExploredSet explored) {
+            this.explored = explored;
+        }
+
+        /**
+         * Expands a single state, forking a new task for every successor not yet explored
+         */
+        private final class ExpandTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            /**
+             * State to expand
+             */
+            private final ClassifiedState state;
+
+            /**
+             * Id of the state
+             */
+            private final int stateId;
+
+            /**
+             * @param state to expand
+             * @param stateId id of the state
+             */
+            private ExpandTask(ClassifiedState state, int stateId) {
+                this.state = state;
+                this.stateId = stateId;
+            }
+
+            @Override
+            protected void compute() {
+                try {
+                    if (failure.get() == null) {
+                        expand();
+                    }
+                } catch (ExplorationException e) {
+                    failure.compareAndSet(null, e);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, new ExplorationException("Could not expand " + state, e));
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        finished.countDown();
+                    }
+                }
+            }
+
+            /**
+             * @throws ExplorationException if successors could not be generated for the state
+             */
+            private void expand() throws ExplorationException {
+                Map<Integer, Double> rates = new HashMap<>();
+                for (Map.Entry<ClassifiedState, Double> entry : getSuccessors(state).entrySet()) {
+                    ClassifiedState successor = entry.getKey();
+                    int successorId = explored.addIfAbsent(successor);
+                    if (successorId == ConcurrentExploredSet.ALREADY_PRESENT) {
+                        successorId = explored.getId(successor);
+                    } else {
+                        processState(successor, successorId);
+                        pending.incrementAndGet();
+                        new ExpandTask(successor, successorId).fork();
+                    }
+                    addRate(rates, successorId, entry.getValue());
+                }
+                processTransitions(stateId, rates);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package uk.ac.imperial.explorer;
+
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.ExploredSet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks whether a state satisfying a {@link uk.ac.imperial.explorer.TokenPredicate} is reachable,
+ * exploring on the fly instead of generating and writing the whole state space first.
+ * <p>
+ * States are explored breadth first and tested as soon as they are found, so the search stops at the
+ * first witness and the path to it is a shortest one. Ids are given in order of discovery and the
+ * parent of each state is kept in an int array indexed by id, rather than keeping the explored states.
+ * The states along the path are recovered afterwards by generating the successors of each state on it
+ * again, one state per step.
+ * </p>
+ */
+public final class ReachabilityChecker {
+
+    /**
+     * Parent of the initial state
+     */
+    private static final int NO_PARENT = -1;
+
+    /**
+     * Generates successors of a state
+     */
+    private final SuccessorFunction successorFunction;
+
+    /**
+     * Underlying array size of the explored set
+     */
+    private final int exploredSetSize;
+
+    /**
+     * @param successorFunction generates successors of a state
+     * @param exploredSetSize underlying array size of the explored set
+     */
+    public ReachabilityChecker(SuccessorFunction successorFunction, int exploredSetSize) {
+        this.successorFunction = successorFunction;
+        this.exploredSetSize = exploredSetSize;
+    }
+
+    /**
+     * @param initialState state to start exploring from, given id 0
+     * @param predicate to find a state satisfying
+     * @return path to the first state found satisfying the predicate, or an empty path if none is reachable
+     * @throws ExplorationException if successors could not be generated for a state
+     */
+    public ReachabilityResult check(ClassifiedState initialState, TokenPredicate predicate)
+            throws ExplorationException {
+        ExploredSet explored = new ExploredSet(exploredSetSize);
+        explored.add(initialState, 0);
+        if (predicate.test(initialState)) {
+            return new ReachabilityResult(Collections.singletonList(initialState), new int[]{0}, 1);
+        }
+
+        int[] parents = new int[1024];
+        parents[0] = NO_PARENT;
+        int nextId = 1;
+        Deque<ClassifiedState> frontier = new ArrayDeque<>();
+        frontier.add(initialState);
+        // States are numbered in the order they join the frontier and leave it in that order,
+        // so the id of each state polled is the next id in turn and need not be queued
+        int id = -1;
+        while (!frontier.isEmpty()) {
+            ClassifiedState state = frontier.poll();
+            id++;
+            for (ClassifiedState successor : getSuccessors(state).keySet()) {
+                if (explored.contains(successor)) {
+                    continue;
+                }
+                int successorId = nextId++;
+                explored.add(successor, successorId);
+                if (successorId == parents.length) {
+                    parents = Arrays.copyOf(parents, parents.length * 2);
+                }
+                parents[successorId] = id;
+                if (predicate.test(successor)) {
+                    int[] pathIds = pathIds(parents, successorId);
+                    return new ReachabilityResult(pathStates(initialState, pathIds, explored), pathIds, nextId);
+                }
+                frontier.add(successor);
+            }
+        }
+        return new ReachabilityResult(Collections.<ClassifiedState>emptyList(), new int[0], nextId);
+    }
+
+    /**
+     * @return ids from the initial state to the witness
+     */
+    private static int[] pathIds(int[] parents, int witnessId) {
+        int length = 0;
+        for (int id = witnessId; id != NO_PARENT; id = parents[id]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int id = witnessId; id != NO_PARENT; id = parents[id]) {
+            path[--length] = id;
+        }
+        return path;
+    }
+
+    /**
+     * Follows the path from the initial state, picking the successor with the next id at each step
+     */
+    private List<ClassifiedState> pathStates(ClassifiedState initialState, int[] pathIds, ExploredSet explored)
+            throws ExplorationException {
+        List<ClassifiedState> path = new ArrayList<>(pathIds.length);
+        ClassifiedState state = initialState;
+        path.add(state);
+        for (int step = 1; step < pathIds.length; step++) {
+            ClassifiedState next = null;
+            for (ClassifiedState successor : getSuccessors(state).keySet()) {
+                if (explored.contains(successor) && explored.getId(successor) == pathIds[step]) {
+                    next = successor;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new ExplorationException("Successors of " + state + " changed whilst rebuilding the witness path");
+            }
+            path.add(next);
+            state = next;
+        }
+        return path;
+    }
+
+    /**
+     * @param state to find the successors of
+     * @return successors of the state, wrapping any unexpected runtime errors
+     * @throws ExplorationException if successors could not be generated for the state
+     */
+    private Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException {
+        try {
+            return successorFunction.getSuccessors(state);
+        } catch (RuntimeException e) {
+            throw new ExplorationException("Could not generate successors of " + state, e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package uk.ac.imperial.explorer;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.List;
+
+/**
+ * Outcome of a {@link uk.ac.imperial.explorer.ReachabilityChecker} search
+ */
+public final class ReachabilityResult {
+
+    /**
+     * States from the initial state to the witness, empty if no witness is reachable
+     */
+    public final List<ClassifiedState> path;
+
+    /**
+     * Ids of the states on the path, in the same order
+     */
+    public final int[] pathIds;
+
+    /**
+     * Number of states found before the search stopped
+     */
+    public final int exploredStates;
+
+    /**
+     * @param path states from the initial state to the witness
+     * @param pathIds ids of the states on the path
+     * @param exploredStates number of states found before the search stopped
+     */
+    public ReachabilityResult(List<ClassifiedState> path, int[] pathIds, int exploredStates) {
+        this.path = path;
+        this.pathIds = pathIds;
+        this.exploredStates = exploredStates;
+    }
+
+    /**
+     * @return true if a state satisfying the predicate was found
+     */
+    public boolean isReachable() {
+        return !path.isEmpty();
+    }
+
+    /**
+     * @return the state satisfying the predicate, or null if none is reachable
+     */
+    public ClassifiedState getWitness() {
+        return path.isEmpty() ? null : path.get(path.size() - 1);
+    }
+}
@@ -0,0 +1,281 @@
+package uk.ac.imperial.explorer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TCP transport for running workers in separate processes.
+ * <p>
+ * Each worker listens on its own address and lazily opens one connection to every
+ * worker it sends to. Messages are framed by writing their length before their bytes.
+ * </p><p>
+ * Closing the transport ends every outgoing connection with a marker. A connection that ends
+ * without the marker belongs to a worker that crashed, which fails the transport so that
+ * {@link #poll(long)} throws rather than waiting for it forever.
+ * </p>
+ */
+public final class SocketTransport implements Transport {
+
+    /**
+     * Time to keep retrying a connection to a worker that has not started listening yet
+     */
+    private static final long CONNECT_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Time to wait between connection attempts
+     */
+    private static final long CONNECT_RETRY_MILLIS = 50;
+
+    /**
+     * Length written in place of a message when a connection is closed cleanly
+     */
+    private static final int END_OF_STREAM = -1;
+
+    /**
+     * Listening addresses of every worker, indexed by worker
+     */
+    private final List<InetSocketAddress> addresses;
+
+    /**
+     * Accepts connections from other workers
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Messages received from all connections
+     */
+    private final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+
+    /**
+     * Outgoing connection streams, indexed by worker. Null until first used
+     */
+    private final DataOutputStream[] outputs;
+
+    /**
+     * All sockets opened, closed with the transport
+     */
+    private final List<Socket> sockets = new ArrayList<>();
+
+    /**
+     * First failure of a receiving thread
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Set once the transport has been closed
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Starts listening on the address of this worker
+     *
+     * @param workerIndex index of this worker
+     * @param addresses listening addresses of every worker, indexed by worker
+     * @throws IOException if the address of this worker cannot be listened on
+     */
+    public SocketTransport(int workerIndex, List<InetSocketAddress> addresses) throws IOException {
+        this.addresses = addresses;
+        outputs = new DataOutputStream[addresses.size()];
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(addresses.get(workerIndex));
+        startDaemon(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+    }
+
+    @Override
+    public void send(int worker, byte[] message) throws IOException {
+        DataOutputStream output = getOutput(worker);
+        synchronized (output) {
+            output.writeInt(message.length);
+            output.write(message);
+            output.flush();
+        }
+    }
+
+    @Override
+    public byte[] poll(long timeoutMillis) throws IOException, InterruptedException {
+        byte[] message = received.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (message == null && failure.get() != null) {
+            throw new IOException("Transport failed", failure.get());
+        }
+        return message;
+    }
+
+    /**
+     * Ends every outgoing connection, then closes all connections and stops listening
+     *
+     * @throws IOException if a socket could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            for (DataOutputStream output : outputs) {
+                if (output != null) {
+                    endStream(output);
+                }
+            }
+        }
+        serverSocket.close();
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * @param worker index of worker to send to
+     * @return output stream to the worker, connecting to it if needed
+     * @throws IOException if the worker cannot be connected to
+     */
+    private synchronized DataOutputStream getOutput(int worker) throws IOException {
+        if (outputs[worker] == null) {
+            Socket socket = connect(addresses.get(worker));
+            socket.setTcpNoDelay(true);
+            register(socket);
+            outputs[worker] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+        return outputs[worker];
+    }
+
+    /**
+     * Writes the end marker. A worker that has already closed its side does not need it, so
+     * failing to write it is ignored
+     *
+     * @param output stream to a worker
+     */
+    private static void endStream(DataOutputStream output) {
+        synchronized (output) {
+            try {
+                output.writeInt(END_OF_STREAM);
+                output.flush();
+            } catch (IOException ignored) {
+                // The worker has gone already
+            }
+        }
+    }
+
+    /**
+     * Retries the connection since the other worker may not have started yet
+     *
+     * @param address to connect to
+     * @return connected socket
+     * @throws IOException if the connection cannot be made in time
+     */
+    private static Socket connect(InetSocketAddress address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                return new Socket(address.getAddress(), address.getPort());
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(CONNECT_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted connecting to " + address, ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accepts incoming connections until closed, starting a reader for each
+     */
+    private void accept() {
+        try {
+            while (!closed) {
+                final Socket socket = serverSocket.accept();
+                register(socket);
+                startDaemon(new Runnable() {
+                    @Override
+                    public void run() {
+                        read(socket);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Reads framed messages from the socket until the sending worker ends the stream. The
+     * stream ending without the end marker is a failure.
+     *
+     * @param socket to read from
+     */
+    private void read(Socket socket) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (!closed) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException e) {
+                    fail(new EOFException("Connection from " + socket.getRemoteSocketAddress()
+                            + " closed without ending, the worker may have crashed"));
+                    return;
+                }
+                if (length == END_OF_STREAM) {
+                    return;
+                }
+                byte[] message = new byte[length];
+                input.readFully(message);
+                received.add(message);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * @param socket to be closed with the transport
+     */
+    private void register(Socket socket) {
+        synchronized (sockets) {
+            sockets.add(socket);
+        }
+    }
+
+    /**
+     * Records the failure unless it was caused by closing the transport
+     *
+     * @param e failure
+     */
+    private void fail(IOException e) {
+        if (!closed) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * @param runnable to run on a new daemon thread
+     */
+    private static void startDaemon(Runnable runnable) {
+        Thread thread = new Thread(runnable, "socket-transport");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,23 @@
+package uk.ac.imperial.explorer;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Map;
+
+/**
+ * Generates the successors of a state in the Markov Chain, i.e. the
+ * states that can be entered directly from it, and the rate at which they are entered
+ */
+public interface SuccessorFunction {
+
+    /**
+     *
+     * Implementations may be called by several threads at once
+     * so must not keep any unsynchronized state between calls
+     *
+     * @param state to find the successors of
+     * @return map of successor state to the rate at which it is entered
+     * @throws ExplorationException if the successors cannot be generated
+     */
+    Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException;
+}
@@ -0,0 +1,49 @@
+package uk.ac.imperial.explorer;
+
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.SymmetryReduction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decorates a successor function so that only canonical representatives of each orbit are generated.
+ * <p>
+ * Successors with the same representative are lumped into a single transition whose rate is the sum
+ * of their rates. Exploring from a canonical initial state with this function therefore generates
+ * the quotient chain, which is exact when the rates of the net respect the declared symmetry.
+ * </p>
+ */
+public final class SymmetricSuccessorFunction implements SuccessorFunction {
+
+    /**
+     * Generates successors of the full net
+     */
+    private final SuccessorFunction successorFunction;
+
+    /**
+     * Maps states to their representative
+     */
+    private final SymmetryReduction reduction;
+
+    /**
+     * @param successorFunction generates successors of the full net
+     * @param reduction maps states to their representative
+     */
+    public SymmetricSuccessorFunction(SuccessorFunction successorFunction, SymmetryReduction reduction) {
+        this.successorFunction = successorFunction;
+        this.reduction = reduction;
+    }
+
+    @Override
+    public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException {
+        Map<ClassifiedState, Double> successors = successorFunction.getSuccessors(state);
+        Map<ClassifiedState, Double> lumped = new HashMap<>();
+        for (Map.Entry<ClassifiedState, Double> entry : successors.entrySet()) {
+            ClassifiedState representative = reduction.canonicalize(entry.getKey());
+            Double previous = lumped.get(representative);
+            lumped.put(representative, previous == null ? entry.getValue() : previous + entry.getValue());
+        }
+        return lumped;
+    }
+}
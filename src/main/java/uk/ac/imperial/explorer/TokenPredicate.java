@@ -0,0 +1,172 @@
+package uk.ac.imperial.explorer;
+
+import uk.ac.imperial.state.State;
+
+import java.util.Map;
+
+/**
+ * Predicate on a state that depends only on the token counts of the given places and colours.
+ * The places and colours are fixed when the predicate is built, so testing a state only looks up
+ * those counts and passes them to the condition as a flat array. Combined predicates test each of
+ * their parts against the state in turn, so the parts never copy each other's token counts and a part
+ * that cannot change the result is not looked up at all.
+ */
+public final class TokenPredicate {
+
+    /**
+     * Condition on the token counts of the places and colours of the predicate
+     */
+    public interface Condition {
+        /**
+         * @param tokens token count of each place and colour of the predicate, in order
+         * @return true if the condition holds
+         */
+        boolean test(int[] tokens);
+    }
+
+    /**
+     * Compiled form of a predicate
+     */
+    private interface Test {
+        /**
+         * @param state to test
+         * @return true if the predicate holds for the state
+         */
+        boolean test(State state);
+    }
+
+    private final Test test;
+
+    /**
+     * @param places places the condition depends on
+     * @param colours token colour of each place
+     * @param condition on the token counts of the places and colours, in order
+     */
+    public TokenPredicate(String[] places, String[] colours, Condition condition) {
+        if (places.length != colours.length) {
+            throw new IllegalArgumentException("Every place needs a colour");
+        }
+        test = new ConditionTest(places.clone(), colours.clone(), condition);
+    }
+
+    private TokenPredicate(Test test) {
+        this.test = test;
+    }
+
+    /**
+     * @param place to count tokens in
+     * @param colour of tokens to count
+     * @param threshold minimum number of tokens
+     * @return predicate that the place contains at least threshold tokens of the colour
+     */
+    public static TokenPredicate atLeast(String place, String colour, final int threshold) {
+        return new TokenPredicate(new String[]{place}, new String[]{colour}, new Condition() {
+            @Override
+            public boolean test(int[] tokens) {
+                return tokens[0] >= threshold;
+            }
+        });
+    }
+
+    /**
+     * @param place to count tokens in
+     * @param colour of tokens to count
+     * @param count number of tokens
+     * @return predicate that the place contains exactly count tokens of the colour
+     */
+    public static TokenPredicate equalTo(String place, String colour, final int count) {
+        return new TokenPredicate(new String[]{place}, new String[]{colour}, new Condition() {
+            @Override
+            public boolean test(int[] tokens) {
+                return tokens[0] == count;
+            }
+        });
+    }
+
+    /**
+     * @param other predicate
+     * @return predicate that both this and the other predicate hold
+     */
+    public TokenPredicate and(final TokenPredicate other) {
+        final Test first = test;
+        return new TokenPredicate(new Test() {
+            @Override
+            public boolean test(State state) {
+                return first.test(state) && other.test.test(state);
+            }
+        });
+    }
+
+    /**
+     * @param other predicate
+     * @return predicate that this or the other predicate holds
+     */
+    public TokenPredicate or(final TokenPredicate other) {
+        final Test first = test;
+        return new TokenPredicate(new Test() {
+            @Override
+            public boolean test(State state) {
+                return first.test(state) || other.test.test(state);
+            }
+        });
+    }
+
+    /**
+     * @return predicate that this predicate does not hold
+     */
+    public TokenPredicate negate() {
+        final Test negated = test;
+        return new TokenPredicate(new Test() {
+            @Override
+            public boolean test(State state) {
+                return !negated.test(state);
+            }
+        });
+    }
+
+    /**
+     * Tokens of a colour a state does not contain count as 0
+     *
+     * @param state to test
+     * @return true if the condition holds for the token counts of the state
+     */
+    public boolean test(State state) {
+        return test.test(state);
+    }
+
+    /**
+     * Looks up the token counts of its places and colours and passes them to its condition
+     */
+    private static final class ConditionTest implements Test {
+        /**
+         * Places the condition depends on
+         */
+        private final String[] places;
+
+        /**
+         * Token colour of each place the condition depends on
+         */
+        private final String[] colours;
+
+        private final Condition condition;
+
+        private ConditionTest(String[] places, String[] colours, Condition condition) {
+            this.places = places;
+            this.colours = colours;
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean test(State state) {
+            int[] tokens = new int[places.length];
+            for (int i = 0; i < places.length; i++) {
+                Map<String, Integer> counts = state.getTokens(places[i]);
+                if (counts != null) {
+                    Integer count = counts.get(colours[i]);
+                    tokens[i] = count == null ? 0 : count;
+                }
+            }
+            return condition.test(tokens);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package uk.ac.imperial.explorer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Carries binary messages between the workers of a distributed exploration.
+ * Workers are numbered from 0 to one less than the number of workers.
+ * <p>
+ * Messages sent from one worker to another must arrive in the order they were sent
+ * </p>
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Sends a message to a worker, which may be this worker.
+     * The message array must not be modified after it has been sent
+     *
+     * @param worker index of the worker to send to
+     * @param message bytes to send
+     * @throws IOException if the message could not be sent
+     */
+    void send(int worker, byte[] message) throws IOException;
+
+    /**
+     * Waits for the next message sent to this worker
+     *
+     * @param timeoutMillis maximum time to wait, 0 returns immediately
+     * @return next message or null if none arrived before the timeout
+     * @throws IOException if the transport has failed
+     * @throws InterruptedException if interrupted whilst waiting
+     */
+    byte[] poll(long timeoutMillis) throws IOException, InterruptedException;
+}
@@ -0,0 +1,340 @@
+package uk.ac.imperial.explorer;
+
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.utils.ExploredSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Explores the most probable part of a state space, for nets that are unbounded or too large to explore fully.
+ * <p>
+ * Every state found carries a residual, mass that has reached it but not yet been passed on. The initial state
+ * starts with a mass of 1. Processing a state passes its residual on to its successors in proportion to their
+ * rates, as in the embedded jump chain, except that a fraction 1 / jumpHorizon of it is dropped on every jump.
+ * Mass returning to a state that has already been expanded becomes its residual and is passed on again using
+ * the transitions stored when it was expanded, so mass that cycles through the expanded states still reaches
+ * the states beyond them. The total residual is then an upper bound on the probability of leaving the expanded
+ * states within a geometrically distributed number of jumps with mean jumpHorizon.
+ * </p><p>
+ * States are processed in order of decreasing residual, so the most probable states are expanded first.
+ * Exploration stops once the total residual falls below the bound, every state found has been expanded,
+ * or the maximum number of states has been expanded.
+ * </p><p>
+ * The truncated chain is passed to the {@link uk.ac.imperial.io.StateProcessor}. Expanded states are given
+ * ids 0 to n - 1 in the order they are expanded, and their transitions are written once exploration stops.
+ * Transitions into states that were never expanded are redirected to an absorbing rest state with id n,
+ * which is the {@link #REST_STATE}. The probability of the rest state in a transient solution of the truncated
+ * chain is the probability of having left the expanded states, so it bounds the error in the probabilities
+ * of the other states.
+ * </p>
+ */
+public final class TruncatedExplorer {
+
+    /**
+     * Absorbing state standing in for every state that was not expanded, a tangible state with no places
+     */
+    public static final ClassifiedState REST_STATE =
+            HashedClassifiedState.tangibleState(new HashedState(new HashMap<String, Map<String, Integer>>()));
+
+    /**
+     * Default mean number of jumps mass is followed for
+     */
+    public static final double DEFAULT_JUMP_HORIZON = 1000;
+
+    /**
+     * Id given to found states that have not been expanded
+     */
+    private static final int NOT_EXPANDED = -1;
+
+    /**
+     * Generates successors of a state
+     */
+    private final SuccessorFunction successorFunction;
+
+    /**
+     * Receives the states and transitions of the truncated chain
+     */
+    private final StateProcessor processor;
+
+    /**
+     * Underlying array size of the explored set
+     */
+    private final int exploredSetSize;
+
+    /**
+     * Fraction of the mass kept on each jump
+     */
+    private final double survival;
+
+    /**
+     * Follows mass for {@link #DEFAULT_JUMP_HORIZON} jumps
+     *
+     * @param successorFunction generates successors of a state
+     * @param processor receives the states and transitions of the truncated chain
+     * @param exploredSetSize underlying array size of the explored set
+     */
+    public TruncatedExplorer(SuccessorFunction successorFunction, StateProcessor processor, int exploredSetSize) {
+        this(successorFunction, processor, exploredSetSize, DEFAULT_JUMP_HORIZON);
+    }
+
+    /**
+     * @param successorFunction generates successors of a state
+     * @param processor receives the states and transitions of the truncated chain
+     * @param exploredSetSize underlying array size of the explored set
+     * @param jumpHorizon mean number of jumps mass is followed for, at least 1
+     */
+    public TruncatedExplorer(SuccessorFunction successorFunction, StateProcessor processor, int exploredSetSize,
+                             double jumpHorizon) {
+        if (!(jumpHorizon >= 1)) {
+            throw new IllegalArgumentException("Jump horizon must be at least 1 but was " + jumpHorizon);
+        }
+        this.successorFunction = successorFunction;
+        this.processor = processor;
+        this.exploredSetSize = exploredSetSize;
+        this.survival = 1 - 1 / jumpHorizon;
+    }
+
+    /**
+     * Expands states until the total residual is below the bound
+     *
+     * @param initialState state to start exploring from
+     * @param massBound total residual at which exploration stops
+     * @return summary of the truncation
+     * @throws ExplorationException if successors could not be generated for a state
+     */
+    public TruncationResult explore(ClassifiedState initialState, double massBound) throws ExplorationException {
+        return explore(initialState, massBound, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Expands states until the total residual is below the bound or the maximum number of
+     * states have been expanded, whichever comes first
+     *
+     * @param initialState state to start exploring from
+     * @param massBound total residual at which exploration stops
+     * @param maxStates maximum number of states to expand
+     * @return summary of the truncation
+     * @throws ExplorationException if successors could not be generated for a state
+     */
+    public TruncationResult explore(ClassifiedState initialState, double massBound, int maxStates)
+            throws ExplorationException {
+        Exploration exploration = new Exploration();
+        exploration.addMass(exploration.indexOf(initialState), 1.0);
+        while (exploration.residual >= massBound && exploration.found > exploration.expanded) {
+            Candidate candidate = exploration.queue.poll();
+            if (candidate == null) {
+                break;
+            }
+            if (candidate.mass != exploration.mass[candidate.index]) {
+                continue;
+            }
+            if (exploration.expansionIds[candidate.index] == NOT_EXPANDED) {
+                if (exploration.expanded == maxStates) {
+                    break;
+                }
+                exploration.expand(candidate);
+            }
+            exploration.push(candidate.index);
+        }
+        exploration.writeTransitions();
+        double remainingMass = exploration.found == exploration.expanded ? 0 : Math.max(exploration.residual, 0);
+        return new TruncationResult(exploration.expanded, exploration.found - exploration.expanded, remainingMass);
+    }
+
+    /**
+     * @param state to find the successors of
+     * @return successors of the state, wrapping any unexpected runtime errors
+     * @throws ExplorationException if successors could not be generated for the state
+     */
+    private Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException {
+        try {
+            return successorFunction.getSuccessors(state);
+        } catch (RuntimeException e) {
+            throw new ExplorationException("Could not generate successors of " + state, e);
+        }
+    }
+
+    /**
+     * Mutable state of a single exploration. Found states are indexed by the order they were found in
+     */
+    private final class Exploration {
+        private final ExploredSet explored = new ExploredSet(exploredSetSize);
+
+        /**
+         * States with a residual, most first. A state is queued again whenever its residual grows, so
+         * entries whose mass is no longer current are skipped
+         */
+        private final PriorityQueue<Candidate> queue = new PriorityQueue<>();
+
+        /**
+         * Residual of each found state
+         */
+        private double[] mass = new double[1024];
+
+        /**
+         * Expansion id of each found state, or NOT_EXPANDED
+         */
+        private int[] expansionIds = new int[1024];
+
+        private int found = 0;
+
+        private int expanded = 0;
+
+        /**
+         * Total residual of every found state
+         */
+        private double residual = 0;
+
+        /**
+         * Transitions of expanded state i, by expansion id, are stored from rowStart[i] to rowStart[i + 1]
+         */
+        private int[] rowStart = new int[1025];
+
+        /**
+         * Total rate to other states of each expanded state, by expansion id
+         */
+        private double[] exitRates = new double[1024];
+
+        /**
+         * Found index of the successor of each transition
+         */
+        private int[] successors = new int[1024];
+
+        private double[] rates = new double[1024];
+
+        private int transitions = 0;
+
+        /**
+         * Each found state until it is expanded, then null
+         */
+        private ClassifiedState[] unexpandedStates = new ClassifiedState[1024];
+
+        /**
+         * @return index of the state, finding it if it is new
+         */
+        private int indexOf(ClassifiedState state) {
+            if (explored.contains(state)) {
+                return explored.getId(state);
+            }
+            int index = found++;
+            explored.add(state, index);
+            if (index == mass.length) {
+                mass = Arrays.copyOf(mass, index * 2);
+                expansionIds = Arrays.copyOf(expansionIds, index * 2);
+                unexpandedStates = Arrays.copyOf(unexpandedStates, index * 2);
+            }
+            expansionIds[index] = NOT_EXPANDED;
+            unexpandedStates[index] = state;
+            return index;
+        }
+
+        private void addMass(int index, double addedMass) {
+            mass[index] += addedMass;
+            residual += addedMass;
+            queue.add(new Candidate(index, mass[index]));
+        }
+
+        /**
+         * Gives the state the next id and stores its transitions
+         */
+        private void expand(Candidate candidate) throws ExplorationException {
+            int id = expanded++;
+            expansionIds[candidate.index] = id;
+            ClassifiedState state = unexpandedStates[candidate.index];
+            unexpandedStates[candidate.index] = null;
+            processor.processState(state, id);
+
+            if (id + 1 == rowStart.length) {
+                rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+            }
+            if (id == exitRates.length) {
+                exitRates = Arrays.copyOf(exitRates, id * 2);
+            }
+            for (Map.Entry<ClassifiedState, Double> entry : getSuccessors(state).entrySet()) {
+                int successor = indexOf(entry.getKey());
+                if (successor != candidate.index) {
+                    exitRates[id] += entry.getValue();
+                }
+                addTransition(successor, entry.getValue());
+            }
+            rowStart[id + 1] = transitions;
+        }
+
+        /**
+         * Passes the residual of an expanded state on to its successors, keeping the survival fraction.
+         * The residual of an absorbing state can never leave it, so it is dropped.
+         */
+        private void push(int index) {
+            double pushed = mass[index];
+            mass[index] = 0;
+            residual -= pushed;
+            int id = expansionIds[index];
+            if (exitRates[id] == 0) {
+                return;
+            }
+            double scale = pushed * survival / exitRates[id];
+            for (int k = rowStart[id]; k < rowStart[id + 1]; k++) {
+                if (successors[k] != index) {
+                    addMass(successors[k], scale * rates[k]);
+                }
+            }
+        }
+
+        private void addTransition(int successor, double rate) {
+            if (transitions == successors.length) {
+                successors = Arrays.copyOf(successors, transitions * 2);
+                rates = Arrays.copyOf(rates, transitions * 2);
+            }
+            successors[transitions] = successor;
+            rates[transitions] = rate;
+            transitions++;
+        }
+
+        /**
+         * Writes the transitions of every expanded state, redirecting those into unexpanded states
+         * to the rest state, followed by the absorbing rest state
+         */
+        private void writeTransitions() {
+            int restId = expanded;
+            for (int id = 0; id < expanded; id++) {
+                Map<Integer, Double> successorRates = new HashMap<>();
+                for (int k = rowStart[id]; k < rowStart[id + 1]; k++) {
+                    int successorId = expansionIds[successors[k]];
+                    ParallelStateExplorer.addRate(successorRates, successorId == NOT_EXPANDED ? restId : successorId,
+                            rates[k]);
+                }
+                processor.processTransitions(id, successorRates);
+            }
+            processor.processState(REST_STATE, restId);
+            processor.processTransitions(restId, new HashMap<Integer, Double>());
+        }
+    }
+
+    /**
+     * Queued state with its residual when it was queued
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        /**
+         * Index of the state in the order found
+         */
+        private final int index;
+
+        private final double mass;
+
+        private Candidate(int index, double mass) {
+            this.index = index;
+            this.mass = mass;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            return Double.compare(o.mass, mass);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package uk.ac.imperial.explorer;
+
+/**
+ * Summary of a {@link uk.ac.imperial.explorer.TruncatedExplorer} exploration
+ */
+public final class TruncationResult {
+
+    /**
+     * Number of states expanded, given ids 0 to expandedStates - 1
+     */
+    public final int expandedStates;
+
+    /**
+     * Number of states found but not expanded, which were merged into the rest state
+     */
+    public final int truncatedStates;
+
+    /**
+     * Total residual mass when exploration stopped, an upper bound on the probability of leaving the expanded
+     * states within the jump horizon, or 0 if every state found was expanded
+     */
+    public final double remainingMass;
+
+    /**
+     * @param expandedStates number of states expanded
+     * @param truncatedStates number of states found but not expanded
+     * @param remainingMass bound on the probability of leaving the expanded states within the jump horizon
+     */
+    public TruncationResult(int expandedStates, int truncatedStates, double remainingMass) {
+        this.expandedStates = expandedStates;
+        this.truncatedStates = truncatedStates;
+        this.remainingMass = remainingMass;
+    }
+
+    /**
+     * @return id of the absorbing rest state
+     */
+    public int getRestStateId() {
+        return expandedStates;
+    }
+}
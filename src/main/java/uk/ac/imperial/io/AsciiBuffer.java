@@ -0,0 +1,110 @@
+package uk.ac.imperial.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Growable buffer of ASCII text that formats numbers straight into bytes, without going through
+ * {@link java.lang.String#format} or a {@link java.io.Writer}. Used by the text exporters.
+ */
+final class AsciiBuffer {
+
+    private byte[] bytes;
+
+    private int length = 0;
+
+    /**
+     * Scratch space for the digits of a number, least significant first
+     */
+    private final byte[] digits = new byte[20];
+
+    /**
+     * @param capacity initial capacity in bytes
+     */
+    AsciiBuffer(int capacity) {
+        bytes = new byte[Math.max(capacity, 32)];
+    }
+
+    /**
+     * @return number of bytes in the buffer
+     */
+    int length() {
+        return length;
+    }
+
+    AsciiBuffer append(char c) {
+        ensureCapacity(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * @param text ASCII text
+     * @return this buffer
+     */
+    AsciiBuffer append(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            bytes[length++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * @param value decimal integer to append
+     * @return this buffer
+     */
+    AsciiBuffer append(long value) {
+        ensureCapacity(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+        } else {
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            bytes[length++] = digits[--count];
+        }
+        return this;
+    }
+
+    /**
+     * Appends the shortest decimal that reads back as the same double. Whole numbers, which
+     * most rates are, are appended as integers.
+     *
+     * @param value to append
+     * @return this buffer
+     */
+    AsciiBuffer append(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return append((long) value);
+        }
+        return append(Double.toString(value));
+    }
+
+    /**
+     * Writes the buffer to the channel and empties it
+     *
+     * @param channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        length = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package uk.ac.imperial.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses numbers straight out of a range of ASCII bytes without creating strings, used by the
+ * text importers. Fields are separated by spaces or tabs and lines end with a line feed, optionally
+ * preceded by a carriage return.
+ */
+final class AsciiParser {
+
+    /**
+     * Powers of ten that are exact as doubles
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Most significant digits that fit exactly in a double
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final byte[] data;
+
+    private int position;
+
+    private final int end;
+
+    /**
+     * @param data bytes to parse
+     * @param from position of the first byte
+     * @param to position after the last byte
+     */
+    AsciiParser(byte[] data, int from, int to) {
+        this.data = data;
+        position = from;
+        end = to;
+    }
+
+    /**
+     * Skips blank lines and leading spaces
+     *
+     * @return true if there is another line to parse
+     */
+    boolean nextLine() {
+        while (position < end && isWhitespace(data[position])) {
+            position++;
+        }
+        return position < end;
+    }
+
+    /**
+     * Skips everything up to and including the next line feed
+     */
+    void skipLine() {
+        while (position < end && data[position] != '\n') {
+            position++;
+        }
+        if (position < end) {
+            position++;
+        }
+    }
+
+    /**
+     * Consumes the character, after any spaces
+     *
+     * @param c expected character
+     * @throws IOException if the next character is not c
+     */
+    void expect(char c) throws IOException {
+        skipSpaces();
+        if (position >= end || data[position] != c) {
+            throw error("'" + c + "'");
+        }
+        position++;
+    }
+
+    /**
+     * @param c character
+     * @return true if the next character, after any spaces, is c, in which case it is consumed
+     */
+    boolean consume(char c) {
+        skipSpaces();
+        if (position < end && data[position] == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the next decimal integer
+     * @throws IOException if the next field is not an integer
+     */
+    long parseLong() throws IOException {
+        skipSpaces();
+        boolean negative = position < end && data[position] == '-';
+        if (negative || (position < end && data[position] == '+')) {
+            position++;
+        }
+        int start = position;
+        long value = 0;
+        while (position < end && isDigit(data[position])) {
+            value = value * 10 - (data[position++] - '0');
+        }
+        if (position == start || position - start > 18) {
+            throw error("an integer");
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * @return the next int
+     * @throws IOException if the next field is not an integer in the range of an int
+     */
+    int parseInt() throws IOException {
+        long value = parseLong();
+        if (value != (int) value) {
+            throw error("an int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the next double, computing it exactly from its digits when they fit in a double along with
+     * the power of ten, and falling back to {@link Double#parseDouble(String)} otherwise
+     *
+     * @return the next double
+     * @throws IOException if the next field is not a number
+     */
+    double parseDouble() throws IOException {
+        skipSpaces();
+        int start = position;
+        boolean negative = position < end && data[position] == '-';
+        if (negative || (position < end && data[position] == '+')) {
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean exact = true;
+        boolean fraction = false;
+        while (position < end) {
+            byte b = data[position];
+            if (isDigit(b)) {
+                seenDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    if (digits < MAX_EXACT_DIGITS) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        digits++;
+                    } else {
+                        exact = false;
+                    }
+                }
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+        if (position < end && (data[position] == 'e' || data[position] == 'E')) {
+            position++;
+            exponent += (int) parseLong();
+        }
+        if (position < end && !isSeparator(data[position])) {
+            exact = false;
+            while (position < end && !isSeparator(data[position])) {
+                position++;
+            }
+        }
+        if (exact && seenDigit && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        if (exact && seenDigit && mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        try {
+            return Double.parseDouble(new String(data, start, position - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw error("a number");
+        }
+    }
+
+    /**
+     * @return the next field up to a separator, comma or bracket
+     */
+    String parseName() {
+        skipSpaces();
+        int start = position;
+        while (position < end && !isSeparator(data[position])
+                && data[position] != ',' && data[position] != ')' && data[position] != '(') {
+            position++;
+        }
+        return new String(data, start, position - start, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param text ASCII text
+     * @return true if the next field is the text, in which case it is consumed
+     */
+    boolean consume(String text) {
+        skipSpaces();
+        if (end - position < text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (data[position + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        position += text.length();
+        return true;
+    }
+
+    private void skipSpaces() {
+        while (position < end && (data[position] == ' ' || data[position] == '\t')) {
+            position++;
+        }
+    }
+
+    private IOException error(String expected) {
+        int lineEnd = position;
+        while (lineEnd < end && data[lineEnd] != '\n' && lineEnd - position < 40) {
+            lineEnd++;
+        }
+        String found = new String(data, position, lineEnd - position, StandardCharsets.US_ASCII);
+        return new IOException("Expected " + expected + " but found \"" + found + "\"");
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * @return true if the byte ends a field
+     */
+    private static boolean isSeparator(byte b) {
+        return isWhitespace(b) || b == ',' || b == ')';
+    }
+}
@@ -0,0 +1,339 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports state and transition files written by a {@link uk.ac.imperial.io.StateWriter} to the text
+ * formats read by external solvers: PRISM explicit .tra and .sta files and Matrix Market coordinate files.
+ * <p>
+ * Files are streamed record by record, so memory does not grow with the number of transitions. The
+ * transition file is read twice, once to count the states and transitions for the header and once
+ * to write them. Text is formatted into byte buffers and written through a {@link java.nio.channels.FileChannel}.
+ * With more than one thread, batches of records are formatted in parallel and written in file order.
+ * </p><p>
+ * The state ids must be 0 to n - 1, as written by the explorers, since both formats index states by position.
+ * </p>
+ */
+public final class ChainExporter {
+
+    /**
+     * Number of records formatted by each parallel task
+     */
+    private static final int BATCH_SIZE = 4096;
+
+    /**
+     * Number of bytes buffered before they are written when formatting on a single thread
+     */
+    private static final int FLUSH_SIZE = 1 << 20;
+
+    /**
+     * Reads records and states
+     */
+    private final StateReader reader;
+
+    /**
+     * Number of threads formatting records
+     */
+    private final int threads;
+
+    /**
+     * Formats on the calling thread
+     *
+     * @param reader reads records and states from the files
+     */
+    public ChainExporter(StateReader reader) {
+        this(reader, 1);
+    }
+
+    /**
+     * @param reader reads records and states from the files
+     * @param threads number of threads formatting records
+     */
+    public ChainExporter(StateReader reader, int threads) {
+        this.reader = reader;
+        this.threads = threads;
+    }
+
+    /**
+     * Writes a PRISM .tra file: a header of the number of states and transitions followed by a
+     * line "source target rate" for every transition, with states indexed from 0
+     *
+     * @param transitions file written by a {@link uk.ac.imperial.io.StateWriter}
+     * @param tra file to write
+     * @throws IOException if either file cannot be accessed
+     */
+    public void exportPrismTransitions(File transitions, File tra) throws IOException {
+        long[] counts = countTransitions(transitions);
+        AsciiBuffer header = new AsciiBuffer(64);
+        header.append(counts[0]).append(' ').append(counts[1]).append('\n');
+        writeTransitions(transitions, tra, header, 0);
+    }
+
+    /**
+     * Writes the rate matrix as a Matrix Market real general coordinate file, with states indexed from 1
+     *
+     * @param transitions file written by a {@link uk.ac.imperial.io.StateWriter}
+     * @param mtx file to write
+     * @throws IOException if either file cannot be accessed
+     */
+    public void exportMatrixMarket(File transitions, File mtx) throws IOException {
+        long[] counts = countTransitions(transitions);
+        AsciiBuffer header = new AsciiBuffer(128);
+        header.append("%%MatrixMarket matrix coordinate real general\n");
+        header.append(counts[0]).append(' ').append(counts[0]).append(' ').append(counts[1]).append('\n');
+        writeTransitions(transitions, mtx, header, 1);
+    }
+
+    /**
+     * Writes a PRISM .sta file. Every place and colour that appears in a state is a variable, named
+     * place_colour with any other character than a letter, digit or underscore replaced by an underscore.
+     * The header lists the variables and each state is written as "id:(count,...)", with a count of 0
+     * for colours the state does not contain. The state file is read twice, first to find the variables.
+     *
+     * @param states file written by a {@link uk.ac.imperial.io.StateWriter}
+     * @param sta file to write
+     * @throws IOException if either file cannot be accessed
+     */
+    public void exportPrismStates(File states, File sta) throws IOException {
+        Map<String, TreeSet<String>> variables = new TreeMap<>();
+        try (Input input = new Input(new PrefetchingInputStream(new FileInputStream(states)))) {
+            while (!input.eof()) {
+                ClassifiedState state = reader.readState(input).state;
+                for (String place : state.getPlaces()) {
+                    TreeSet<String> colours = variables.get(place);
+                    if (colours == null) {
+                        colours = new TreeSet<>();
+                        variables.put(place, colours);
+                    }
+                    colours.addAll(state.getTokens(place).keySet());
+                }
+            }
+        }
+
+        final List<String> places = new ArrayList<>();
+        final List<String> colours = new ArrayList<>();
+        AsciiBuffer header = new AsciiBuffer(256);
+        header.append('(');
+        for (Map.Entry<String, TreeSet<String>> entry : variables.entrySet()) {
+            for (String colour : entry.getValue()) {
+                if (!places.isEmpty()) {
+                    header.append(',');
+                }
+                places.add(entry.getKey());
+                colours.add(colour);
+                header.append(variableName(entry.getKey(), colour));
+            }
+        }
+        header.append(")\n");
+
+        try (final Input input = new Input(new PrefetchingInputStream(new FileInputStream(states)))) {
+            write(sta, header, new Source<StateMapping>() {
+                @Override
+                public StateMapping next() {
+                    return input.eof() ? null : reader.readState(input);
+                }
+            }, new Formatter<StateMapping>() {
+                @Override
+                public void format(StateMapping mapping, AsciiBuffer buffer) {
+                    buffer.append(mapping.id).append(":(");
+                    for (int i = 0; i < places.size(); i++) {
+                        if (i > 0) {
+                            buffer.append(',');
+                        }
+                        Integer count = mapping.state.containsTokens(places.get(i))
+                                ? mapping.state.getTokens(places.get(i)).get(colours.get(i)) : null;
+                        buffer.append(count == null ? 0 : count);
+                    }
+                    buffer.append(")\n");
+                }
+            });
+        }
+    }
+
+    /**
+     * @return PRISM identifier for the place and colour
+     */
+    private static String variableName(String place, String colour) {
+        StringBuilder name = new StringBuilder(place.length() + colour.length() + 1);
+        name.append(place).append('_').append(colour);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c < 128 && (Character.isLetterOrDigit(c) || c == '_'))) {
+                name.setCharAt(i, '_');
+            }
+        }
+        if (Character.isDigit(name.charAt(0))) {
+            name.insert(0, '_');
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return number of states, being one more than the largest id, and number of transitions
+     * @throws IllegalArgumentException if the ids are not 0 to n - 1, one record per state
+     */
+    private long[] countTransitions(File transitions) throws IOException {
+        long states = 0;
+        long count = 0;
+        long records = 0;
+        try (Input input = new Input(new PrefetchingInputStream(new FileInputStream(transitions)))) {
+            while (!input.eof()) {
+                Record record = reader.readRecord(input);
+                records++;
+                states = Math.max(states, record.state + 1L);
+                for (Integer successor : record.successors.keySet()) {
+                    states = Math.max(states, successor + 1L);
+                }
+                count += record.successors.size();
+            }
+        }
+        if (records != states) {
+            throw new IllegalArgumentException("State ids must be 0 to n - 1 but " + records
+                    + " states have ids up to " + (states - 1));
+        }
+        return new long[]{states, count};
+    }
+
+    /**
+     * Writes every transition as "source target rate"
+     *
+     * @param base index of the first state
+     */
+    private void writeTransitions(File transitions, File target, AsciiBuffer header, final int base)
+            throws IOException {
+        try (final Input input = new Input(new PrefetchingInputStream(new FileInputStream(transitions)))) {
+            write(target, header, new Source<Record>() {
+                @Override
+                public Record next() throws IOException {
+                    return input.eof() ? null : reader.readRecord(input);
+                }
+            }, new Formatter<Record>() {
+                @Override
+                public void format(Record record, AsciiBuffer buffer) {
+                    for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
+                        buffer.append(record.state + base).append(' ')
+                              .append(entry.getKey() + base).append(' ')
+                              .append(entry.getValue().doubleValue()).append('\n');
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the header followed by every item of the source formatted in order
+     */
+    private <T> void write(File target, AsciiBuffer header, Source<T> source, Formatter<T> formatter)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            header.writeTo(channel);
+            if (threads <= 1) {
+                writeSequentially(channel, source, formatter);
+            } else {
+                writeInParallel(channel, source, formatter);
+            }
+        }
+    }
+
+    private <T> void writeSequentially(WritableByteChannel channel, Source<T> source, Formatter<T> formatter)
+            throws IOException {
+        AsciiBuffer buffer = new AsciiBuffer(FLUSH_SIZE + FLUSH_SIZE / 4);
+        T item;
+        while ((item = source.next()) != null) {
+            formatter.format(item, buffer);
+            if (buffer.length() >= FLUSH_SIZE) {
+                buffer.writeTo(channel);
+            }
+        }
+        buffer.writeTo(channel);
+    }
+
+    /**
+     * Reads batches of items on this thread, formats them on the pool and writes them in order.
+     * At most two batches per thread are in flight, bounding memory.
+     */
+    private <T> void writeInParallel(WritableByteChannel channel, Source<T> source, Formatter<T> formatter)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<AsciiBuffer>> pending = new ArrayDeque<>();
+        try {
+            List<T> batch = new ArrayList<>(BATCH_SIZE);
+            T item;
+            while ((item = source.next()) != null) {
+                batch.add(item);
+                if (batch.size() == BATCH_SIZE) {
+                    pending.add(executor.submit(formatTask(batch, formatter)));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    if (pending.size() >= 2 * threads) {
+                        pending.poll().get().writeTo(channel);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(executor.submit(formatTask(batch, formatter)));
+            }
+            while (!pending.isEmpty()) {
+                pending.poll().get().writeTo(channel);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst exporting", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Formatting failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> Callable<AsciiBuffer> formatTask(final List<T> batch, final Formatter<T> formatter) {
+        return new Callable<AsciiBuffer>() {
+            @Override
+            public AsciiBuffer call() {
+                AsciiBuffer buffer = new AsciiBuffer(batch.size() * 32);
+                for (T item : batch) {
+                    formatter.format(item, buffer);
+                }
+                return buffer;
+            }
+        };
+    }
+
+    /**
+     * Items to export, read on the calling thread
+     */
+    private interface Source<T> {
+        /**
+         * @return next item, or null at the end
+         */
+        T next() throws IOException;
+    }
+
+    /**
+     * Formats a single item, possibly on a pool thread
+     */
+    private interface Formatter<T> {
+        void format(T item, AsciiBuffer buffer);
+    }
+}
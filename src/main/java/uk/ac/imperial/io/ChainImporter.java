@@ -0,0 +1,395 @@
+package uk.ac.imperial.io;
+
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.utils.StateHasher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports chains generated by other tools from PRISM explicit .tra and .sta files, passing every
+ * record and state to a {@link uk.ac.imperial.io.StateProcessor}, usually a
+ * {@link uk.ac.imperial.io.StateIOProcessor} writing the Kryo format read by the rest of the library.
+ * <p>
+ * Files are read through a {@link java.nio.channels.FileChannel} a window at a time. Each window is cut
+ * into ranges at line breaks and the ranges are parsed straight from the bytes, in parallel when more
+ * than one thread is used, and then passed to the processor in file order on the calling thread.
+ * </p>
+ */
+public final class ChainImporter {
+
+    /**
+     * Number of bytes parsed by each thread per window
+     */
+    private static final int RANGE_SIZE = 4 << 20;
+
+    /**
+     * Colour given to .sta variables whose names do not contain one
+     */
+    public static final String DEFAULT_COLOUR = "Default";
+
+    /**
+     * Receives the imported records and states
+     */
+    private final StateProcessor processor;
+
+    /**
+     * Number of threads parsing each window
+     */
+    private final int threads;
+
+    /**
+     * Parses on the calling thread
+     *
+     * @param processor receives the imported records and states
+     */
+    public ChainImporter(StateProcessor processor) {
+        this(processor, 1);
+    }
+
+    /**
+     * @param processor receives the imported records and states
+     * @param threads number of threads parsing the files
+     */
+    public ChainImporter(StateProcessor processor, int threads) {
+        this.processor = processor;
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Imports a .tra file, a header of the number of states and transitions followed by a line
+     * "source target rate" for every transition. Anything after the rate, such as an action label, is
+     * ignored. Consecutive transitions from the same source form a single record, so the transitions
+     * of each state should be grouped together, as PRISM writes them.
+     *
+     * @param tra file to import
+     * @return number of transitions imported
+     * @throws IOException if the file cannot be read, is malformed or does not contain as many
+     *                     transitions as its header states
+     */
+    public long importTransitions(File tra) throws IOException {
+        final TransitionEmitter emitter = new TransitionEmitter();
+        final long[] expected = new long[1];
+        read(tra, new Format<Transitions>() {
+            @Override
+            public void header(AsciiParser parser) throws IOException {
+                parser.parseLong();
+                expected[0] = parser.parseLong();
+            }
+
+            @Override
+            public Transitions parse(AsciiParser parser) throws IOException {
+                Transitions transitions = new Transitions();
+                while (parser.nextLine()) {
+                    transitions.add(parser.parseInt(), parser.parseInt(), parser.parseDouble());
+                    parser.skipLine();
+                }
+                return transitions;
+            }
+
+            @Override
+            public void emit(Transitions parsed) {
+                emitter.emit(parsed);
+            }
+        });
+        emitter.finish();
+        if (emitter.count != expected[0]) {
+            throw new IOException("Expected " + expected[0] + " transitions in " + tra + " but read " + emitter.count);
+        }
+        return emitter.count;
+    }
+
+    /**
+     * Imports a .sta file as tangible states. The header lists the variables, each of which is taken to
+     * be the token count of a colour in a place. A variable named place_colour, as written by
+     * {@link uk.ac.imperial.io.ChainExporter}, is split at its last underscore and any other is a place
+     * with the {@link #DEFAULT_COLOUR}. Each state line is "id:(value,...)" where a value is an
+     * integer or a boolean, read as 1 or 0. Every variable is given a count, so colours that a state
+     * exported with no count for come back with a count of 0.
+     *
+     * @param sta file to import
+     * @return number of states imported
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public long importStates(File sta) throws IOException {
+        final List<String> places = new ArrayList<>();
+        final List<String> colours = new ArrayList<>();
+        final long[] count = new long[1];
+        read(sta, new Format<List<StateMapping>>() {
+            @Override
+            public void header(AsciiParser parser) throws IOException {
+                parser.expect('(');
+                if (parser.consume(')')) {
+                    return;
+                }
+                do {
+                    String variable = parser.parseName();
+                    int split = variable.lastIndexOf('_');
+                    if (split > 0 && split < variable.length() - 1) {
+                        places.add(variable.substring(0, split));
+                        colours.add(variable.substring(split + 1));
+                    } else {
+                        places.add(variable);
+                        colours.add(DEFAULT_COLOUR);
+                    }
+                } while (parser.consume(','));
+                parser.expect(')');
+            }
+
+            @Override
+            public List<StateMapping> parse(AsciiParser parser) throws IOException {
+                StateHasher hasher = new StateHasher();
+                List<StateMapping> states = new ArrayList<>();
+                while (parser.nextLine()) {
+                    int id = parser.parseInt();
+                    parser.expect(':');
+                    parser.expect('(');
+                    Map<String, Map<String, Integer>> tokenCounts = new HashMap<>();
+                    for (int i = 0; i < places.size(); i++) {
+                        if (i > 0) {
+                            parser.expect(',');
+                        }
+                        Map<String, Integer> counts = tokenCounts.get(places.get(i));
+                        if (counts == null) {
+                            counts = new HashMap<>();
+                            tokenCounts.put(places.get(i), counts);
+                        }
+                        counts.put(colours.get(i), parseValue(parser));
+                    }
+                    parser.expect(')');
+                    parser.skipLine();
+                    states.add(new StateMapping(HashedClassifiedState.tangibleState(hasher.build(tokenCounts)), id));
+                }
+                return states;
+            }
+
+            @Override
+            public void emit(List<StateMapping> parsed) {
+                for (StateMapping mapping : parsed) {
+                    processor.processState(mapping.state, mapping.id);
+                }
+                count[0] += parsed.size();
+            }
+        });
+        return count[0];
+    }
+
+    private static int parseValue(AsciiParser parser) throws IOException {
+        if (parser.consume("true")) {
+            return 1;
+        }
+        if (parser.consume("false")) {
+            return 0;
+        }
+        return parser.parseInt();
+    }
+
+    /**
+     * Reads the file a window at a time, parsing the header line and then each window's ranges
+     */
+    private <T> void read(File file, Format<T> format) throws IOException {
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            byte[] window = new byte[threads * RANGE_SIZE];
+            int length = 0;
+            boolean header = true;
+            boolean eof = false;
+            while (!eof) {
+                int read = 0;
+                while (length < window.length
+                        && (read = channel.read(ByteBuffer.wrap(window, length, window.length - length))) >= 0) {
+                    length += read;
+                }
+                eof = read < 0;
+                int lineEnd = eof ? length : lastLineEnd(window, length);
+                if (lineEnd < 0) {
+                    window = Arrays.copyOf(window, window.length * 2);
+                    continue;
+                }
+                int start = 0;
+                if (header) {
+                    int headerEnd = firstLineEnd(window, lineEnd);
+                    format.header(new AsciiParser(window, 0, headerEnd));
+                    header = false;
+                    start = headerEnd;
+                }
+                for (T parsed : parseRanges(window, start, lineEnd, format, executor)) {
+                    format.emit(parsed);
+                }
+                length -= lineEnd;
+                System.arraycopy(window, lineEnd, window, 0, length);
+            }
+            if (header) {
+                throw new IOException(file + " is empty");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst importing " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Importing " + file + " failed", e.getCause());
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Cuts the bytes into one range per thread at line breaks and parses them
+     *
+     * @return result of each range in order
+     */
+    private <T> List<T> parseRanges(final byte[] window, int from, int to, final Format<T> format,
+                                    ExecutorService executor)
+            throws IOException, InterruptedException, ExecutionException {
+        List<T> results = new ArrayList<>(threads);
+        if (executor == null) {
+            results.add(format.parse(new AsciiParser(window, from, to)));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(threads);
+        int start = from;
+        for (int range = 1; range <= threads && start < to; range++) {
+            int end = range == threads ? to : Math.max(start, firstLineEnd(window, from + (int) ((long) (to - from) * range / threads), to));
+            final int rangeStart = start;
+            final int rangeEnd = end;
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws IOException {
+                    return format.parse(new AsciiParser(window, rangeStart, rangeEnd));
+                }
+            }));
+            start = end;
+        }
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    /**
+     * @return position after the first line feed, or length if there is none
+     */
+    private static int firstLineEnd(byte[] window, int length) {
+        return firstLineEnd(window, 0, length);
+    }
+
+    /**
+     * @return position after the first line feed at or after from, or to if there is none
+     */
+    private static int firstLineEnd(byte[] window, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (window[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return position after the last line feed, or -1 if there is none
+     */
+    private static int lastLineEnd(byte[] window, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (window[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parsing of a particular text format
+     *
+     * @param <T> result of parsing a range
+     */
+    private interface Format<T> {
+        /**
+         * Parses the first line of the file, called once on the calling thread
+         */
+        void header(AsciiParser parser) throws IOException;
+
+        /**
+         * Parses a range of whole lines, possibly on a pool thread
+         */
+        T parse(AsciiParser parser) throws IOException;
+
+        /**
+         * Passes the range's result on, called in file order on the calling thread
+         */
+        void emit(T parsed);
+    }
+
+    /**
+     * Transitions parsed from a range, in primitive arrays
+     */
+    private static final class Transitions {
+        private int[] sources = new int[1024];
+
+        private int[] targets = new int[1024];
+
+        private double[] rates = new double[1024];
+
+        private int size = 0;
+
+        private void add(int source, int target, double rate) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                rates = Arrays.copyOf(rates, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            rates[size] = rate;
+            size++;
+        }
+    }
+
+    /**
+     * Groups consecutive transitions from the same source into records, across ranges
+     */
+    private final class TransitionEmitter {
+        private int source = -1;
+
+        private Map<Integer, Double> successors = null;
+
+        private long count = 0;
+
+        private void emit(Transitions transitions) {
+            for (int i = 0; i < transitions.size; i++) {
+                if (successors == null || transitions.sources[i] != source) {
+                    finish();
+                    source = transitions.sources[i];
+                    successors = new HashMap<>();
+                }
+                Double previous = successors.get(transitions.targets[i]);
+                successors.put(transitions.targets[i],
+                        previous == null ? transitions.rates[i] : previous + transitions.rates[i]);
+            }
+            count += transitions.size;
+        }
+
+        private void finish() {
+            if (successors != null) {
+                processor.processTransitions(source, successors);
+                successors = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Compresses a column of non negative integers, choosing whichever of run length
+ * encoding and bit packing is smaller for the column.
+ */
+final class ColumnCodec {
+
+    private static final byte RUN_LENGTH = 0;
+
+    private static final byte BIT_PACKED = 1;
+
+    private ColumnCodec() {
+    }
+
+    /**
+     * @param values column to write, every value must not be negative
+     * @param count number of values to write
+     * @param output to write to
+     */
+    static void write(int[] values, int count, Output output) {
+        int runs = 0;
+        int runLengthBytes = 0;
+        int max = 0;
+        int i = 0;
+        while (i < count) {
+            int value = values[i];
+            if (value < 0) {
+                throw new IllegalArgumentException("Cannot encode negative value " + value);
+            }
+            max = Math.max(max, value);
+            int end = i + 1;
+            while (end < count && values[end] == value) {
+                end++;
+            }
+            runs++;
+            runLengthBytes += varIntLength(value) + varIntLength(end - i);
+            i = end;
+        }
+        int width = 32 - Integer.numberOfLeadingZeros(max);
+        long packedBytes = 1 + 8L * words(count, width);
+        if (varIntLength(runs) + runLengthBytes <= packedBytes) {
+            writeRunLength(values, count, runs, output);
+        } else {
+            writeBitPacked(values, count, width, output);
+        }
+    }
+
+    private static void writeRunLength(int[] values, int count, int runs, Output output) {
+        output.writeByte(RUN_LENGTH);
+        output.writeVarInt(runs, true);
+        int i = 0;
+        while (i < count) {
+            int end = i + 1;
+            while (end < count && values[end] == values[i]) {
+                end++;
+            }
+            output.writeVarInt(values[i], true);
+            output.writeVarInt(end - i, true);
+            i = end;
+        }
+    }
+
+    private static void writeBitPacked(int[] values, int count, int width, Output output) {
+        output.writeByte(BIT_PACKED);
+        output.writeByte(width);
+        long[] words = new long[words(count, width)];
+        for (int i = 0; i < count; i++) {
+            long bit = (long) i * width;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] |= (long) values[i] << shift;
+            if (shift + width > 64) {
+                words[word + 1] |= (long) values[i] >>> (64 - shift);
+            }
+        }
+        for (long word : words) {
+            output.writeLong(word);
+        }
+    }
+
+    /**
+     * @param input to read from
+     * @param count number of values in the column
+     * @return column of values
+     */
+    static int[] read(Input input, int count) {
+        int[] values = new int[count];
+        byte encoding = input.readByte();
+        if (encoding == RUN_LENGTH) {
+            int runs = input.readVarInt(true);
+            int position = 0;
+            for (int run = 0; run < runs; run++) {
+                int value = input.readVarInt(true);
+                int length = input.readVarInt(true);
+                for (int i = 0; i < length; i++) {
+                    values[position++] = value;
+                }
+            }
+        } else if (encoding == BIT_PACKED) {
+            int width = input.readByte();
+            long[] words = new long[words(count, width)];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = input.readLong();
+            }
+            long mask = (1L << width) - 1;
+            for (int i = 0; i < count; i++) {
+                long bit = (long) i * width;
+                int word = (int) (bit >>> 6);
+                int shift = (int) (bit & 63);
+                long value = words[word] >>> shift;
+                if (shift + width > 64) {
+                    value |= words[word + 1] << (64 - shift);
+                }
+                values[i] = (int) (value & mask);
+            }
+        } else {
+            throw new IllegalStateException("Unknown column encoding " + encoding);
+        }
+        return values;
+    }
+
+    /**
+     * @return number of longs needed to pack count values of the bit width
+     */
+    private static int words(int count, int width) {
+        return (int) (((long) count * width + 63) >>> 6);
+    }
+
+    /**
+     * @return number of bytes Kryo uses to write the value as an optimized positive varint
+     */
+    static int varIntLength(int value) {
+        if ((value >>> 7) == 0) {
+            return 1;
+        }
+        if ((value >>> 14) == 0) {
+            return 2;
+        }
+        if ((value >>> 21) == 0) {
+            return 3;
+        }
+        if ((value >>> 28) == 0) {
+            return 4;
+        }
+        return 5;
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.imperial.io;
+
+import com.google.common.hash.HashCode;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read only view of a single state in a {@link uk.ac.imperial.io.StateChunk}. Token maps are
+ * built from the columns when asked for and hashes are only calculated when first needed.
+ */
+final class ColumnarState implements ClassifiedState {
+
+    private final StateChunk chunk;
+
+    private final int row;
+
+    private Integer primaryHash;
+
+    private HashCode secondaryHash;
+
+    private Integer hashCode;
+
+    ColumnarState(StateChunk chunk, int row) {
+        this.chunk = chunk;
+        this.row = row;
+    }
+
+    @Override
+    public boolean isTangible() {
+        return chunk.isTangible(row);
+    }
+
+    @Override
+    public Map<String, Integer> getTokens(String id) {
+        return chunk.getTokens(row, id);
+    }
+
+    @Override
+    public boolean containsTokens(String id) {
+        return chunk.getTokens(row, id) != null;
+    }
+
+    @Override
+    public Collection<String> getPlaces() {
+        return chunk.getPlaces(row);
+    }
+
+    @Override
+    public int primaryHash() {
+        if (primaryHash == null) {
+            primaryHash = StateUtils.hashCodeForState(this, StateUtils.getPrimaryHash()).asInt();
+        }
+        return primaryHash;
+    }
+
+    @Override
+    public HashCode secondaryHash() {
+        if (secondaryHash == null) {
+            secondaryHash = StateUtils.hashCodeForState(this, StateUtils.getSecondaryHash());
+        }
+        return secondaryHash;
+    }
+
+    @Override
+    public Map<String, Map<String, Integer>> asMap() {
+        Map<String, Map<String, Integer>> map = new HashMap<>();
+        for (String place : getPlaces()) {
+            map.put(place, getTokens(place));
+        }
+        return map;
+    }
+
+    /**
+     * Equal to any classified state with the same tangibility and hashes, as
+     * {@link uk.ac.imperial.state.HashedClassifiedState}s are
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClassifiedState)) {
+            return false;
+        }
+        ClassifiedState that = (ClassifiedState) o;
+        return isTangible() == that.isTangible() && primaryHash() == that.primaryHash()
+                && secondaryHash().equals(that.secondaryHash());
+    }
+
+    /**
+     * Same as the hash code of an equal {@link uk.ac.imperial.state.HashedClassifiedState}
+     */
+    @Override
+    public int hashCode() {
+        if (hashCode == null) {
+            int result = 31 * primaryHash() + secondaryHash().hashCode();
+            hashCode = 31 * result + (isTangible() ? 1 : 0);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
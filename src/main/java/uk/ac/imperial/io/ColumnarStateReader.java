@@ -0,0 +1,111 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads states written by a {@link uk.ac.imperial.io.ColumnarStateWriter} a chunk at a time.
+ * The reader can be restricted to a projection of places, in which case the columns of every
+ * other place are skipped without being decoded.
+ */
+public final class ColumnarStateReader {
+
+    private final Input input;
+
+    /**
+     * Places to decode, or null for every place
+     */
+    private final Set<String> projection;
+
+    /**
+     * Place of each column named so far
+     */
+    private final List<String> columnPlaces = new ArrayList<>();
+
+    /**
+     * Colour of each column named so far, null for presence columns
+     */
+    private final List<String> columnColours = new ArrayList<>();
+
+    /**
+     * Id of the last state read, state ids are written as differences from it
+     */
+    private int previousId = 0;
+
+    /**
+     * Reads every place
+     *
+     * @param input containing chunks
+     */
+    public ColumnarStateReader(Input input) {
+        this.input = input;
+        projection = null;
+    }
+
+    /**
+     * @param input containing chunks
+     * @param places places to read, the columns of any other place are skipped
+     */
+    public ColumnarStateReader(Input input, Collection<String> places) {
+        this.input = input;
+        projection = new HashSet<>(places);
+    }
+
+    /**
+     * @return next chunk of states, or null if there are no more
+     */
+    public StateChunk readChunk() {
+        if (input.eof()) {
+            return null;
+        }
+        int rows = input.readVarInt(true);
+        int newColumns = input.readVarInt(true);
+        for (int i = 0; i < newColumns; i++) {
+            columnPlaces.add(input.readString());
+            columnColours.add(input.readString());
+        }
+
+        int[] ids = readColumn(rows);
+        for (int row = 0; row < rows; row++) {
+            int difference = (ids[row] >>> 1) ^ -(ids[row] & 1);
+            previousId += difference;
+            ids[row] = previousId;
+        }
+        int[] tangible = readColumn(rows);
+
+        Map<String, int[]> presence = new LinkedHashMap<>();
+        Map<String, Map<String, int[]>> counts = new LinkedHashMap<>();
+        for (int column = 0; column < columnPlaces.size(); column++) {
+            String place = columnPlaces.get(column);
+            if (projection != null && !projection.contains(place)) {
+                input.skip(input.readVarInt(true));
+                continue;
+            }
+            int[] values = readColumn(rows);
+            String colour = columnColours.get(column);
+            if (colour == null) {
+                presence.put(place, values);
+            } else {
+                Map<String, int[]> colours = counts.get(place);
+                if (colours == null) {
+                    colours = new LinkedHashMap<>();
+                    counts.put(place, colours);
+                }
+                colours.put(colour, values);
+            }
+        }
+        return new StateChunk(rows, ids, tangible, presence, counts);
+    }
+
+    private int[] readColumn(int rows) {
+        input.readVarInt(true);
+        return ColumnCodec.read(input, rows);
+    }
+}
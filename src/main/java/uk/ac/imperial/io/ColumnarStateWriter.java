@@ -0,0 +1,204 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes states in a columnar format rather than as one map per state.
+ * <p>
+ * States are buffered into chunks. Each place has a presence column and each place and colour pair
+ * a count column, holding the count plus one or zero if the colour is absent. A column is named once,
+ * in the header of the first chunk that contains it, and then written in every later chunk with
+ * {@link uk.ac.imperial.io.ColumnCodec}. Every column is prefixed by its length in bytes so that readers
+ * can skip the places they do not need. The file is a sequence of chunks in the order
+ *   - Number of states
+ *   - Number of new columns
+ *   - {
+ *      - Place
+ *      - Colour, null for the presence column of the place
+ *     }
+ *   - Length, then state id differences
+ *   - Length, then tangibility
+ *   - { Length, then column } for every column named so far
+ * </p><p>
+ * Pending states are only written by {@link #flush()}, which must be called once all states have been written.
+ * </p>
+ */
+public final class ColumnarStateWriter {
+
+    /**
+     * Default number of states in each chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final Output output;
+
+    private final int chunkSize;
+
+    /**
+     * Presence column of each place
+     */
+    private final Map<String, Integer> placeColumns = new HashMap<>();
+
+    /**
+     * Count column of each place and colour, keyed by place then colour
+     */
+    private final Map<String, Map<String, Integer>> colourColumns = new HashMap<>();
+
+    /**
+     * Place of each column
+     */
+    private final List<String> columnPlaces = new ArrayList<>();
+
+    /**
+     * Colour of each column, null for presence columns
+     */
+    private final List<String> columnColours = new ArrayList<>();
+
+    /**
+     * Values of each column for the pending states
+     */
+    private final List<int[]> columnValues = new ArrayList<>();
+
+    /**
+     * Number of columns already named in a written chunk
+     */
+    private int namedColumns = 0;
+
+    private final int[] ids;
+
+    private final int[] tangible;
+
+    /**
+     * Number of pending states
+     */
+    private int rows = 0;
+
+    /**
+     * Id of the last state written, state ids are written as differences from it
+     */
+    private int previousId = 0;
+
+    /**
+     * Reused to measure the length of each encoded column
+     */
+    private final Output scratch = new Output(1024, -1);
+
+    /**
+     * @param output to write chunks to
+     */
+    public ColumnarStateWriter(Output output) {
+        this(output, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param output to write chunks to
+     * @param chunkSize number of states in each chunk
+     */
+    public ColumnarStateWriter(Output output, int chunkSize) {
+        this.output = output;
+        this.chunkSize = chunkSize;
+        ids = new int[chunkSize];
+        tangible = new int[chunkSize];
+    }
+
+    /**
+     * @param state to write
+     * @param stateId id of the state
+     */
+    public void write(ClassifiedState state, int stateId) {
+        ids[rows] = stateId;
+        tangible[rows] = state.isTangible() ? 1 : 0;
+        for (Map.Entry<String, Map<String, Integer>> place : state.asMap().entrySet()) {
+            columnValues.get(placeColumn(place.getKey()))[rows] = 1;
+            for (Map.Entry<String, Integer> colour : place.getValue().entrySet()) {
+                int count = colour.getValue();
+                if (count < 0) {
+                    throw new IllegalArgumentException("Negative token count in place " + place.getKey());
+                }
+                columnValues.get(colourColumn(place.getKey(), colour.getKey()))[rows] = count + 1;
+            }
+        }
+        rows++;
+        if (rows == chunkSize) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * Writes any pending states and flushes the output
+     */
+    public void flush() {
+        if (rows > 0) {
+            writeChunk();
+        }
+        output.flush();
+    }
+
+    private int placeColumn(String place) {
+        Integer column = placeColumns.get(place);
+        if (column == null) {
+            column = addColumn(place, null);
+            placeColumns.put(place, column);
+        }
+        return column;
+    }
+
+    private int colourColumn(String place, String colour) {
+        Map<String, Integer> columns = colourColumns.get(place);
+        if (columns == null) {
+            columns = new HashMap<>();
+            colourColumns.put(place, columns);
+        }
+        Integer column = columns.get(colour);
+        if (column == null) {
+            column = addColumn(place, colour);
+            columns.put(colour, column);
+        }
+        return column;
+    }
+
+    private int addColumn(String place, String colour) {
+        columnPlaces.add(place);
+        columnColours.add(colour);
+        columnValues.add(new int[chunkSize]);
+        return columnValues.size() - 1;
+    }
+
+    private void writeChunk() {
+        output.writeVarInt(rows, true);
+        output.writeVarInt(columnValues.size() - namedColumns, true);
+        for (int column = namedColumns; column < columnValues.size(); column++) {
+            output.writeString(columnPlaces.get(column));
+            output.writeString(columnColours.get(column));
+        }
+        namedColumns = columnValues.size();
+
+        int[] differences = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            int difference = ids[row] - previousId;
+            differences[row] = (difference << 1) ^ (difference >> 31);
+            previousId = ids[row];
+        }
+        writeColumn(differences);
+        writeColumn(tangible);
+        for (int[] values : columnValues) {
+            writeColumn(values);
+            Arrays.fill(values, 0, rows, 0);
+        }
+        rows = 0;
+    }
+
+    private void writeColumn(int[] values) {
+        scratch.clear();
+        ColumnCodec.write(values, rows, scratch);
+        output.writeVarInt(scratch.position(), true);
+        output.writeBytes(scratch.getBuffer(), 0, scratch.position());
+    }
+}
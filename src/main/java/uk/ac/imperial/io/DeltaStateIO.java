@@ -0,0 +1,407 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.state.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State reader and writer that stores each state as the changes from the state written before it,
+ * writing only the places whose token counts differ.
+ * <p>
+ * Every keyframeInterval states a keyframe holding the full state is written instead. Place and colour
+ * names are encoded with a dictionary as in {@link uk.ac.imperial.io.DictionaryStateIO}, but the
+ * dictionary is restarted at every keyframe, so a new instance can start reading at any keyframe.
+ * The positions of the keyframes written are recorded for this, and can be written as a
+ * {@link uk.ac.imperial.io.KeyframeIndex} to a separate index stream once the states are written.
+ * A reader given the index seeks to the keyframe at or before a state and reads on from there.
+ * Transitions are written in the same format as {@link uk.ac.imperial.io.KryoStateIO}.
+ * </p><p>
+ * An instance must only be used for a single state stream, which must be read in order from a keyframe.
+ * </p>
+ */
+public final class DeltaStateIO implements StateWriter, StateReader {
+
+    /**
+     * Default number of states between keyframes
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1024;
+
+    private static final byte KEYFRAME = 0;
+
+    private static final byte DELTA = 1;
+
+    /**
+     * Value of a change that removes a place
+     */
+    private static final int REMOVED = 0;
+
+    private final int keyframeInterval;
+
+    /**
+     * Reads and writes transitions
+     */
+    private final KryoStateIO transitionIO = new KryoStateIO();
+
+    /**
+     * Code of every name written since the last keyframe
+     */
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Name of every code read since the last keyframe
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Names used by the state being written that are not yet in the dictionary
+     */
+    private final List<String> newNames = new ArrayList<>();
+
+    /**
+     * Position in its output of every keyframe written
+     */
+    private final List<Long> keyframePositions = new ArrayList<>();
+
+    /**
+     * Number of states written since the last keyframe
+     */
+    private int sinceKeyframe = 0;
+
+    /**
+     * Last state written or read, null before the first keyframe
+     */
+    private Map<String, Map<String, Integer>> previous;
+
+    private int previousId;
+
+    public DeltaStateIO() {
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param keyframeInterval number of states between keyframes
+     */
+    public DeltaStateIO(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    @Override
+    public void writeTransitions(int state, Map<Integer, Double> successors, Output output) {
+        transitionIO.writeTransitions(state, successors, output);
+    }
+
+    @Override
+    public Record readRecord(Input input) throws IOException {
+        return transitionIO.readRecord(input);
+    }
+
+    /**
+     * @return position in its output of every keyframe written, in order
+     */
+    public List<Long> getKeyframePositions() {
+        return Collections.unmodifiableList(keyframePositions);
+    }
+
+    /**
+     * Writes the index of the keyframes written so far, normally to a file alongside the states, in the order
+     *   - Keyframe interval
+     *   - Number of states written
+     *   - Number of keyframes, { Difference from the previous keyframe position }
+     *
+     * @param output to write the index to, not the output the states were written to
+     */
+    public void writeKeyframeIndex(Output output) {
+        int keyframes = keyframePositions.size();
+        long stateCount = keyframes == 0 ? 0 : (long) (keyframes - 1) * keyframeInterval + sinceKeyframe;
+        output.writeVarInt(keyframeInterval, true);
+        output.writeVarLong(stateCount, true);
+        output.writeVarInt(keyframes, true);
+        long previousPosition = 0;
+        for (long position : keyframePositions) {
+            output.writeVarLong(position - previousPosition, true);
+            previousPosition = position;
+        }
+    }
+
+    /**
+     * @param input to read an index written by writeKeyframeIndex from
+     * @return keyframe index
+     */
+    public static KeyframeIndex readKeyframeIndex(Input input) {
+        int keyframeInterval = input.readVarInt(true);
+        long stateCount = input.readVarLong(true);
+        long[] positions = new long[input.readVarInt(true)];
+        long position = 0;
+        for (int i = 0; i < positions.length; i++) {
+            position += input.readVarLong(true);
+            positions[i] = position;
+        }
+        return new KeyframeIndex(keyframeInterval, stateCount, positions);
+    }
+
+    /**
+     * Skips to the keyframe at or before the state and reads up to it, so that the next state read is
+     * the state at the index. Any state read before is forgotten.
+     *
+     * @param input state stream the index was written for, at or before the keyframe
+     * @param index keyframe index of the stream
+     * @param stateIndex index of the next state to read, in the order written
+     */
+    public void seek(Input input, KeyframeIndex index, long stateIndex) {
+        int keyframe = index.keyframeBefore(stateIndex);
+        long position = index.positions[keyframe];
+        if (position < input.total()) {
+            throw new IllegalArgumentException("Cannot seek back to position " + position + " from " + input.total());
+        }
+        input.skip(position - input.total());
+        previous = null;
+        for (long i = (long) keyframe * index.keyframeInterval; i < stateIndex; i++) {
+            readTokenCounts(input);
+        }
+    }
+
+    /**
+     * Writes a keyframe in the order
+     *   - Keyframe marker
+     *   - Number of new names, { New name }
+     *   - id
+     *   - Tangible
+     *   - Number of places, { Place code, Number of colours, { Colour code, Count } }
+     * or the changes from the previous state in the order
+     *   - Delta marker
+     *   - Number of new names, { New name }
+     *   - Difference from the previous id
+     *   - Tangible
+     *   - Number of changed places, { Place code, 0 if removed or else number of colours + 1, { Colour code, Count } }
+     * where every colour of a changed place is written.
+     *
+     * @param state to write
+     * @param stateId id of the state
+     * @param output to write to
+     */
+    @Override
+    public void writeState(ClassifiedState state, int stateId, Output output) {
+        Map<String, Map<String, Integer>> tokenCounts = state.asMap();
+        if (previous == null || sinceKeyframe == keyframeInterval) {
+            writeKeyframe(tokenCounts, stateId, state.isTangible(), output);
+        } else {
+            writeDelta(tokenCounts, stateId, state.isTangible(), output);
+        }
+        previous = copy(tokenCounts);
+        previousId = stateId;
+    }
+
+    private void writeKeyframe(Map<String, Map<String, Integer>> tokenCounts, int stateId, boolean tangible,
+                               Output output) {
+        keyframePositions.add(output.total());
+        sinceKeyframe = 1;
+        codes.clear();
+        newNames.clear();
+        for (Map.Entry<String, Map<String, Integer>> place : tokenCounts.entrySet()) {
+            define(place.getKey());
+            for (String colour : place.getValue().keySet()) {
+                define(colour);
+            }
+        }
+        output.writeByte(KEYFRAME);
+        writeNewNames(output);
+        output.writeVarInt(stateId, true);
+        output.writeBoolean(tangible);
+        output.writeVarInt(tokenCounts.size(), true);
+        for (Map.Entry<String, Map<String, Integer>> place : tokenCounts.entrySet()) {
+            output.writeVarInt(codes.get(place.getKey()), true);
+            output.writeVarInt(place.getValue().size(), true);
+            writeColours(place.getValue(), output);
+        }
+    }
+
+    private void writeDelta(Map<String, Map<String, Integer>> tokenCounts, int stateId, boolean tangible,
+                            Output output) {
+        sinceKeyframe++;
+        newNames.clear();
+        List<String> removed = new ArrayList<>();
+        for (String place : previous.keySet()) {
+            if (!tokenCounts.containsKey(place)) {
+                removed.add(place);
+                define(place);
+            }
+        }
+        List<Map.Entry<String, Map<String, Integer>>> changed = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Integer>> place : tokenCounts.entrySet()) {
+            if (!sameColours(place.getValue(), previous.get(place.getKey()))) {
+                changed.add(place);
+                define(place.getKey());
+                for (String colour : place.getValue().keySet()) {
+                    define(colour);
+                }
+            }
+        }
+
+        output.writeByte(DELTA);
+        writeNewNames(output);
+        output.writeVarInt(stateId - previousId, false);
+        output.writeBoolean(tangible);
+        output.writeVarInt(removed.size() + changed.size(), true);
+        for (String place : removed) {
+            output.writeVarInt(codes.get(place), true);
+            output.writeVarInt(REMOVED, true);
+        }
+        for (Map.Entry<String, Map<String, Integer>> place : changed) {
+            output.writeVarInt(codes.get(place.getKey()), true);
+            output.writeVarInt(place.getValue().size() + 1, true);
+            writeColours(place.getValue(), output);
+        }
+    }
+
+    /**
+     * Writes every colour of a place in iteration order, so that the reader builds maps that
+     * iterate in the same order, which the state hashes depend on
+     */
+    private void writeColours(Map<String, Integer> colours, Output output) {
+        for (Map.Entry<String, Integer> colour : colours.entrySet()) {
+            output.writeVarInt(codes.get(colour.getKey()), true);
+            output.writeVarInt(colour.getValue(), false);
+        }
+    }
+
+    /**
+     * Assigns the next code to the name if it is not in the dictionary
+     *
+     * @param name place or colour name
+     */
+    private void define(String name) {
+        if (!codes.containsKey(name)) {
+            codes.put(name, codes.size());
+            newNames.add(name);
+        }
+    }
+
+    private void writeNewNames(Output output) {
+        output.writeVarInt(newNames.size(), true);
+        for (String name : newNames) {
+            output.writeString(name);
+        }
+    }
+
+    @Override
+    public StateMapping readState(Input inputStream) {
+        TokenCountMapping mapping = readTokenCounts(inputStream);
+        State state = new HashedState(mapping.tokenCounts);
+        ClassifiedState classifiedState;
+        if (mapping.tangible) {
+            classifiedState = HashedClassifiedState.tangibleState(state);
+        } else {
+            classifiedState = HashedClassifiedState.vanishingState(state);
+        }
+        return new StateMapping(classifiedState, mapping.id);
+    }
+
+    /**
+     * Reads a single state written by writeState without hashing it into a state. Places that did
+     * not change share their token count maps with the previous state, so the maps must not be modified.
+     *
+     * @param inputStream to read from
+     * @return id, tangibility and token counts of the state
+     */
+    public TokenCountMapping readTokenCounts(Input inputStream) {
+        byte kind = inputStream.readByte();
+        if (kind == KEYFRAME) {
+            names.clear();
+        } else if (previous == null) {
+            throw new IllegalStateException("Delta states must be read from a keyframe");
+        }
+        int newNameCount = inputStream.readVarInt(true);
+        for (int i = 0; i < newNameCount; i++) {
+            names.add(inputStream.readString().intern());
+        }
+
+        int id;
+        boolean tangible;
+        Map<String, Map<String, Integer>> tokenCounts;
+        if (kind == KEYFRAME) {
+            id = inputStream.readVarInt(true);
+            tangible = inputStream.readBoolean();
+            int placeCount = inputStream.readVarInt(true);
+            tokenCounts = new LinkedHashMap<>();
+            for (int p = 0; p < placeCount; p++) {
+                String place = names.get(inputStream.readVarInt(true));
+                tokenCounts.put(place, readColours(inputStream, inputStream.readVarInt(true)));
+            }
+        } else {
+            id = previousId + inputStream.readVarInt(false);
+            tangible = inputStream.readBoolean();
+            tokenCounts = applyChanges(inputStream);
+        }
+        previous = tokenCounts;
+        previousId = id;
+        return new TokenCountMapping(id, tangible, tokenCounts);
+    }
+
+    /**
+     * Copies the previous state, replacing the places that changed
+     */
+    private Map<String, Map<String, Integer>> applyChanges(Input inputStream) {
+        Map<String, Map<String, Integer>> tokenCounts = new LinkedHashMap<>(previous);
+        int changes = inputStream.readVarInt(true);
+        for (int i = 0; i < changes; i++) {
+            String place = names.get(inputStream.readVarInt(true));
+            int value = inputStream.readVarInt(true);
+            if (value == REMOVED) {
+                tokenCounts.remove(place);
+            } else {
+                tokenCounts.put(place, readColours(inputStream, value - 1));
+            }
+        }
+        return tokenCounts;
+    }
+
+    private Map<String, Integer> readColours(Input inputStream, int colourCount) {
+        Map<String, Integer> colours = new LinkedHashMap<>();
+        for (int c = 0; c < colourCount; c++) {
+            String colour = names.get(inputStream.readVarInt(true));
+            colours.put(colour, inputStream.readVarInt(false));
+        }
+        return colours;
+    }
+
+    /**
+     * @return copy of the token counts that later changes to the state cannot affect
+     */
+    private static Map<String, Map<String, Integer>> copy(Map<String, Map<String, Integer>> tokenCounts) {
+        Map<String, Map<String, Integer>> copy = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> place : tokenCounts.entrySet()) {
+            copy.put(place.getKey(), new LinkedHashMap<>(place.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * @return true if both colour maps hold the same counts in the same iteration order, since a place
+     * whose colours are reordered must be written again for the reader to keep the state hashes
+     */
+    private static boolean sameColours(Map<String, Integer> colours, Map<String, Integer> previousColours) {
+        if (previousColours == null || colours.size() != previousColours.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, Integer>> previousEntries = previousColours.entrySet().iterator();
+        for (Map.Entry<String, Integer> entry : colours.entrySet()) {
+            if (!entry.equals(previousEntries.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
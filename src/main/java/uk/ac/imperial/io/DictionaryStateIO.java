@@ -0,0 +1,161 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.state.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State reader and writer that encodes place and colour names with a dictionary rather than
+ * writing them as strings in every state.
+ * <p>
+ * Each name is written once, just before the first state that uses it, and is then referred to
+ * by its code. The dictionary is built up as states are written and read, so an instance must only
+ * be used for a single state stream, and that stream must be read in order by a new instance.
+ * Names are read into interned strings shared by every state. Transitions are written in the same
+ * format as {@link uk.ac.imperial.io.KryoStateIO}.
+ * </p>
+ */
+public final class DictionaryStateIO implements StateWriter, StateReader {
+
+    /**
+     * Reads and writes transitions
+     */
+    private final KryoStateIO transitionIO = new KryoStateIO();
+
+    /**
+     * Code of every name written
+     */
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Name of every code read
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Names used by the state being written that are not yet in the dictionary
+     */
+    private final List<String> newNames = new ArrayList<>();
+
+    @Override
+    public void writeTransitions(int state, Map<Integer, Double> successors, Output output) {
+        transitionIO.writeTransitions(state, successors, output);
+    }
+
+    @Override
+    public Record readRecord(Input input) throws IOException {
+        return transitionIO.readRecord(input);
+    }
+
+    /**
+     * Writes the state and state id to the output in the order
+     *   - Number of new names
+     *   - { New name }
+     *   - id
+     *   - Tangible
+     *   - Number of places
+     *   - {
+     *      - Place code
+     *      - Number of colours
+     *      - {
+     *         - Colour code
+     *         - Count
+     *        }
+     *     }
+     *
+     * @param state to write
+     * @param stateId id of the state
+     * @param output to write to
+     */
+    @Override
+    public void writeState(ClassifiedState state, int stateId, Output output) {
+        Map<String, Map<String, Integer>> tokenCounts = state.asMap();
+        newNames.clear();
+        for (Map.Entry<String, Map<String, Integer>> place : tokenCounts.entrySet()) {
+            define(place.getKey());
+            for (String colour : place.getValue().keySet()) {
+                define(colour);
+            }
+        }
+        output.writeVarInt(newNames.size(), true);
+        for (String name : newNames) {
+            output.writeString(name);
+        }
+
+        output.writeVarInt(stateId, true);
+        output.writeBoolean(state.isTangible());
+        output.writeVarInt(tokenCounts.size(), true);
+        for (Map.Entry<String, Map<String, Integer>> place : tokenCounts.entrySet()) {
+            output.writeVarInt(codes.get(place.getKey()), true);
+            output.writeVarInt(place.getValue().size(), true);
+            for (Map.Entry<String, Integer> colour : place.getValue().entrySet()) {
+                output.writeVarInt(codes.get(colour.getKey()), true);
+                output.writeVarInt(colour.getValue(), false);
+            }
+        }
+    }
+
+    /**
+     * Assigns the next code to the name if it has not been written before
+     *
+     * @param name place or colour name
+     */
+    private void define(String name) {
+        if (!codes.containsKey(name)) {
+            codes.put(name, codes.size());
+            newNames.add(name);
+        }
+    }
+
+    @Override
+    public StateMapping readState(Input inputStream) {
+        TokenCountMapping mapping = readTokenCounts(inputStream);
+        State state = new HashedState(mapping.tokenCounts);
+        ClassifiedState classifiedState;
+        if (mapping.tangible) {
+            classifiedState = HashedClassifiedState.tangibleState(state);
+        } else {
+            classifiedState = HashedClassifiedState.vanishingState(state);
+        }
+        return new StateMapping(classifiedState, mapping.id);
+    }
+
+    /**
+     * Reads a single state mapping written by writeState without hashing it into a state
+     *
+     * @param inputStream to read from
+     * @return id, tangibility and token counts of the state
+     */
+    public TokenCountMapping readTokenCounts(Input inputStream) {
+        int newNameCount = inputStream.readVarInt(true);
+        for (int i = 0; i < newNameCount; i++) {
+            names.add(inputStream.readString().intern());
+        }
+
+        int id = inputStream.readVarInt(true);
+        boolean tangible = inputStream.readBoolean();
+        int placeCount = inputStream.readVarInt(true);
+        Map<String, Map<String, Integer>> tokenCounts = new HashMap<>();
+        for (int p = 0; p < placeCount; p++) {
+            String place = names.get(inputStream.readVarInt(true));
+            int colourCount = inputStream.readVarInt(true);
+            Map<String, Integer> colours = new HashMap<>();
+            for (int c = 0; c < colourCount; c++) {
+                String colour = names.get(inputStream.readVarInt(true));
+                colours.put(colour, inputStream.readVarInt(false));
+            }
+            tokenCounts.put(place, colours);
+        }
+        return new TokenCountMapping(id, tangible, tokenCounts);
+    }
+}
@@ -0,0 +1,35 @@
+package uk.ac.imperial.io;
+
+import com.google.common.hash.HashCode;
+
+/**
+ * Simple struct that contains the id and hashes of a state without its token counts
+ */
+public class Fingerprint {
+
+    /**
+     * Id that the state has been assigned
+     */
+    public final int id;
+
+    /**
+     * Primary hash of the state
+     */
+    public final int primaryHash;
+
+    /**
+     * Secondary hash of the state
+     */
+    public final HashCode secondaryHash;
+
+    /**
+     * @param id of the state
+     * @param primaryHash primary hash of the state
+     * @param secondaryHash secondary hash of the state
+     */
+    public Fingerprint(int id, int primaryHash, HashCode secondaryHash) {
+        this.id = id;
+        this.primaryHash = primaryHash;
+        this.secondaryHash = secondaryHash;
+    }
+}
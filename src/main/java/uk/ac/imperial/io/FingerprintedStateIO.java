@@ -0,0 +1,171 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.MapSerializer;
+import com.google.common.hash.HashCode;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.state.State;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State reader and writer that stores the primary and secondary hashes of each state next to it,
+ * so that reading a state does not hash it again.
+ * <p>
+ * The stored hashes are only correct for the hash strategies they were written with, see
+ * {@link uk.ac.imperial.utils.StateUtils#setHashStrategies}. Readers can verify every nth state they read
+ * by hashing it again, to detect files written with other strategies or corrupted hashes.
+ * Transitions are written in the same format as {@link uk.ac.imperial.io.KryoStateIO}.
+ * </p>
+ */
+public final class FingerprintedStateIO implements StateWriter, StateReader {
+
+    /**
+     * Reads and writes transitions
+     */
+    private final KryoStateIO transitionIO = new KryoStateIO();
+
+    /**
+     * Kryo object for serializing token counts
+     */
+    private final Kryo kryo = new Kryo();
+
+    /**
+     * Reused to measure the length of the token counts
+     */
+    private final Output scratch = new Output(256, -1);
+
+    /**
+     * Number of states read between verifications, 0 to never verify
+     */
+    private final int verifyInterval;
+
+    /**
+     * Number of states read
+     */
+    private long statesRead = 0;
+
+    /**
+     * Trusts every stored hash
+     */
+    public FingerprintedStateIO() {
+        this(0);
+    }
+
+    /**
+     * @param verifyInterval hash every nth state read again and check it matches the stored hashes,
+     *                       0 to never verify
+     */
+    public FingerprintedStateIO(int verifyInterval) {
+        this.verifyInterval = verifyInterval;
+        kryo.register(Integer.class);
+        kryo.register(Map.class, new MapSerializer());
+    }
+
+    @Override
+    public void writeTransitions(int state, Map<Integer, Double> successors, Output output) {
+        transitionIO.writeTransitions(state, successors, output);
+    }
+
+    @Override
+    public Record readRecord(Input input) throws IOException {
+        return transitionIO.readRecord(input);
+    }
+
+    /**
+     * Writes the state and its hashes to the output in the order
+     *   - id
+     *   - Tangible
+     *   - Primary hash
+     *   - Number of bytes in the secondary hash
+     *   - Secondary hash
+     *   - Number of bytes in the token counts
+     *   - Token counts
+     * The length of the token counts lets readers that only need the hashes skip them.
+     *
+     * @param state to write
+     * @param stateId id of the state
+     * @param output to write to
+     */
+    @Override
+    public void writeState(ClassifiedState state, int stateId, Output output) {
+        output.writeVarInt(stateId, true);
+        output.writeBoolean(state.isTangible());
+        output.writeInt(state.primaryHash());
+        byte[] secondaryHash = state.secondaryHash().asBytes();
+        output.writeByte(secondaryHash.length);
+        output.writeBytes(secondaryHash);
+
+        scratch.clear();
+        kryo.writeObject(scratch, state.asMap());
+        output.writeVarInt(scratch.position(), true);
+        output.writeBytes(scratch.getBuffer(), 0, scratch.position());
+    }
+
+    /**
+     * Reads a state using its stored hashes, verifying them if this is the nth state read
+     *
+     * @param inputStream to read from
+     * @return state mapping of id to state
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public StateMapping readState(Input inputStream) {
+        int id = inputStream.readVarInt(true);
+        boolean tangible = inputStream.readBoolean();
+        int primaryHash = inputStream.readInt();
+        HashCode secondaryHash = HashCode.fromBytes(inputStream.readBytes(inputStream.readByte()));
+        inputStream.readVarInt(true);
+        Map<String, Map<String, Integer>> tokenCounts = kryo.readObject(inputStream, HashMap.class);
+
+        statesRead++;
+        if (verifyInterval > 0 && statesRead % verifyInterval == 0) {
+            verify(id, tokenCounts, primaryHash, secondaryHash);
+        }
+
+        State state = new HashedState(tokenCounts, primaryHash, secondaryHash);
+        ClassifiedState classifiedState;
+        if (tangible) {
+            classifiedState = HashedClassifiedState.tangibleState(state);
+        } else {
+            classifiedState = HashedClassifiedState.vanishingState(state);
+        }
+        return new StateMapping(classifiedState, id);
+    }
+
+    /**
+     * Reads the id and hashes of a state, skipping its token counts without decoding them
+     *
+     * @param inputStream to read from
+     * @return id and hashes of the state
+     */
+    public Fingerprint readFingerprint(Input inputStream) {
+        int id = inputStream.readVarInt(true);
+        inputStream.readBoolean();
+        int primaryHash = inputStream.readInt();
+        HashCode secondaryHash = HashCode.fromBytes(inputStream.readBytes(inputStream.readByte()));
+        inputStream.skip(inputStream.readVarInt(true));
+        return new Fingerprint(id, primaryHash, secondaryHash);
+    }
+
+    /**
+     * @throws IllegalStateException if the token counts do not hash to the stored hashes
+     */
+    private static void verify(int id, Map<String, Map<String, Integer>> tokenCounts, int primaryHash,
+                               HashCode secondaryHash) {
+        HashedState rehashed = new HashedState(tokenCounts);
+        if (rehashed.primaryHash() != primaryHash || !rehashed.secondaryHash().equals(secondaryHash)) {
+            throw new IllegalStateException("Stored hashes of state " + id + " do not match its token counts. "
+                    + "Was it written with the " + StateUtils.getPrimaryStrategy() + " and "
+                    + StateUtils.getSecondaryStrategy() + " hash strategies?");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package uk.ac.imperial.io;
+
+import com.google.common.io.ByteStreams;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.utils.StateHasher;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads many markings from a single JSON stream with Jackson's streaming parser, rather than
+ * binding each document separately as {@link uk.ac.imperial.utils.StateUtils#stateFromJson(String)} does.
+ * <p>
+ * The stream is either JSON lines, one marking object after another, or a single array of marking
+ * objects. Each marking has the form {"P0" : {"Default" : 1}} and is built straight into a
+ * {@link uk.ac.imperial.state.HashedState} with the same token counts and hashes as
+ * stateFromJson would give. Instances are not thread safe.
+ * </p>
+ */
+public final class JsonStateReader implements Closeable {
+
+    /**
+     * Parser reused for every marking in the stream
+     */
+    private final JsonParser parser;
+
+    /**
+     * Hashes the states read
+     */
+    private final StateHasher hasher = new StateHasher();
+
+    /**
+     * True once the first token has been read
+     */
+    private boolean started = false;
+
+    /**
+     * True if the markings are elements of a top level array
+     */
+    private boolean inArray = false;
+
+    /**
+     * @param input JSON lines or a JSON array of markings
+     * @throws IOException if the parser cannot be created
+     */
+    public JsonStateReader(InputStream input) throws IOException {
+        parser = StateUtils.getJsonFactory().createJsonParser(input);
+    }
+
+    /**
+     * @return token counts of the next marking, or null if there are no more
+     * @throws IOException if the stream cannot be read or is not a sequence of markings
+     */
+    public Map<String, Map<String, Integer>> nextMarking() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (!started) {
+            started = true;
+            if (token == JsonToken.START_ARRAY) {
+                inArray = true;
+                token = parser.nextToken();
+            }
+        }
+        if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+            return null;
+        }
+        expect(token, JsonToken.START_OBJECT);
+        Map<String, Map<String, Integer>> tokenCounts = new HashMap<>();
+        while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+            expect(token, JsonToken.FIELD_NAME);
+            String place = parser.getCurrentName();
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            Map<String, Integer> counts = new HashMap<>();
+            while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+                expect(token, JsonToken.FIELD_NAME);
+                String colour = parser.getCurrentName();
+                expect(parser.nextToken(), JsonToken.VALUE_NUMBER_INT);
+                counts.put(colour, parser.getIntValue());
+            }
+            tokenCounts.put(place, counts);
+        }
+        return tokenCounts;
+    }
+
+    /**
+     * @return next state, or null if there are no more
+     * @throws IOException if the stream cannot be read or is not a sequence of markings
+     */
+    public HashedState nextState() throws IOException {
+        Map<String, Map<String, Integer>> tokenCounts = nextMarking();
+        return tokenCounts == null ? null : hasher.build(tokenCounts);
+    }
+
+    /**
+     * @return every remaining state in the stream
+     * @throws IOException if the stream cannot be read or is not a sequence of markings
+     */
+    public List<HashedState> readAll() throws IOException {
+        List<HashedState> states = new ArrayList<>();
+        HashedState state;
+        while ((state = nextState()) != null) {
+            states.add(state);
+        }
+        return states;
+    }
+
+    private void expect(JsonToken token, JsonToken expected) throws JsonParseException {
+        if (token != expected) {
+            throw new JsonParseException("Expected " + expected + " but found " + token, parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Closes the parser and its stream
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Reads every state of a JSON lines file in parallel. The file is split into byte ranges that
+     * start and end on line breaks and each range is parsed by its own thread, so every marking
+     * must be on a single line. The states are returned in file order.
+     *
+     * @param file JSON lines file of markings
+     * @param threads number of ranges to parse at once
+     * @return every state in the file
+     * @throws IOException if the file cannot be read or is not JSON lines of markings
+     */
+    public static List<HashedState> readAll(File file, int threads) throws IOException {
+        long length = file.length();
+        int segments = (int) Math.max(1, Math.min(threads, length));
+        long[] starts = new long[segments + 1];
+        try (RandomAccessFile random = new RandomAccessFile(file, "r")) {
+            for (int segment = 1; segment < segments; segment++) {
+                starts[segment] = Math.max(starts[segment - 1], lineStart(random, length * segment / segments));
+            }
+        }
+        starts[segments] = length;
+
+        ExecutorService executor = Executors.newFixedThreadPool(segments);
+        try {
+            List<Future<List<HashedState>>> reads = new ArrayList<>(segments);
+            for (int segment = 0; segment < segments; segment++) {
+                reads.add(executor.submit(readTask(file, starts[segment], starts[segment + 1])));
+            }
+            List<HashedState> states = new ArrayList<>();
+            for (Future<List<HashedState>> read : reads) {
+                states.addAll(read.get());
+            }
+            return states;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst reading " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Reading " + file + " failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return position of the first line starting at or after the offset
+     */
+    private static long lineStart(RandomAccessFile file, long offset) throws IOException {
+        if (offset == 0) {
+            return 0;
+        }
+        file.seek(offset - 1);
+        int read;
+        while ((read = file.read()) != -1 && read != '\n') {
+            // skip to the end of the line
+        }
+        return file.getFilePointer();
+    }
+
+    /**
+     * Parses the states between start inclusive and end exclusive
+     */
+    private static Callable<List<HashedState>> readTask(final File file, final long start, final long end) {
+        return new Callable<List<HashedState>>() {
+            @Override
+            public List<HashedState> call() throws IOException {
+                try (FileInputStream stream = new FileInputStream(file)) {
+                    long offset = start;
+                    while (offset > 0) {
+                        offset -= stream.skip(offset);
+                    }
+                    try (JsonStateReader reader = new JsonStateReader(ByteStreams.limit(stream, end - start))) {
+                        return reader.readAll();
+                    }
+                }
+            }
+        };
+    }
+}
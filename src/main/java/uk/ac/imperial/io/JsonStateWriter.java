@@ -0,0 +1,74 @@
+package uk.ac.imperial.io;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
+import uk.ac.imperial.state.State;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Streams states out as JSON lines, one marking object per line, with a single reused generator.
+ * The output can be read back by {@link uk.ac.imperial.io.JsonStateReader}, including in parallel.
+ * Instances are not thread safe.
+ */
+public final class JsonStateWriter implements Closeable, Flushable {
+
+    /**
+     * Generator reused for every state
+     */
+    private final JsonGenerator generator;
+
+    /**
+     * @param output to write the markings to
+     * @throws IOException if the generator cannot be created
+     */
+    public JsonStateWriter(OutputStream output) throws IOException {
+        generator = StateUtils.getJsonFactory().createJsonGenerator(output, JsonEncoding.UTF8);
+        generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+    }
+
+    /**
+     * Writes the token counts of the state as a single line
+     *
+     * @param state to write
+     * @throws IOException if the state cannot be written
+     */
+    public void write(State state) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Map<String, Integer>> place : state.asMap().entrySet()) {
+            generator.writeObjectFieldStart(place.getKey());
+            for (Map.Entry<String, Integer> colour : place.getValue().entrySet()) {
+                generator.writeNumberField(colour.getKey(), colour.getValue());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Flushes the buffered markings to the output
+     *
+     * @throws IOException if the output cannot be flushed
+     */
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    /**
+     * Ends the last line and closes the output
+     *
+     * @throws IOException if the output cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        generator.writeRaw('\n');
+        generator.close();
+    }
+}
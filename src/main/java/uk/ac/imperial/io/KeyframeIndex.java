@@ -0,0 +1,46 @@
+package uk.ac.imperial.io;
+
+/**
+ * Simple struct that contains the positions of the keyframes of a {@link uk.ac.imperial.io.DeltaStateIO}
+ * state stream, so that a reader can seek to any state without reading the states before its keyframe
+ */
+public final class KeyframeIndex {
+
+    /**
+     * Number of states between keyframes
+     */
+    public final int keyframeInterval;
+
+    /**
+     * Number of states in the stream
+     */
+    public final long stateCount;
+
+    /**
+     * Position in the stream of every keyframe, in order
+     */
+    public final long[] positions;
+
+    /**
+     * @param keyframeInterval number of states between keyframes
+     * @param stateCount number of states in the stream
+     * @param positions position in the stream of every keyframe
+     */
+    public KeyframeIndex(int keyframeInterval, long stateCount, long[] positions) {
+        this.keyframeInterval = keyframeInterval;
+        this.stateCount = stateCount;
+        this.positions = positions;
+    }
+
+    /**
+     * @param stateIndex index of a state in the order written
+     * @return index of the last keyframe at or before the state
+     */
+    public int keyframeBefore(long stateIndex) {
+        if (stateIndex < 0 || stateIndex >= stateCount) {
+            throw new IllegalArgumentException(
+                    "State index " + stateIndex + " is not in a stream of " + stateCount + " states");
+        }
+        return (int) (stateIndex / keyframeInterval);
+    }
+}
@@ -2,6 +2,7 @@ package uk.ac.imperial.io;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.MapSerializer;
@@ -9,7 +10,9 @@ import uk.ac.imperial.state.*;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Implementation that uses Kryo external library to serialize objects
@@ -26,6 +29,13 @@ public final class KryoStateIO implements StateWriter, StateReader {
      */
     private Kryo kryo = new Kryo();
 
+    /**
+     * Kryo object that reads token count maps as {@link uk.ac.imperial.io.KryoStateIO.TokenCounts}, created
+     * when first needed. It is kept apart from the writing Kryo object since registering the map classes
+     * would change how they are written.
+     */
+    private Kryo visitingKryo;
+
     /**
      * Constructor
      *
@@ -120,18 +130,112 @@ public final class KryoStateIO implements StateWriter, StateReader {
      */
     @Override
     public StateMapping readState(Input inputStream) {
+        TokenCountMapping mapping = readTokenCounts(inputStream);
+        State state = new HashedState(mapping.tokenCounts);
+        ClassifiedState classifiedState;
+        if (mapping.tangible) {
+            classifiedState= HashedClassifiedState.tangibleState(state);
+        } else {
+            classifiedState = HashedClassifiedState.vanishingState(state);
+        }
+
+        return new StateMapping(classifiedState, mapping.id);
+    }
+
+    /**
+     * Reads a single state mapping written by writeState without hashing it into a state,
+     * for callers that only need the token counts
+     *
+     * @param inputStream to read from
+     * @return id, tangibility and token counts of the state
+     */
+    @SuppressWarnings("unchecked")
+    public TokenCountMapping readTokenCounts(Input inputStream) {
         Integer id = kryo.readObject(inputStream, Integer.class);
         Boolean tangible = kryo.readObject(inputStream, Boolean.class);
         Map<String, Map<String, Integer>> map = kryo.readObject(inputStream, HashMap.class);
+        return new TokenCountMapping(id, tangible, map);
+    }
 
-        State state = new HashedState(map);
-        ClassifiedState classifiedState;
-        if (tangible) {
-            classifiedState= HashedClassifiedState.tangibleState(state);
+    /**
+     * Reads a single state mapping written by writeState, passing its token counts to the visitor
+     * rather than building maps of them
+     *
+     * @param inputStream to read from
+     * @param visitor receives the token counts of the state
+     * @return id of the state
+     */
+    public int readTokenCounts(Input inputStream, TokenCountVisitor visitor) {
+        if (visitingKryo == null) {
+            visitingKryo = new Kryo();
+            visitingKryo.register(Integer.class);
+            visitingKryo.register(Boolean.class);
+            visitingKryo.register(HashMap.class, new TokenCountsSerializer());
+            visitingKryo.register(LinkedHashMap.class, new TokenCountsSerializer());
+            visitingKryo.register(TreeMap.class, new TokenCountsSerializer());
+        }
+        int id = visitingKryo.readObject(inputStream, Integer.class);
+        visitingKryo.readObject(inputStream, Boolean.class);
+        TokenCounts places = visitingKryo.readObject(inputStream, TokenCounts.class,
+                visitingKryo.getSerializer(HashMap.class));
+        for (int i = 0; i < places.size; i++) {
+            if (visitor.visitPlace((String) places.keys[i])) {
+                visitColours(places.values[i], visitor);
+            }
+        }
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void visitColours(Object colours, TokenCountVisitor visitor) {
+        if (colours instanceof TokenCounts) {
+            TokenCounts counts = (TokenCounts) colours;
+            for (int i = 0; i < counts.size; i++) {
+                visitor.visitTokens((String) counts.keys[i], (Integer) counts.values[i]);
+            }
         } else {
-            classifiedState = HashedClassifiedState.vanishingState(state);
+            for (Map.Entry<String, Integer> entry : ((Map<String, Integer>) colours).entrySet()) {
+                visitor.visitTokens(entry.getKey(), entry.getValue());
+            }
         }
+    }
+
+    /**
+     * Entries of a map written by Kryo's MapSerializer, read into arrays instead of a map
+     */
+    private static final class TokenCounts {
+        private final Object[] keys;
+
+        private final Object[] values;
 
-        return new StateMapping(classifiedState, id);
+        private int size = 0;
+
+        private TokenCounts(int capacity) {
+            keys = new Object[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    /**
+     * Reads the format of Kryo's MapSerializer, without generics, into {@link uk.ac.imperial.io.KryoStateIO.TokenCounts}
+     */
+    private static final class TokenCountsSerializer extends Serializer<Object> {
+        @Override
+        public void write(Kryo kryo, Output output, Object object) {
+            throw new UnsupportedOperationException("Only reads token counts");
+        }
+
+        @Override
+        public Object read(Kryo kryo, Input input, Class<Object> type) {
+            int length = input.readInt(true);
+            TokenCounts counts = new TokenCounts(length);
+            kryo.reference(counts);
+            for (int i = 0; i < length; i++) {
+                counts.keys[i] = kryo.readClassAndObject(input);
+                counts.values[i] = kryo.readClassAndObject(input);
+                counts.size++;
+            }
+            return counts;
+        }
     }
 }
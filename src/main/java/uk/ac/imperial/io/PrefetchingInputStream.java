@@ -0,0 +1,213 @@
+package uk.ac.imperial.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream that reads ahead of its consumer on a background thread.
+ * <p>
+ * Two buffers are used in turn, so whilst the consumer decodes one the other is being filled from
+ * the underlying stream, overlapping disk reads with computation. Failures of the background read
+ * are rethrown to the consumer.
+ * </p>
+ */
+public final class PrefetchingInputStream extends InputStream {
+
+    /**
+     * Default size of each buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Underlying stream, only read by the background thread
+     */
+    private final InputStream input;
+
+    /**
+     * Buffers filled by the background thread waiting to be consumed
+     */
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(2);
+
+    /**
+     * Consumed buffers waiting to be filled again
+     */
+    private final BlockingQueue<Chunk> empty = new ArrayBlockingQueue<>(2);
+
+    /**
+     * Reads the underlying stream
+     */
+    private final Thread reader;
+
+    /**
+     * Buffer currently being consumed, null once the end of the stream has been reached
+     */
+    private Chunk current;
+
+    /**
+     * Position of the next byte in the current buffer
+     */
+    private int position = 0;
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param input stream to read ahead of
+     */
+    public PrefetchingInputStream(InputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Starts reading ahead immediately
+     *
+     * @param input stream to read ahead of
+     * @param bufferSize size of each of the two buffers
+     */
+    public PrefetchingInputStream(InputStream input, int bufferSize) {
+        this.input = input;
+        empty.add(new Chunk(bufferSize));
+        empty.add(new Chunk(bufferSize));
+        current = new Chunk(0);
+        reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readAhead();
+            }
+        }, "prefetching-input");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Fills empty buffers until the end of the stream or until closed
+     */
+    private void readAhead() {
+        try {
+            while (!closed) {
+                Chunk chunk = empty.take();
+                chunk.fill(input);
+                filled.put(chunk);
+                if (chunk.length < 0) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return current.bytes[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current.bytes, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    /**
+     * Moves on to the next filled buffer if the current one has been consumed
+     *
+     * @return false if the end of the stream has been reached
+     * @throws IOException if the background read failed
+     */
+    private boolean ensureAvailable() throws IOException {
+        while (current != null && position >= current.length) {
+            if (current.bytes.length > 0) {
+                empty.add(current);
+            }
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted whilst waiting for input", e);
+            }
+            position = 0;
+            if (current.failure != null) {
+                throw new IOException("Cannot read ahead", current.failure);
+            }
+            if (current.length < 0) {
+                current = null;
+            }
+        }
+        return current != null;
+    }
+
+    /**
+     * Stops reading ahead and closes the underlying stream
+     *
+     * @throws IOException if the underlying stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        input.close();
+    }
+
+    /**
+     * A buffer and the number of bytes read into it
+     */
+    private static final class Chunk {
+        private final byte[] bytes;
+
+        /**
+         * Number of bytes read, or -1 at the end of the stream
+         */
+        private int length = 0;
+
+        /**
+         * Failure reading into this chunk
+         */
+        private IOException failure;
+
+        private Chunk(int size) {
+            bytes = new byte[size];
+        }
+
+        /**
+         * Reads until the buffer is full or the stream ends
+         */
+        private void fill(InputStream input) {
+            int total = 0;
+            try {
+                while (total < bytes.length) {
+                    int count = input.read(bytes, total, bytes.length - total);
+                    if (count < 0) {
+                        break;
+                    }
+                    total += count;
+                }
+                length = total == 0 ? -1 : total;
+            } catch (IOException e) {
+                failure = e;
+                length = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State reader and writer that encodes transition rates with a dictionary, since models
+ * usually only have a few distinct rates.
+ * <p>
+ * Each distinct rate is written once as a double, just before the first record that uses it, and is
+ * then referred to by a small code. Once the dictionary holds maxRates rates any further new rates are
+ * written in full, so the encoding is always exact. Definitions are written with their codes, so the
+ * same reader can read a file again from the start. States are written in the same format as
+ * {@link uk.ac.imperial.io.KryoStateIO}.
+ * </p>
+ * <p>
+ * Every file must define the rates it uses, so the writer starts a new dictionary whenever it is given
+ * a different {@link com.esotericsoftware.kryo.io.Output}. If the same Output is pointed at a new file,
+ * call {@link #reset()} before writing to it.
+ * </p>
+ */
+public final class RateDictionaryStateIO implements StateWriter, StateReader {
+
+    /**
+     * Default maximum number of rates in the dictionary
+     */
+    public static final int DEFAULT_MAX_RATES = 1024;
+
+    /**
+     * Code of a rate written in full
+     */
+    private static final int RAW = 0;
+
+    /**
+     * Reads and writes states
+     */
+    private final KryoStateIO stateIO = new KryoStateIO();
+
+    /**
+     * Number of rates the writer gives codes to, after which new rates are written in full
+     */
+    private final int maxRates;
+
+    /**
+     * Code of every rate written
+     */
+    private final Map<Double, Integer> codes = new HashMap<>();
+
+    /**
+     * Rate of every code read
+     */
+    private final List<Double> rates = new ArrayList<>();
+
+    /**
+     * Rates used by the record being written that are not yet in the dictionary
+     */
+    private final List<Double> newRates = new ArrayList<>();
+
+    /**
+     * Output the dictionary was written to
+     */
+    private Output dictionaryOutput;
+
+    /**
+     * Dictionary of at most {@link #DEFAULT_MAX_RATES} rates
+     */
+    public RateDictionaryStateIO() {
+        this(DEFAULT_MAX_RATES);
+    }
+
+    /**
+     * @param maxRates maximum number of rates in the dictionary
+     */
+    public RateDictionaryStateIO(int maxRates) {
+        this.maxRates = maxRates;
+    }
+
+    /**
+     * Starts a new dictionary, so that the next transitions written define every rate they use
+     */
+    public void reset() {
+        codes.clear();
+        dictionaryOutput = null;
+    }
+
+    /**
+     * Writes the transitions in the order
+     *   - Number of new rates
+     *   - If there are new rates, code of the first new rate then { New rate }
+     *   - State
+     *   - Number of successors
+     *   - {
+     *      - Successor
+     *      - Rate code, or 0 followed by the rate if it is not in the dictionary
+     *     }
+     *
+     * @param state state
+     * @param successors successors of state with the rate at which they are entered
+     * @param output Kryo output to write to
+     */
+    @Override
+    public void writeTransitions(int state, Map<Integer, Double> successors, Output output) {
+        if (output != dictionaryOutput) {
+            reset();
+            dictionaryOutput = output;
+        }
+        newRates.clear();
+        int firstNewCode = codes.size() + 1;
+        for (Double rate : successors.values()) {
+            if (!codes.containsKey(rate) && codes.size() < maxRates) {
+                codes.put(rate, codes.size() + 1);
+                newRates.add(rate);
+            }
+        }
+        output.writeVarInt(newRates.size(), true);
+        if (!newRates.isEmpty()) {
+            output.writeVarInt(firstNewCode, true);
+            for (Double rate : newRates) {
+                output.writeDouble(rate);
+            }
+        }
+
+        output.writeVarInt(state, true);
+        output.writeVarInt(successors.size(), true);
+        for (Map.Entry<Integer, Double> entry : successors.entrySet()) {
+            output.writeVarInt(entry.getKey(), true);
+            Integer code = codes.get(entry.getValue());
+            if (code == null) {
+                output.writeVarInt(RAW, true);
+                output.writeDouble(entry.getValue());
+            } else {
+                output.writeVarInt(code, true);
+            }
+        }
+    }
+
+    @Override
+    public Record readRecord(Input input) throws IOException {
+        try {
+            int newRateCount = input.readVarInt(true);
+            if (newRateCount > 0) {
+                int code = input.readVarInt(true);
+                for (int i = 0; i < newRateCount; i++, code++) {
+                    double rate = input.readDouble();
+                    if (code <= rates.size()) {
+                        rates.set(code - 1, rate);
+                    } else {
+                        rates.add(rate);
+                    }
+                }
+            }
+
+            int state = input.readVarInt(true);
+            int successorCount = input.readVarInt(true);
+            Map<Integer, Double> successors = new HashMap<>();
+            for (int i = 0; i < successorCount; i++) {
+                int successor = input.readVarInt(true);
+                int code = input.readVarInt(true);
+                successors.put(successor, code == RAW ? input.readDouble() : rates.get(code - 1));
+            }
+            return new Record(state, successors);
+        } catch (KryoException | IndexOutOfBoundsException e) {
+            throw new IOException("Cannot read record", e);
+        }
+    }
+
+    @Override
+    public void writeState(ClassifiedState state, int stateId, Output stateOutput) {
+        stateIO.writeState(state, stateId, stateOutput);
+    }
+
+    @Override
+    public StateMapping readState(Input inputStream) {
+        return stateIO.readState(inputStream);
+    }
+}
@@ -0,0 +1,126 @@
+package uk.ac.imperial.io;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A chunk of states read by a {@link uk.ac.imperial.io.ColumnarStateReader}, holding only
+ * the columns of the projected places
+ */
+public final class StateChunk {
+
+    private final int size;
+
+    private final int[] ids;
+
+    private final int[] tangible;
+
+    /**
+     * Presence column of each projected place
+     */
+    private final Map<String, int[]> presence;
+
+    /**
+     * Count column of each projected place and colour, holding count plus one or zero if absent
+     */
+    private final Map<String, Map<String, int[]>> counts;
+
+    StateChunk(int size, int[] ids, int[] tangible, Map<String, int[]> presence,
+               Map<String, Map<String, int[]>> counts) {
+        this.size = size;
+        this.ids = ids;
+        this.tangible = tangible;
+        this.presence = presence;
+        this.counts = counts;
+    }
+
+    /**
+     * @return number of states in the chunk
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row of the state in the chunk
+     * @return id of the state
+     */
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * @param row of the state in the chunk
+     * @return true if the state is tangible
+     */
+    public boolean isTangible(int row) {
+        return tangible[row] != 0;
+    }
+
+    /**
+     * @param row of the state in the chunk
+     * @param place projected place
+     * @param colour of token
+     * @return number of tokens of the colour in the place, zero if absent
+     */
+    public int getTokenCount(int row, String place, String colour) {
+        Map<String, int[]> colours = counts.get(place);
+        if (colours == null) {
+            return 0;
+        }
+        int[] values = colours.get(colour);
+        return values == null || values[row] == 0 ? 0 : values[row] - 1;
+    }
+
+    /**
+     * @param row of the state in the chunk
+     * @return view of the state restricted to the projected places
+     */
+    public ClassifiedState getState(int row) {
+        return new ColumnarState(this, row);
+    }
+
+    /**
+     * @param row of the state in the chunk
+     * @return projected places present in the state
+     */
+    Collection<String> getPlaces(int row) {
+        List<String> places = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : presence.entrySet()) {
+            if (entry.getValue()[row] != 0) {
+                places.add(entry.getKey());
+            }
+        }
+        return places;
+    }
+
+    /**
+     * @param row of the state in the chunk
+     * @param place projected place
+     * @return token counts of the place, or null if the state does not contain it
+     */
+    Map<String, Integer> getTokens(int row, String place) {
+        int[] present = presence.get(place);
+        if (present == null || present[row] == 0) {
+            return null;
+        }
+        Map<String, int[]> colours = counts.get(place);
+        if (colours == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> tokens = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : colours.entrySet()) {
+            int value = entry.getValue()[row];
+            if (value != 0) {
+                tokens.put(entry.getKey(), value - 1);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,36 @@
+package uk.ac.imperial.io;
+
+import java.util.Map;
+
+/**
+ * Simple struct that contains the mapping of an id to the token counts of a state,
+ * without building a hashed state from them
+ */
+public class TokenCountMapping {
+
+    /**
+     * Id that the state has been assigned
+     */
+    public final int id;
+
+    /**
+     * True if the state is tangible
+     */
+    public final boolean tangible;
+
+    /**
+     * Token counts of the state, keyed by place then token colour
+     */
+    public final Map<String, Map<String, Integer>> tokenCounts;
+
+    /**
+     * @param id of the state
+     * @param tangible true if the state is tangible
+     * @param tokenCounts token counts of the state, keyed by place then token colour
+     */
+    public TokenCountMapping(int id, boolean tangible, Map<String, Map<String, Integer>> tokenCounts) {
+        this.id = id;
+        this.tangible = tangible;
+        this.tokenCounts = tokenCounts;
+    }
+}
@@ -0,0 +1,24 @@
+package uk.ac.imperial.io;
+
+/**
+ * Receives the token counts of a state as they are read, for callers that need neither a hashed
+ * state nor maps of its token counts
+ */
+public interface TokenCountVisitor {
+
+    /**
+     * Called before the token counts of each place
+     *
+     * @param place id of the place
+     * @return true to receive the token counts of the place, false to skip them
+     */
+    boolean visitPlace(String place);
+
+    /**
+     * Called for each colour of the place last visited
+     *
+     * @param colour token colour
+     * @param count number of tokens of the colour
+     */
+    void visitTokens(String colour, int count);
+}
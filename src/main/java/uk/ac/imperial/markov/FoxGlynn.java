@@ -0,0 +1,117 @@
+package uk.ac.imperial.markov;
+
+import java.util.Arrays;
+
+/**
+ * Truncation points and weights of a Poisson distribution, as used by uniformization.
+ * <p>
+ * The weights between the left and right truncation points sum to at least 1 - epsilon of the
+ * distribution. As in the Fox-Glynn algorithm they are computed outwards from the mode starting
+ * from a weight of 1, so that nothing underflows even for very large rates, and then normalized.
+ * Each tail is cut once a geometric bound on the rest of the tail falls below epsilon / 2 of the total.
+ * </p>
+ */
+public final class FoxGlynn {
+
+    /**
+     * Left truncation point, the first number of jumps with a weight
+     */
+    public final int left;
+
+    /**
+     * Right truncation point, the last number of jumps with a weight
+     */
+    public final int right;
+
+    /**
+     * Normalized weights for left to right jumps inclusive
+     */
+    public final double[] weights;
+
+    /**
+     * @param left truncation point
+     * @param right truncation point
+     * @param weights normalized weights from left to right inclusive
+     */
+    private FoxGlynn(int left, int right, double[] weights) {
+        this.left = left;
+        this.right = right;
+        this.weights = weights;
+    }
+
+    /**
+     * @param lambda rate of the Poisson distribution, the uniformization rate multiplied by time
+     * @param epsilon maximum probability mass truncated
+     * @return truncation points and weights of the distribution
+     */
+    public static FoxGlynn compute(double lambda, double epsilon) {
+        if (lambda < 0) {
+            throw new IllegalArgumentException("Poisson rate must not be negative: " + lambda);
+        }
+        if (lambda == 0) {
+            return new FoxGlynn(0, 0, new double[]{1.0});
+        }
+        if (lambda > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Poisson rate too large: " + lambda);
+        }
+        int mode = (int) Math.floor(lambda);
+        double[] down = new double[16];
+        double[] up = new double[16];
+        int downCount = 0;
+        int upCount = 1;
+        up[0] = 1.0;
+        double total = 1.0;
+
+        boolean leftDone = mode == 0;
+        boolean rightDone = false;
+        double lowWeight = 1.0;
+        double highWeight = 1.0;
+        while (!leftDone || !rightDone) {
+            if (!leftDone) {
+                int k = mode - downCount;
+                lowWeight *= k / lambda;
+                if (downCount == down.length) {
+                    down = Arrays.copyOf(down, downCount * 2);
+                }
+                down[downCount++] = lowWeight;
+                total += lowWeight;
+                int next = k - 1;
+                double ratio = next / lambda;
+                leftDone = next == 0 || lowWeight * ratio / (1 - ratio) <= epsilon / 2 * total;
+            }
+            if (!rightDone) {
+                int k = mode + upCount;
+                highWeight *= lambda / k;
+                if (upCount == up.length) {
+                    up = Arrays.copyOf(up, upCount * 2);
+                }
+                up[upCount++] = highWeight;
+                total += highWeight;
+                double ratio = lambda / (k + 1);
+                rightDone = ratio < 1 && highWeight * ratio / (1 - ratio) <= epsilon / 2 * total;
+            }
+        }
+
+        int left = mode - downCount;
+        int right = mode + upCount - 1;
+        double[] weights = new double[downCount + upCount];
+        for (int i = 0; i < downCount; i++) {
+            weights[downCount - 1 - i] = down[i] / total;
+        }
+        for (int i = 0; i < upCount; i++) {
+            weights[downCount + i] = up[i] / total;
+        }
+        return new FoxGlynn(left, right, weights);
+    }
+
+    /**
+     * @param jumps number of jumps
+     * @return weight of the number of jumps, zero outside the truncation points
+     */
+    public double weight(int jumps) {
+        if (jumps < left || jumps > right) {
+            return 0;
+        }
+        return weights[jumps - left];
+    }
+}
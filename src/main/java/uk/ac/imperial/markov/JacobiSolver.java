@@ -0,0 +1,108 @@
+package uk.ac.imperial.markov;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Computes the steady state distribution of an irreducible continuous time Markov Chain by
+ * damped Jacobi iteration.
+ * <p>
+ * Each sweep needs a single product with the rate matrix, which a
+ * {@link uk.ac.imperial.markov.StreamingRateMatrix} computes by reading the transitions from disk,
+ * so only the current and next probability vectors are held in memory. The next value of each state
+ * is the rate into it divided by its exit rate, mixed with its current value by the relaxation factor
+ * since undamped Jacobi does not converge on periodic chains.
+ * </p>
+ */
+public final class JacobiSolver {
+
+    /**
+     * Probabilities smaller than this are not used to measure relative change
+     */
+    private static final double MIN_PROBABILITY = 1e-300;
+
+    /**
+     * Largest relative change of any probability between sweeps once converged
+     */
+    private final double tolerance;
+
+    /**
+     * Maximum number of sweeps
+     */
+    private final int maxIterations;
+
+    /**
+     * Weight of the Jacobi update, between 0 exclusive and 1 inclusive
+     */
+    private final double relaxation;
+
+    /**
+     * @param tolerance largest relative change of any probability between sweeps once converged
+     * @param maxIterations maximum number of sweeps
+     * @param relaxation weight of the Jacobi update, between 0 exclusive and 1 inclusive
+     */
+    public JacobiSolver(double tolerance, int maxIterations, double relaxation) {
+        if (relaxation <= 0 || relaxation > 1) {
+            throw new IllegalArgumentException("Relaxation must be in (0, 1]: " + relaxation);
+        }
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.relaxation = relaxation;
+    }
+
+    /**
+     * @param matrix rates of the chain
+     * @return steady state probability of each state
+     * @throws IOException if the rates cannot be read
+     */
+    public double[] solve(RateMatrix matrix) throws IOException {
+        int n = matrix.size();
+        double[] initial = new double[n];
+        Arrays.fill(initial, 1.0 / n);
+        return solve(matrix, initial);
+    }
+
+    /**
+     * @param matrix rates of the chain
+     * @param initial guess at the distribution, for example from a previous solution
+     * @return steady state probability of each state
+     * @throws IOException if the rates cannot be read
+     */
+    public double[] solve(RateMatrix matrix, double[] initial) throws IOException {
+        int n = matrix.size();
+        double[] exitRates = matrix.exitRates();
+        if (n == 1) {
+            return new double[]{1.0};
+        }
+        for (int i = 0; i < n; i++) {
+            if (exitRates[i] == 0) {
+                throw new IllegalArgumentException("State " + i + " is absorbing so the chain is not irreducible");
+            }
+        }
+
+        double[] current = Arrays.copyOf(initial, n);
+        double[] next = new double[n];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            matrix.multiply(current, next);
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                next[i] = (1 - relaxation) * current[i] + relaxation * next[i] / exitRates[i];
+                total += next[i];
+            }
+            double change = 0;
+            for (int i = 0; i < n; i++) {
+                next[i] /= total;
+                if (next[i] > MIN_PROBABILITY) {
+                    change = Math.max(change, Math.abs(next[i] - current[i]) / next[i]);
+                }
+            }
+            double[] swap = current;
+            current = next;
+            next = swap;
+            if (change <= tolerance) {
+                return current;
+            }
+        }
+        throw new IllegalStateException("Did not converge after " + maxIterations + " iterations");
+    }
+}
@@ -0,0 +1,127 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.StateWriter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Result of lumping a chain, assigning every state to a block. Each block is a state of the lumped chain
+ * and blocks are numbered from 0 in order of the lowest state index they contain.
+ */
+public final class Lumping {
+
+    /**
+     * Chain that was lumped
+     */
+    private final SparseChain chain;
+
+    /**
+     * Block of each state index
+     */
+    private final int[] blocks;
+
+    /**
+     * Number of blocks
+     */
+    private final int blockCount;
+
+    /**
+     * A state index contained in each block, used to read the blocks rates
+     */
+    private final int[] representatives;
+
+    /**
+     * @param chain that was lumped
+     * @param blocks block of each state index
+     * @param blockCount number of blocks
+     */
+    public Lumping(SparseChain chain, int[] blocks, int blockCount) {
+        this.chain = chain;
+        this.blocks = blocks;
+        this.blockCount = blockCount;
+        representatives = new int[blockCount];
+        for (int state = blocks.length - 1; state >= 0; state--) {
+            representatives[blocks[state]] = state;
+        }
+    }
+
+    /**
+     * @return number of states in the lumped chain
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @param stateId id of a state in the original chain
+     * @return id of the state in the lumped chain
+     */
+    public int getBlock(int stateId) {
+        return blocks[chain.indexOf(stateId)];
+    }
+
+    /**
+     * @return number of original states per lumped state
+     */
+    public double getReductionRatio() {
+        return blockCount == 0 ? 1 : (double) chain.size() / blockCount;
+    }
+
+    /**
+     * Writes the transitions of the lumped chain, whose states are the block ids. Since the lumping
+     * is ordinary, the rate from a block into another is the rate of any of its states into it.
+     * Transitions within a block are dropped.
+     *
+     * @param writer writes each lumped state's transitions
+     * @param output to write to
+     */
+    public void writeTransitions(StateWriter writer, Output output) {
+        for (int block = 0; block < blockCount; block++) {
+            int state = representatives[block];
+            Map<Integer, Double> successors = new HashMap<>();
+            for (int k = chain.rowStart(state); k < chain.rowEnd(state); k++) {
+                int successorBlock = blocks[chain.column(k)];
+                if (successorBlock != block) {
+                    Double previous = successors.get(successorBlock);
+                    successors.put(successorBlock, previous == null ? chain.rate(k) : previous + chain.rate(k));
+                }
+            }
+            writer.writeTransitions(block, successors, output);
+        }
+    }
+
+    /**
+     * Writes the block of every state in the order
+     *   - Number of states
+     *   - {
+     *      - State id
+     *      - Block
+     *     }
+     *
+     * @param output to write to
+     */
+    public void writeMapping(Output output) {
+        output.writeInt(blocks.length);
+        for (int state = 0; state < blocks.length; state++) {
+            output.writeInt(chain.getStateId(state));
+            output.writeInt(blocks[state]);
+        }
+    }
+
+    /**
+     * @param input containing a mapping written by {@link #writeMapping(Output)}
+     * @return map of state id to block
+     */
+    public static Map<Integer, Integer> readMapping(Input input) {
+        int states = input.readInt();
+        Map<Integer, Integer> mapping = new HashMap<>(states * 2);
+        for (int i = 0; i < states; i++) {
+            int stateId = input.readInt();
+            mapping.put(stateId, input.readInt());
+        }
+        return mapping;
+    }
+}
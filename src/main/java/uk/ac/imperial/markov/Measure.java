@@ -0,0 +1,106 @@
+package uk.ac.imperial.markov;
+
+/**
+ * Reward based performance measure, whose value is the sum over every state of the probability
+ * of the state multiplied by its reward. The reward of a state depends only on the token counts
+ * of the given places and colours.
+ */
+public final class Measure {
+
+    /**
+     * Reward of a state given the token counts of the places and colours of the measure
+     */
+    public interface Reward {
+        /**
+         * @param tokens token count of each place and colour of the measure, in order
+         * @return reward of the state
+         */
+        double value(int[] tokens);
+    }
+
+    /**
+     * Places the reward depends on
+     */
+    private final String[] places;
+
+    /**
+     * Token colour of each place the reward depends on
+     */
+    private final String[] colours;
+
+    private final Reward reward;
+
+    /**
+     * @param places places the reward depends on
+     * @param colours token colour of each place
+     * @param reward reward of a state given the token counts of the places and colours, in order
+     */
+    public Measure(String[] places, String[] colours, Reward reward) {
+        if (places.length != colours.length) {
+            throw new IllegalArgumentException("Every place needs a colour");
+        }
+        this.places = places.clone();
+        this.colours = colours.clone();
+        this.reward = reward;
+    }
+
+    /**
+     * @param place to count tokens in
+     * @param colour of tokens to count
+     * @return mean number of tokens of the colour in the place
+     */
+    public static Measure meanTokens(String place, String colour) {
+        return new Measure(new String[]{place}, new String[]{colour}, new Reward() {
+            @Override
+            public double value(int[] tokens) {
+                return tokens[0];
+            }
+        });
+    }
+
+    /**
+     * @param place to count tokens in
+     * @param colour of tokens to count
+     * @param threshold minimum number of tokens
+     * @return probability of the place containing at least threshold tokens of the colour
+     */
+    public static Measure probabilityAtLeast(String place, String colour, final int threshold) {
+        return new Measure(new String[]{place}, new String[]{colour}, new Reward() {
+            @Override
+            public double value(int[] tokens) {
+                return tokens[0] >= threshold ? 1 : 0;
+            }
+        });
+    }
+
+    /**
+     * @return number of token counts the reward depends on
+     */
+    public int getArity() {
+        return places.length;
+    }
+
+    /**
+     * @param index of token count
+     * @return place of the token count
+     */
+    public String getPlace(int index) {
+        return places[index];
+    }
+
+    /**
+     * @param index of token count
+     * @return colour of the token count
+     */
+    public String getColour(int index) {
+        return colours[index];
+    }
+
+    /**
+     * @param tokens token count of each place and colour of the measure, in order
+     * @return reward of the state
+     */
+    public double reward(int[] tokens) {
+        return reward.value(tokens);
+    }
+}
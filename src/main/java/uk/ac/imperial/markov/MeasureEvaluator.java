@@ -0,0 +1,236 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.TokenCountVisitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates many measures in a single pass over a state file and a probability vector.
+ * <p>
+ * The place and colour pairs used by any measure are numbered as columns. States are streamed through a
+ * {@link uk.ac.imperial.io.TokenCountVisitor}, so they are neither hashed into
+ * {@link uk.ac.imperial.state.ClassifiedState}s nor built into maps, and only the token counts of these
+ * columns are kept, in primitive batches. Batches are evaluated in parallel whilst the next batch is
+ * read, and their partial sums are added in file order so that results do not depend on scheduling.
+ * </p>
+ */
+public final class MeasureEvaluator {
+
+    /**
+     * Number of states in each batch
+     */
+    private static final int BATCH_SIZE = 4096;
+
+    private final List<Measure> measures;
+
+    /**
+     * Column of each token count of each measure
+     */
+    private final int[][] measureColumns;
+
+    /**
+     * Column of each place and colour, keyed by place then colour
+     */
+    private final Map<String, Map<String, Integer>> columns = new HashMap<>();
+
+    private int columnCount = 0;
+
+    private final int threads;
+
+    /**
+     * @param measures to evaluate
+     * @param threads number of threads to evaluate batches with
+     */
+    public MeasureEvaluator(List<Measure> measures, int threads) {
+        this.measures = measures;
+        this.threads = threads;
+        measureColumns = new int[measures.size()][];
+        for (int m = 0; m < measures.size(); m++) {
+            Measure measure = measures.get(m);
+            measureColumns[m] = new int[measure.getArity()];
+            for (int i = 0; i < measure.getArity(); i++) {
+                measureColumns[m][i] = column(measure.getPlace(i), measure.getColour(i));
+            }
+        }
+    }
+
+    /**
+     * @return column of the place and colour, numbering it if it is new
+     */
+    private int column(String place, String colour) {
+        Map<String, Integer> placeColumns = columns.get(place);
+        if (placeColumns == null) {
+            placeColumns = new HashMap<>();
+            columns.put(place, placeColumns);
+        }
+        Integer column = placeColumns.get(colour);
+        if (column == null) {
+            column = columnCount++;
+            placeColumns.put(colour, column);
+        }
+        return column;
+    }
+
+    /**
+     * @param input state mappings written by {@link uk.ac.imperial.io.KryoStateIO#writeState}
+     * @param io reads the state mappings
+     * @param probabilities probability of each state, indexed by state id
+     * @return value of each measure, in order
+     * @throws IllegalArgumentException if a state id is not an index of the probabilities
+     */
+    public double[] evaluate(Input input, KryoStateIO io, double[] probabilities) {
+        double[] results = new double[measures.size()];
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        Deque<Future<double[]>> pending = new ArrayDeque<>();
+        try {
+            while (!input.eof()) {
+                Batch batch = readBatch(input, io);
+                if (executor == null) {
+                    add(results, evaluate(batch, probabilities));
+                } else {
+                    pending.add(executor.submit(task(batch, probabilities)));
+                    if (pending.size() > 2 * threads) {
+                        add(results, pending.poll().get());
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                add(results, pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst evaluating measures", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Measure evaluation failed", e.getCause());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        return results;
+    }
+
+    private Callable<double[]> task(final Batch batch, final double[] probabilities) {
+        return new Callable<double[]>() {
+            @Override
+            public double[] call() {
+                return evaluate(batch, probabilities);
+            }
+        };
+    }
+
+    private static void add(double[] results, double[] partial) {
+        for (int m = 0; m < results.length; m++) {
+            results[m] += partial[m];
+        }
+    }
+
+    /**
+     * Reads up to a batch of states, keeping only their ids and the token counts of each column
+     */
+    private Batch readBatch(Input input, KryoStateIO io) {
+        Batch batch = new Batch(columnCount);
+        ColumnVisitor visitor = new ColumnVisitor(batch.tokens);
+        while (batch.size < BATCH_SIZE && !input.eof()) {
+            visitor.offset = batch.size * columnCount;
+            batch.ids[batch.size++] = io.readTokenCounts(input, visitor);
+        }
+        return batch;
+    }
+
+    /**
+     * Writes the token counts of the columns into a row of a batch
+     */
+    private final class ColumnVisitor implements TokenCountVisitor {
+        private final int[] tokens;
+
+        /**
+         * Start of the row being written
+         */
+        private int offset;
+
+        /**
+         * Columns of the place being visited
+         */
+        private Map<String, Integer> placeColumns;
+
+        private ColumnVisitor(int[] tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public boolean visitPlace(String place) {
+            placeColumns = columns.get(place);
+            return placeColumns != null;
+        }
+
+        @Override
+        public void visitTokens(String colour, int count) {
+            Integer column = placeColumns.get(colour);
+            if (column != null) {
+                tokens[offset + column] = count;
+            }
+        }
+    }
+
+    /**
+     * @return partial value of each measure over the states of the batch
+     */
+    private double[] evaluate(Batch batch, double[] probabilities) {
+        double[] partial = new double[measures.size()];
+        int[][] arguments = new int[measures.size()][];
+        for (int m = 0; m < arguments.length; m++) {
+            arguments[m] = new int[measureColumns[m].length];
+        }
+        for (int s = 0; s < batch.size; s++) {
+            int id = batch.ids[s];
+            if (id < 0 || id >= probabilities.length) {
+                throw new IllegalArgumentException("State " + id + " has no probability, the probability vector only has "
+                        + probabilities.length + " states");
+            }
+            double probability = probabilities[id];
+            if (probability == 0) {
+                continue;
+            }
+            int offset = s * columnCount;
+            for (int m = 0; m < partial.length; m++) {
+                int[] measureColumn = measureColumns[m];
+                int[] argument = arguments[m];
+                for (int i = 0; i < measureColumn.length; i++) {
+                    argument[i] = batch.tokens[offset + measureColumn[i]];
+                }
+                partial[m] += probability * measures.get(m).reward(argument);
+            }
+        }
+        return partial;
+    }
+
+    /**
+     * State ids and token counts of a batch of states, stored row by row
+     */
+    private static final class Batch {
+        private final int[] ids = new int[BATCH_SIZE];
+
+        private final int[] tokens;
+
+        private int size = 0;
+
+        private Batch(int columnCount) {
+            tokens = new int[BATCH_SIZE * columnCount];
+        }
+    }
+}
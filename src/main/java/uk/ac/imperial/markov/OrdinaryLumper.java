@@ -0,0 +1,446 @@
+package uk.ac.imperial.markov;
+
+import java.util.Arrays;
+
+/**
+ * Computes the coarsest ordinary lumping of a continuous time Markov Chain by partition refinement.
+ * <p>
+ * A partition is an ordinary lumping if every state of a block has the same total rate into every
+ * other block, with self loops ignored. Following Derisavi, Hermanns and Sanders, weights are taken
+ * from the generator matrix, whose diagonal is minus the exit rate of each state: the weight of a state
+ * into a block is its total rate into the block, less its exit rate if it is in the block. Since every row
+ * of the generator sums to zero, equal weights into every other block imply equal weights into the state's
+ * own block, so the condition is the same whether or not the own block is included.
+ * </p><p>
+ * Starting from an initial partition, blocks are repeatedly used as splitters: the weight of every
+ * state into the splitter is summed and each block is split into groups of equal weight. Because rows
+ * sum to zero, the weights into the largest part of a split block follow from the weights into the others,
+ * so only the smaller parts are queued as future splitters, which bounds the work to O(m log n) for
+ * m transitions and n states.
+ * </p><p>
+ * Rates are compared with a tolerance relative to the largest exit rate of the chain, since sums of
+ * the same rates in a different order may differ in their last bits.
+ * </p>
+ */
+public final class OrdinaryLumper {
+
+    /**
+     * Relative tolerance when comparing rates
+     */
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * Lumps the chain starting with every state in a single block. Since every row of the generator sums
+     * to zero, a single block is always an ordinary lumping, so this is only useful to check the trivial
+     * case; use {@link #lump(SparseChain, int[])} with the states that must be told apart in different blocks.
+     *
+     * @param chain to lump
+     * @return coarsest ordinary lumping of the chain
+     */
+    public Lumping lump(SparseChain chain) {
+        return lump(chain, new int[chain.size()]);
+    }
+
+    /**
+     * Lumps the chain refining the initial partition, for example so that states with different
+     * rewards are never lumped together
+     *
+     * @param chain to lump
+     * @param initialBlocks block of each state index, numbered from 0
+     * @return coarsest ordinary lumping of the chain that refines the initial partition
+     */
+    public Lumping lump(SparseChain chain, int[] initialBlocks) {
+        Refinement refinement = new Refinement(chain, initialBlocks);
+        refinement.refine();
+        return new Lumping(chain, refinement.renumberedBlocks(), refinement.blockCount);
+    }
+
+    /**
+     * Mutable state of a single refinement. Blocks are contiguous ranges of the elements array
+     */
+    private static final class Refinement {
+        /**
+         * Number of states
+         */
+        private final int n;
+
+        /**
+         * Predecessors of each state, whose self loops are skipped
+         */
+        private final SparseChain predecessors;
+
+        /**
+         * Total rate out of each state, ignoring self loops, which is minus its diagonal generator entry
+         */
+        private final double[] exitRates;
+
+        /**
+         * Absolute tolerance when comparing rates
+         */
+        private final double epsilon;
+
+        /**
+         * States ordered so that each block is contiguous
+         */
+        private final int[] elements;
+
+        /**
+         * Position of each state in elements
+         */
+        private final int[] positions;
+
+        /**
+         * Block of each state
+         */
+        private final int[] blockOf;
+
+        /**
+         * Start of each block in elements, inclusive
+         */
+        private final int[] blockStart;
+
+        /**
+         * End of each block in elements, exclusive
+         */
+        private final int[] blockEnd;
+
+        private int blockCount = 0;
+
+        /**
+         * Blocks waiting to be used as splitters
+         */
+        private final int[] splitters;
+
+        private int splitterCount = 0;
+
+        private final boolean[] queued;
+
+        /**
+         * Rate of each state into the current splitter
+         */
+        private final double[] weights;
+
+        /**
+         * States with a generator entry into the current splitter
+         */
+        private final int[] touched;
+
+        private int touchedCount = 0;
+
+        private final boolean[] isTouched;
+
+        /**
+         * Scratch space holding the non zero touched states of the block being split
+         */
+        private final int[] scratch;
+
+        private Refinement(SparseChain chain, int[] initialBlocks) {
+            n = chain.size();
+            exitRates = new double[n];
+            double maxRate = 0;
+            for (int i = 0; i < n; i++) {
+                exitRates[i] = chain.exitRate(i);
+                maxRate = Math.max(maxRate, exitRates[i]);
+            }
+            epsilon = TOLERANCE * Math.max(maxRate, 1.0);
+            predecessors = chain.transpose();
+
+            elements = new int[n];
+            positions = new int[n];
+            blockOf = new int[n];
+            blockStart = new int[Math.max(n, 1)];
+            blockEnd = new int[Math.max(n, 1)];
+            splitters = new int[Math.max(n, 1)];
+            queued = new boolean[Math.max(n, 1)];
+            weights = new double[n];
+            touched = new int[n];
+            isTouched = new boolean[n];
+            scratch = new int[n];
+            initialise(initialBlocks);
+        }
+
+        /**
+         * Lays out the initial blocks contiguously and queues them all as splitters
+         */
+        private void initialise(int[] initialBlocks) {
+            int blocks = 0;
+            for (int block : initialBlocks) {
+                blocks = Math.max(blocks, block + 1);
+            }
+            int[] counts = new int[blocks + 1];
+            for (int block : initialBlocks) {
+                counts[block + 1]++;
+            }
+            for (int b = 0; b < blocks; b++) {
+                counts[b + 1] += counts[b];
+            }
+            int[] next = Arrays.copyOf(counts, blocks);
+            for (int state = 0; state < n; state++) {
+                int position = next[initialBlocks[state]]++;
+                elements[position] = state;
+                positions[state] = position;
+            }
+            int[] renumber = new int[blocks];
+            for (int b = 0; b < blocks; b++) {
+                if (counts[b + 1] > counts[b]) {
+                    renumber[b] = blockCount;
+                    blockStart[blockCount] = counts[b];
+                    blockEnd[blockCount] = counts[b + 1];
+                    push(blockCount);
+                    blockCount++;
+                }
+            }
+            for (int state = 0; state < n; state++) {
+                blockOf[state] = renumber[initialBlocks[state]];
+            }
+        }
+
+        private void refine() {
+            while (splitterCount > 0) {
+                int splitter = splitters[--splitterCount];
+                queued[splitter] = false;
+                computeWeights(splitter);
+                sortTouched(0, touchedCount - 1);
+                int from = 0;
+                while (from < touchedCount) {
+                    int block = blockOf[touched[from]];
+                    int to = from;
+                    while (to < touchedCount && blockOf[touched[to]] == block) {
+                        to++;
+                    }
+                    split(block, from, to);
+                    from = to;
+                }
+                for (int i = 0; i < touchedCount; i++) {
+                    weights[touched[i]] = 0;
+                    isTouched[touched[i]] = false;
+                }
+                touchedCount = 0;
+            }
+        }
+
+        /**
+         * Sums the generator entries of every state into the splitter: the rates of its predecessors
+         * and minus the exit rate of each of its own states
+         */
+        private void computeWeights(int splitter) {
+            for (int p = blockStart[splitter]; p < blockEnd[splitter]; p++) {
+                int target = elements[p];
+                touch(target, -exitRates[target]);
+                for (int k = predecessors.rowStart(target); k < predecessors.rowEnd(target); k++) {
+                    int source = predecessors.column(k);
+                    if (source != target) {
+                        touch(source, predecessors.rate(k));
+                    }
+                }
+            }
+        }
+
+        private void touch(int state, double rate) {
+            if (!isTouched[state]) {
+                isTouched[state] = true;
+                touched[touchedCount++] = state;
+            }
+            weights[state] += rate;
+        }
+
+        /**
+         * Splits the block into groups of equal weight. States of the block not touched have weight zero
+         * and keep the block, whilst touched states of non zero weight are moved to the end of the block
+         * in weight order and form new blocks. Only the touched states are moved, so the cost is
+         * proportional to the number of transitions into the splitter.
+         *
+         * @param block to split
+         * @param from start of the touched states of the block, sorted by weight
+         * @param to end of the touched states of the block
+         */
+        private void split(int block, int from, int to) {
+            int start = blockStart[block];
+            int end = blockEnd[block];
+
+            int nonZeroCount = 0;
+            for (int i = from; i < to; i++) {
+                if (!isZero(touched[i])) {
+                    scratch[nonZeroCount++] = touched[i];
+                }
+            }
+            int zeroCount = end - start - nonZeroCount;
+            if (!isSplit(nonZeroCount, zeroCount)) {
+                return;
+            }
+
+            int regionStart = end - nonZeroCount;
+            for (int i = 0; i < nonZeroCount; i++) {
+                swap(scratch[i], end - 1 - i);
+            }
+            for (int i = 0; i < nonZeroCount; i++) {
+                int state = scratch[i];
+                elements[regionStart + i] = state;
+                positions[state] = regionStart + i;
+            }
+
+            boolean wasQueued = queued[block];
+            int firstNewBlock = blockCount;
+            int largestBlock = block;
+            int largestSize = zeroCount;
+            int currentBlock = block;
+            int groupStart = regionStart;
+            if (zeroCount > 0) {
+                blockEnd[block] = regionStart;
+                currentBlock = blockCount++;
+            }
+            for (int p = regionStart + 1; p <= end; p++) {
+                if (p < end && equal(elements[p - 1], elements[p])) {
+                    continue;
+                }
+                blockStart[currentBlock] = groupStart;
+                blockEnd[currentBlock] = p;
+                for (int q = groupStart; q < p; q++) {
+                    blockOf[elements[q]] = currentBlock;
+                }
+                if (p - groupStart > largestSize) {
+                    largestSize = p - groupStart;
+                    largestBlock = currentBlock;
+                }
+                if (p < end) {
+                    currentBlock = blockCount++;
+                    groupStart = p;
+                }
+            }
+
+            if (wasQueued || block != largestBlock) {
+                push(block);
+            }
+            for (int b = firstNewBlock; b < blockCount; b++) {
+                if (wasQueued || b != largestBlock) {
+                    push(b);
+                }
+            }
+        }
+
+        /**
+         * @param nonZeroCount number of non zero touched states, at the start of scratch sorted by weight
+         * @param zeroCount number of zero weight states
+         * @return true if the block contains more than one group
+         */
+        private boolean isSplit(int nonZeroCount, int zeroCount) {
+            if (nonZeroCount == 0) {
+                return false;
+            }
+            if (zeroCount > 0) {
+                return true;
+            }
+            for (int i = 1; i < nonZeroCount; i++) {
+                if (!equal(scratch[i - 1], scratch[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Swaps the state with the state at the given position
+         *
+         * @param state to move
+         * @param position to move the state to
+         */
+        private void swap(int state, int position) {
+            int other = elements[position];
+            int previous = positions[state];
+            elements[previous] = other;
+            positions[other] = previous;
+            elements[position] = state;
+            positions[state] = position;
+        }
+
+        /**
+         * @param state in the block being split
+         * @return true if the state has no rate into the splitter
+         */
+        private boolean isZero(int state) {
+            return !isTouched[state] || Math.abs(weights[state]) <= epsilon;
+        }
+
+        private boolean equal(int first, int second) {
+            return Math.abs(weights[first] - weights[second]) <= epsilon;
+        }
+
+        private void push(int block) {
+            if (!queued[block]) {
+                queued[block] = true;
+                splitters[splitterCount++] = block;
+            }
+        }
+
+        /**
+         * Sorts the touched states by block and then weight
+         */
+        private void sortTouched(int low, int high) {
+            while (low < high) {
+                if (high - low < 16) {
+                    for (int i = low + 1; i <= high; i++) {
+                        int state = touched[i];
+                        int j = i - 1;
+                        while (j >= low && compare(touched[j], state) > 0) {
+                            touched[j + 1] = touched[j];
+                            j--;
+                        }
+                        touched[j + 1] = state;
+                    }
+                    return;
+                }
+                int pivot = touched[(low + high) >>> 1];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (compare(touched[i], pivot) < 0) {
+                        i++;
+                    }
+                    while (compare(touched[j], pivot) > 0) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int swap = touched[i];
+                        touched[i] = touched[j];
+                        touched[j] = swap;
+                        i++;
+                        j--;
+                    }
+                }
+                if (j - low < high - i) {
+                    sortTouched(low, j);
+                    low = i;
+                } else {
+                    sortTouched(i, high);
+                    high = j;
+                }
+            }
+        }
+
+        private int compare(int first, int second) {
+            int byBlock = Integer.compare(blockOf[first], blockOf[second]);
+            if (byBlock != 0) {
+                return byBlock;
+            }
+            return Double.compare(weights[first], weights[second]);
+        }
+
+        /**
+         * @return block of each state, numbered in order of the lowest state index they contain
+         */
+        private int[] renumberedBlocks() {
+            int[] renumber = new int[blockCount];
+            Arrays.fill(renumber, -1);
+            int next = 0;
+            int[] blocks = new int[n];
+            for (int state = 0; state < n; state++) {
+                int block = blockOf[state];
+                if (renumber[block] < 0) {
+                    renumber[block] = next++;
+                }
+                blocks[state] = renumber[block];
+            }
+            return blocks;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package uk.ac.imperial.markov;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Off diagonal rates of a continuous time Markov Chain, indexed by state id from 0 to size() - 1.
+ * Self loops are ignored since they do not change the behaviour of the chain.
+ */
+public interface RateMatrix extends Closeable {
+
+    /**
+     * @return number of states
+     */
+    int size();
+
+    /**
+     * @return total rate out of each state
+     * @throws IOException if the rates cannot be read
+     */
+    double[] exitRates() throws IOException;
+
+    /**
+     * Multiplies the row vector x by the matrix, y[j] = sum over i of x[i] * rate(i, j)
+     *
+     * @param x vector to multiply
+     * @param y result, overwritten
+     * @throws IOException if the rates cannot be read
+     */
+    void multiply(double[] x, double[] y) throws IOException;
+}
@@ -0,0 +1,270 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.io.StateReader;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compact sparse representation of the transitions of a Markov Chain, stored in compressed row
+ * form as primitive arrays rather than as {@link uk.ac.imperial.state.Record}s of boxed maps.
+ * <p>
+ * States are referred to by index, from 0 to size() - 1, ordered by their state id. Ids written by an
+ * explorer are usually 0 to size() - 1 already, in which case the index of a state is its id.
+ * </p>
+ */
+public final class SparseChain {
+
+    /**
+     * State id of each index, ascending
+     */
+    private final int[] stateIds;
+
+    /**
+     * True if every state id is equal to its index
+     */
+    private final boolean identityIds;
+
+    /**
+     * Transitions from index i are stored between rowStart[i] inclusive and rowStart[i + 1] exclusive
+     */
+    private final int[] rowStart;
+
+    /**
+     * Index of the successor of each transition
+     */
+    private final int[] columns;
+
+    /**
+     * Rate of each transition
+     */
+    private final double[] rates;
+
+    /**
+     * @param stateIds state id of each index, ascending
+     * @param rowStart start of the transitions of each index, with a final entry for the end
+     * @param columns index of the successor of each transition
+     * @param rates rate of each transition
+     */
+    public SparseChain(int[] stateIds, int[] rowStart, int[] columns, double[] rates) {
+        this.stateIds = stateIds;
+        this.rowStart = rowStart;
+        this.columns = columns;
+        this.rates = rates;
+        boolean identity = true;
+        for (int i = 0; i < stateIds.length && identity; i++) {
+            identity = stateIds[i] == i;
+        }
+        identityIds = identity;
+    }
+
+    /**
+     * Reads every record in the input
+     *
+     * @param input transitions written by a {@link uk.ac.imperial.io.StateWriter}
+     * @param reader reads a single record
+     * @return chain containing every transition in the input
+     * @throws IOException if a record cannot be read
+     */
+    public static SparseChain read(Input input, StateReader reader) throws IOException {
+        Builder builder = new Builder();
+        while (!input.eof()) {
+            builder.add(reader.readRecord(input));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param records transitions of the chain
+     * @return chain containing every transition in the records
+     */
+    public static SparseChain fromRecords(Iterable<Record> records) {
+        Builder builder = new Builder();
+        for (Record record : records) {
+            builder.add(record);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return number of states in the chain
+     */
+    public int size() {
+        return stateIds.length;
+    }
+
+    /**
+     * @return number of transitions in the chain
+     */
+    public int transitionCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param index of state
+     * @return id of the state
+     */
+    public int getStateId(int index) {
+        return stateIds[index];
+    }
+
+    /**
+     * @param stateId id of state
+     * @return index of the state, or a negative number if the chain does not contain it
+     */
+    public int indexOf(int stateId) {
+        if (identityIds) {
+            return stateId < stateIds.length ? stateId : -1;
+        }
+        return Arrays.binarySearch(stateIds, stateId);
+    }
+
+    /**
+     * @param index of state
+     * @return position of the first transition from the state
+     */
+    public int rowStart(int index) {
+        return rowStart[index];
+    }
+
+    /**
+     * @param index of state
+     * @return position after the last transition from the state
+     */
+    public int rowEnd(int index) {
+        return rowStart[index + 1];
+    }
+
+    /**
+     * @param position of transition
+     * @return index of the successor of the transition
+     */
+    public int column(int position) {
+        return columns[position];
+    }
+
+    /**
+     * @param position of transition
+     * @return rate of the transition
+     */
+    public double rate(int position) {
+        return rates[position];
+    }
+
+    /**
+     * @param index of state
+     * @return total rate out of the state, ignoring self loops
+     */
+    public double exitRate(int index) {
+        double total = 0;
+        for (int k = rowStart[index]; k < rowStart[index + 1]; k++) {
+            if (columns[k] != index) {
+                total += rates[k];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return chain with every transition reversed, so the row of a state contains its predecessors
+     */
+    public SparseChain transpose() {
+        int n = stateIds.length;
+        int[] counts = new int[n + 1];
+        for (int column : columns) {
+            counts[column + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            counts[i + 1] += counts[i];
+        }
+        int[] transposedStart = counts.clone();
+        int[] next = Arrays.copyOf(counts, n);
+        int[] transposedColumns = new int[columns.length];
+        double[] transposedRates = new double[rates.length];
+        for (int row = 0; row < n; row++) {
+            for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                int position = next[columns[k]]++;
+                transposedColumns[position] = row;
+                transposedRates[position] = rates[k];
+            }
+        }
+        return new SparseChain(stateIds, transposedStart, transposedColumns, transposedRates);
+    }
+
+    /**
+     * Collects transitions in growable primitive arrays and then sorts them into rows
+     */
+    private static final class Builder {
+        private int[] sources = new int[1024];
+
+        private int[] successors = new int[1024];
+
+        private double[] rates = new double[1024];
+
+        private int transitions = 0;
+
+        /**
+         * Every state id seen, including those only seen as successors
+         */
+        private int[] ids = new int[1024];
+
+        private int idCount = 0;
+
+        private void add(Record record) {
+            addId(record.state);
+            for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
+                if (transitions == sources.length) {
+                    sources = Arrays.copyOf(sources, transitions * 2);
+                    successors = Arrays.copyOf(successors, transitions * 2);
+                    rates = Arrays.copyOf(rates, transitions * 2);
+                }
+                sources[transitions] = record.state;
+                successors[transitions] = entry.getKey();
+                rates[transitions] = entry.getValue();
+                transitions++;
+                addId(entry.getKey());
+            }
+        }
+
+        private void addId(int id) {
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = id;
+        }
+
+        private SparseChain build() {
+            int[] sorted = Arrays.copyOf(ids, idCount);
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            int[] stateIds = Arrays.copyOf(sorted, unique);
+
+            int[] rowStart = new int[unique + 1];
+            int[] sourceIndexes = new int[transitions];
+            for (int k = 0; k < transitions; k++) {
+                sourceIndexes[k] = Arrays.binarySearch(stateIds, sources[k]);
+                rowStart[sourceIndexes[k] + 1]++;
+            }
+            for (int i = 0; i < unique; i++) {
+                rowStart[i + 1] += rowStart[i];
+            }
+            int[] next = Arrays.copyOf(rowStart, unique);
+            int[] columns = new int[transitions];
+            double[] sortedRates = new double[transitions];
+            for (int k = 0; k < transitions; k++) {
+                int position = next[sourceIndexes[k]]++;
+                columns[position] = Arrays.binarySearch(stateIds, successors[k]);
+                sortedRates[position] = rates[k];
+            }
+            return new SparseChain(stateIds, rowStart, columns, sortedRates);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package uk.ac.imperial.markov;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * In memory rate matrix held as the transpose of a {@link uk.ac.imperial.markov.SparseChain}, so each
+ * entry of a product gathers from the predecessors of its state. Rows are independent and so are
+ * split into contiguous ranges of equal transition count that are multiplied on separate threads.
+ * <p>
+ * The state ids of the chain must be 0 to size() - 1, as written by the explorers.
+ * </p>
+ */
+public final class SparseRateMatrix implements RateMatrix {
+
+    /**
+     * Predecessors of each state
+     */
+    private final SparseChain predecessors;
+
+    /**
+     * Total rate out of each state
+     */
+    private final double[] exitRates;
+
+    /**
+     * Start of the rows multiplied by each thread, with a final entry for the end
+     */
+    private final int[] partitions;
+
+    /**
+     * Runs the partitions, null if single threaded
+     */
+    private final ExecutorService executor;
+
+    /**
+     * @param chain transitions of the chain
+     * @param threads number of threads to multiply with
+     */
+    public SparseRateMatrix(SparseChain chain, int threads) {
+        for (int i = 0; i < chain.size(); i++) {
+            if (chain.getStateId(i) != i) {
+                throw new IllegalArgumentException("State ids must be 0 to " + (chain.size() - 1));
+            }
+        }
+        predecessors = chain.transpose();
+        exitRates = new double[chain.size()];
+        for (int i = 0; i < chain.size(); i++) {
+            exitRates[i] = chain.exitRate(i);
+        }
+        partitions = partition(predecessors, threads);
+        executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    }
+
+    /**
+     * @param matrix rows to split
+     * @param parts number of ranges
+     * @return start of each range, balanced by number of transitions
+     */
+    private static int[] partition(SparseChain matrix, int parts) {
+        int n = matrix.size();
+        int[] starts = new int[parts + 1];
+        long perPart = (long) Math.max(1, matrix.transitionCount() + n) / parts + 1;
+        int row = 0;
+        for (int part = 1; part < parts; part++) {
+            long target = perPart * part;
+            while (row < n && (long) matrix.rowStart(row) + row < target) {
+                row++;
+            }
+            starts[part] = row;
+        }
+        starts[parts] = n;
+        return starts;
+    }
+
+    @Override
+    public int size() {
+        return exitRates.length;
+    }
+
+    @Override
+    public double[] exitRates() {
+        return exitRates.clone();
+    }
+
+    @Override
+    public void multiply(final double[] x, final double[] y) {
+        if (executor == null) {
+            multiplyRows(x, y, 0, size());
+            return;
+        }
+        List<Future<Void>> futures = new ArrayList<>(partitions.length - 1);
+        for (int part = 0; part < partitions.length - 1; part++) {
+            final int from = partitions[part];
+            final int to = partitions[part + 1];
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    multiplyRows(x, y, from, to);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst multiplying", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Multiplication failed", e.getCause());
+        }
+    }
+
+    /**
+     * @param x vector to multiply
+     * @param y result
+     * @param from first row, inclusive
+     * @param to last row, exclusive
+     */
+    private void multiplyRows(double[] x, double[] y, int from, int to) {
+        for (int j = from; j < to; j++) {
+            double sum = 0;
+            for (int k = predecessors.rowStart(j); k < predecessors.rowEnd(j); k++) {
+                int i = predecessors.column(k);
+                if (i != j) {
+                    sum += x[i] * predecessors.rate(k);
+                }
+            }
+            y[j] = sum;
+        }
+    }
+
+    /**
+     * Stops the threads used to multiply
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.io.PrefetchingInputStream;
+import uk.ac.imperial.io.StateReader;
+import uk.ac.imperial.state.Record;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Rate matrix that is never held in memory. Every product reads the transition file again from disk,
+ * so only the vectors need to fit in memory. The file is read ahead by a
+ * {@link uk.ac.imperial.io.PrefetchingInputStream} so that disk reads overlap with decoding.
+ * <p>
+ * The state ids in the file must be 0 to size() - 1, as written by the explorers.
+ * </p>
+ */
+public final class StreamingRateMatrix implements RateMatrix {
+
+    /**
+     * Transitions written by a {@link uk.ac.imperial.io.StateWriter}
+     */
+    private final File transitions;
+
+    /**
+     * Reads a single record
+     */
+    private final StateReader reader;
+
+    /**
+     * Total rate out of each state
+     */
+    private final double[] exitRates;
+
+    /**
+     * Reads the file once to find the number of states and their exit rates
+     *
+     * @param transitions file written by a {@link uk.ac.imperial.io.StateWriter}
+     * @param reader reads a single record
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the ids are not 0 to n - 1, one record per state
+     */
+    public StreamingRateMatrix(File transitions, StateReader reader) throws IOException {
+        this.transitions = transitions;
+        this.reader = reader;
+        double[] rates = new double[1024];
+        int size = 0;
+        int records = 0;
+        try (Input input = new Input(new FileInputStream(transitions))) {
+            while (!input.eof()) {
+                Record record = reader.readRecord(input);
+                records++;
+                size = Math.max(size, record.state + 1);
+                double exitRate = 0;
+                for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
+                    size = Math.max(size, entry.getKey() + 1);
+                    if (entry.getKey() != record.state) {
+                        exitRate += entry.getValue();
+                    }
+                }
+                if (record.state >= rates.length) {
+                    rates = Arrays.copyOf(rates, Math.max(rates.length * 2, record.state + 1));
+                }
+                rates[record.state] = exitRate;
+            }
+        }
+        if (records != size) {
+            throw new IllegalArgumentException("State ids must be 0 to n - 1 but " + records
+                    + " states have ids up to " + (size - 1));
+        }
+        exitRates = Arrays.copyOf(rates, size);
+    }
+
+    @Override
+    public int size() {
+        return exitRates.length;
+    }
+
+    @Override
+    public double[] exitRates() {
+        return exitRates.clone();
+    }
+
+    @Override
+    public void multiply(double[] x, double[] y) throws IOException {
+        Arrays.fill(y, 0);
+        try (Input input = new Input(new PrefetchingInputStream(new FileInputStream(transitions)))) {
+            while (!input.eof()) {
+                Record record = reader.readRecord(input);
+                double value = x[record.state];
+                if (value == 0) {
+                    continue;
+                }
+                for (Map.Entry<Integer, Double> entry : record.successors.entrySet()) {
+                    int successor = entry.getKey();
+                    if (successor != record.state) {
+                        y[successor] += value * entry.getValue();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Nothing to release, the file is only open during a product
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,85 @@
+package uk.ac.imperial.markov;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Computes the state probabilities of a continuous time Markov Chain at given times by uniformization.
+ * <p>
+ * The chain is uniformized with a rate q at least the largest exit rate, giving the discrete time matrix
+ * P = I + Q / q. The distribution at time t is then the sum over k of the Poisson(q t) weight of k
+ * multiplied by the initial distribution after k steps of P. Weights are truncated with
+ * {@link uk.ac.imperial.markov.FoxGlynn}. All times are solved in one pass, since the vectors after k steps
+ * are the same for every time and only their weights differ.
+ * </p>
+ */
+public final class TransientSolver {
+
+    /**
+     * Uniformization rate relative to the largest exit rate. Slightly larger than one
+     * keeps the diagonal of P positive, which avoids periodicity
+     */
+    private static final double UNIFORMIZATION_FACTOR = 1.02;
+
+    /**
+     * Maximum probability mass truncated at each time
+     */
+    private final double epsilon;
+
+    /**
+     * @param epsilon maximum probability mass truncated at each time
+     */
+    public TransientSolver(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * @param matrix rates of the chain
+     * @param initial probability of each state at time 0
+     * @param times to compute the distribution at, which must not be negative
+     * @return probability of each state at each time, indexed by time then state
+     * @throws IOException if the rates cannot be read
+     */
+    public double[][] solve(RateMatrix matrix, double[] initial, double[] times) throws IOException {
+        int n = matrix.size();
+        double[] exitRates = matrix.exitRates();
+        double maxRate = 0;
+        for (double rate : exitRates) {
+            maxRate = Math.max(maxRate, rate);
+        }
+        double q = maxRate * UNIFORMIZATION_FACTOR;
+
+        double[][] results = new double[times.length][n];
+        FoxGlynn[] weights = new FoxGlynn[times.length];
+        int steps = 0;
+        for (int t = 0; t < times.length; t++) {
+            weights[t] = FoxGlynn.compute(q * times[t], epsilon);
+            steps = Math.max(steps, weights[t].right);
+        }
+
+        double[] current = Arrays.copyOf(initial, n);
+        double[] product = new double[n];
+        for (int k = 0; k <= steps; k++) {
+            for (int t = 0; t < times.length; t++) {
+                double weight = weights[t].weight(k);
+                if (weight != 0) {
+                    double[] result = results[t];
+                    for (int i = 0; i < n; i++) {
+                        result[i] += weight * current[i];
+                    }
+                }
+            }
+            if (k == steps) {
+                break;
+            }
+            matrix.multiply(current, product);
+            for (int i = 0; i < n; i++) {
+                product[i] = current[i] + (product[i] - current[i] * exitRates[i]) / q;
+            }
+            double[] swap = current;
+            current = product;
+            product = swap;
+        }
+        return results;
+    }
+}
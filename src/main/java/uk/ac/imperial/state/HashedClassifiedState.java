@@ -82,7 +82,12 @@ public final class HashedClassifiedState implements ClassifiedState {
             return true;
         }
         if (!(o instanceof HashedClassifiedState)) {
-            return false;
+            if (!(o instanceof ClassifiedState)) {
+                return false;
+            }
+            ClassifiedState that = (ClassifiedState) o;
+            return tangible == that.isTangible() && primaryHash() == that.primaryHash()
+                    && secondaryHash().equals(that.secondaryHash());
         }
 
         HashedClassifiedState that = (HashedClassifiedState) o;
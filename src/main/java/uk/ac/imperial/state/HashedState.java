@@ -39,6 +39,21 @@ public final class HashedState implements State {
         hashTwo = calculateHashTwo();
     }
 
+    /**
+     * Constructor for states whose hashes have already been calculated, for example by
+     * {@link uk.ac.imperial.utils.StateHasher}. The hashes must be those the
+     * {@link #HashedState(java.util.Map)} constructor would calculate for the token counts.
+     *
+     * @param tokenCounts for each place in the state
+     * @param primaryHash primary hash of the token counts
+     * @param secondaryHash secondary hash of the token counts
+     */
+    public HashedState(Map<String, Map<String, Integer>> tokenCounts, int primaryHash, HashCode secondaryHash) {
+        this.tokenCounts.putAll(tokenCounts);
+        hashOne = primaryHash;
+        hashTwo = secondaryHash;
+    }
+
     /**
      * @return secondary hash of the state
      */
@@ -116,6 +131,9 @@ public final class HashedState implements State {
         if (this == o) {
             return true;
         }
+        if (o instanceof LazyHashedState) {
+            return o.equals(this);
+        }
         if (!(o instanceof HashedState)) {
             return false;
         }
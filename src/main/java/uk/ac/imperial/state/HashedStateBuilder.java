@@ -51,4 +51,14 @@ public final class HashedStateBuilder {
     public HashedState build() {
         return new HashedState(tokenCounts);
     }
+
+    /**
+     * Builds the state with the token counts of each place shared through the interner
+     *
+     * @param interner shares equal token count maps between states
+     * @return state of the places and tokens added
+     */
+    public HashedState build(TokenMapInterner interner) {
+        return new HashedState(interner.internAll(tokenCounts));
+    }
 }
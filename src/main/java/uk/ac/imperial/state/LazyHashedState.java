@@ -0,0 +1,141 @@
+package uk.ac.imperial.state;
+
+import com.google.common.hash.HashCode;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State with the same hashes and equality as {@link uk.ac.imperial.state.HashedState}, but which only
+ * calculates each hash the first time it is needed.
+ * <p>
+ * Successor generation creates many states that are compared and then discarded. Comparing two states
+ * only needs the secondary hash when their primary hashes are equal, so most discarded states never
+ * calculate it. States built with {@link #ofImmutable(java.util.Map)} also skip copying the token counts.
+ * </p>
+ */
+public final class LazyHashedState implements State {
+
+    /**
+     * Token counts, place id -&gt; {token id -&gt; count}
+     */
+    private final Map<String, Map<String, Integer>> tokenCounts;
+
+    /**
+     * Primary hash, null until first needed
+     */
+    private volatile Integer primaryHash;
+
+    /**
+     * Secondary hash, null until first needed
+     */
+    private volatile HashCode secondaryHash;
+
+    /**
+     * Copies the token counts, as {@link uk.ac.imperial.state.HashedState} does
+     *
+     * @param tokenCounts for each place in the state
+     */
+    public LazyHashedState(Map<String, Map<String, Integer>> tokenCounts) {
+        this.tokenCounts = new HashMap<>(tokenCounts);
+    }
+
+    /**
+     * @param tokenCounts for each place in the state, used without copying
+     * @param shared distinguishes this constructor from the copying one
+     */
+    private LazyHashedState(Map<String, Map<String, Integer>> tokenCounts, boolean shared) {
+        this.tokenCounts = tokenCounts;
+    }
+
+    /**
+     * Uses the token counts without copying them, so the caller must never modify them
+     *
+     * @param tokenCounts for each place in the state, which will not be modified again
+     * @return state of the token counts
+     */
+    public static LazyHashedState ofImmutable(Map<String, Map<String, Integer>> tokenCounts) {
+        return new LazyHashedState(tokenCounts, true);
+    }
+
+    @Override
+    public Map<String, Integer> getTokens(String id) {
+        return tokenCounts.get(id);
+    }
+
+    @Override
+    public boolean containsTokens(String id) {
+        return tokenCounts.containsKey(id);
+    }
+
+    @Override
+    public Collection<String> getPlaces() {
+        return Collections.unmodifiableSet(tokenCounts.keySet());
+    }
+
+    @Override
+    public int primaryHash() {
+        Integer hash = primaryHash;
+        if (hash == null) {
+            hash = StateUtils.hashCodeForState(this, StateUtils.getPrimaryHash()).asInt();
+            primaryHash = hash;
+        }
+        return hash;
+    }
+
+    @Override
+    public HashCode secondaryHash() {
+        HashCode hash = secondaryHash;
+        if (hash == null) {
+            hash = StateUtils.hashCodeForState(this, StateUtils.getSecondaryHash());
+            secondaryHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * @return true if the secondary hash has been calculated
+     */
+    boolean isSecondaryHashed() {
+        return secondaryHash != null;
+    }
+
+    @Override
+    public Map<String, Map<String, Integer>> asMap() {
+        return tokenCounts;
+    }
+
+    /**
+     * Equal to any {@link uk.ac.imperial.state.HashedState} or LazyHashedState with the same hashes.
+     * The secondary hashes are only compared if the primary hashes are equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LazyHashedState) && !(o instanceof HashedState)) {
+            return false;
+        }
+        State that = (State) o;
+        return primaryHash() == that.primaryHash() && secondaryHash().equals(that.secondaryHash());
+    }
+
+    /**
+     * Same as the hash code of an equal {@link uk.ac.imperial.state.HashedState}, which needs both hashes
+     */
+    @Override
+    public int hashCode() {
+        int result = primaryHash();
+        result = 31 * result + secondaryHash().hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return tokenCounts.toString();
+    }
+}
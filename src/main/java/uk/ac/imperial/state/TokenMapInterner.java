@@ -0,0 +1,84 @@
+package uk.ac.imperial.state;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hash-conses the token count maps of places, so that every state whose place holds the same
+ * tokens references one shared, unmodifiable map. Memory then grows with the number of distinct
+ * place contents rather than with the number of states multiplied by the number of places.
+ * <p>
+ * Looking up a map that has been seen before does not copy it. The first map seen with given contents
+ * is copied into a linked map, keeping its iteration order, and that copy is shared from then on.
+ * Since state hashes depend on the iteration order of the token maps, a later map with the same contents
+ * in a different order is given the first order, so states of one exploration should either all be
+ * interned or none of them be. Entries are held until the interner itself is discarded.
+ * The interner is thread safe.
+ * </p>
+ */
+public final class TokenMapInterner {
+
+    /**
+     * Shared map of every distinct token count map seen
+     */
+    private final ConcurrentMap<Map<String, Integer>, Map<String, Integer>> maps = new ConcurrentHashMap<>();
+
+    /**
+     * Number of maps interned, including those already seen
+     */
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param tokens token counts of a place
+     * @return shared unmodifiable map equal to the token counts
+     */
+    public Map<String, Integer> intern(Map<String, Integer> tokens) {
+        requests.incrementAndGet();
+        Map<String, Integer> shared = maps.get(tokens);
+        if (shared != null) {
+            return shared;
+        }
+        Map<String, Integer> copy = Collections.unmodifiableMap(new LinkedHashMap<>(tokens));
+        shared = maps.putIfAbsent(copy, copy);
+        return shared == null ? copy : shared;
+    }
+
+    /**
+     * @param tokenCounts token counts of a state, keyed by place
+     * @return new map of each place to its shared token counts
+     */
+    public Map<String, Map<String, Integer>> internAll(Map<String, Map<String, Integer>> tokenCounts) {
+        Map<String, Map<String, Integer>> interned = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> place : tokenCounts.entrySet()) {
+            interned.put(place.getKey(), intern(place.getValue()));
+        }
+        return interned;
+    }
+
+    /**
+     * @return number of distinct token count maps held
+     */
+    public int getDistinctCount() {
+        return maps.size();
+    }
+
+    /**
+     * @return number of token count maps interned, including repeats
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return fraction of interned maps that reused a shared map rather than adding a new one
+     */
+    public double getSharingRatio() {
+        long total = requests.get();
+        return total == 0 ? 0 : 1 - (double) maps.size() / total;
+    }
+}
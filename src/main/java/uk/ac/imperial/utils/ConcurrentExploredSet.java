@@ -0,0 +1,150 @@
+package uk.ac.imperial.utils;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread safe version of the {@link uk.ac.imperial.utils.ExploredSet}.
+ * <p>
+ * The set is split into segments, each of which is an {@link uk.ac.imperial.utils.ExploredSet}
+ * guarded by its own lock. A state is always placed in the same segment, chosen
+ * from the bits of its primary hash, so threads adding different states rarely contend.
+ * </p><p>
+ * The set also hands out state ids so that a state is given exactly one id
+ * no matter how many threads try to add it at the same time.
+ * </p>
+ */
+public final class ConcurrentExploredSet {
+
+    /**
+     * Returned by {@link #addIfAbsent(ClassifiedState)} if the state has already been added
+     */
+    public static final int ALREADY_PRESENT = -1;
+
+    /**
+     * Underlying segments of the set
+     */
+    private final ExploredSet[] segments;
+
+    /**
+     * Next id to be handed out
+     */
+    private final AtomicInteger nextId = new AtomicInteger(0);
+
+    /**
+     * Number of items in set
+     */
+    private final AtomicInteger itemCount = new AtomicInteger(0);
+
+    /**
+     * Initialises the underlying structure of the set
+     *
+     * @param arraySize total underlying size of the set. It will not change
+     * @param concurrencyLevel number of segments the set is split into
+     */
+    public ConcurrentExploredSet(int arraySize, int concurrencyLevel) {
+        segments = new ExploredSet[concurrencyLevel];
+        int segmentSize = Math.max(1, arraySize / concurrencyLevel);
+        for (int i = 0; i < concurrencyLevel; i++) {
+            segments[i] = new ExploredSet(segmentSize);
+        }
+    }
+
+    /**
+     * Adds the state with the next free id if it has not already been added
+     *
+     * @param state to be added
+     * @return the id assigned to the state, or ALREADY_PRESENT if it was already in the set
+     */
+    public int addIfAbsent(ClassifiedState state) {
+        ExploredSet segment = getSegment(state);
+        synchronized (segment) {
+            if (segment.contains(state)) {
+                return ALREADY_PRESENT;
+            }
+            int id = nextId.getAndIncrement();
+            segment.add(state, id);
+            itemCount.incrementAndGet();
+            return id;
+        }
+    }
+
+    /**
+     * Adds the state with the given id, replacing any previous id. This does not
+     * affect the ids handed out by {@link #addIfAbsent(ClassifiedState)} so should only be used
+     * when all ids are chosen by the caller
+     *
+     * @param state to be added
+     * @param id of the state
+     */
+    public void add(ClassifiedState state, int id) {
+        ExploredSet segment = getSegment(state);
+        synchronized (segment) {
+            int previousSize = segment.size();
+            segment.add(state, id);
+            if (segment.size() > previousSize) {
+                itemCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     *
+     * @param state to search for
+     * @return true if the state is stored as a compressed value in the set
+     */
+    public boolean contains(ClassifiedState state) {
+        ExploredSet segment = getSegment(state);
+        synchronized (segment) {
+            return segment.contains(state);
+        }
+    }
+
+    /**
+     * @param state state
+     * @return the unique id given to this state
+     */
+    public int getId(ClassifiedState state) {
+        ExploredSet segment = getSegment(state);
+        synchronized (segment) {
+            return segment.getId(state);
+        }
+    }
+
+    /**
+     *
+     * @return number of states housed in the set
+     */
+    public int size() {
+        return itemCount.get();
+    }
+
+    /**
+     * Clears the entire set and resets the ids handed out
+     */
+    public void clear() {
+        for (ExploredSet segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        itemCount.set(0);
+        nextId.set(0);
+    }
+
+    /**
+     * The segment is chosen from the mixed primary hash so that it does not
+     * correlate with the bucket the segment itself places the state in
+     *
+     * @param state whose segment is found
+     * @return segment the state belongs to
+     */
+    private ExploredSet getSegment(ClassifiedState state) {
+        int hash = state.primaryHash();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return segments[(hash >>> 1) % segments.length];
+    }
+}
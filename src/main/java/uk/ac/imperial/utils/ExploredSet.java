@@ -1,11 +1,16 @@
 package uk.ac.imperial.utils;
 
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.google.common.hash.HashCode;
 import uk.ac.imperial.state.ClassifiedState;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 
 /**
@@ -17,6 +22,11 @@ import java.util.TreeMap;
  */
 public final class ExploredSet {
 
+    /**
+     * Id returned by bulk lookups for states that are not in the set
+     */
+    public static final int NOT_PRESENT = -1;
+
     /**
      * Size of array
      */
@@ -73,10 +83,24 @@ public final class ExploredSet {
      * @param ids    all matching ids for the states
      */
     public void addAll(Collection<ClassifiedState> states, List<Integer> ids) {
-        int i = 0;
+        Iterator<Integer> idIterator = ids.iterator();
         for (ClassifiedState state : states) {
-            add(state, ids.get(i));
-            i++;
+            add(state, idIterator.next());
+        }
+    }
+
+    /**
+     * Adds every state with the id at the same position. States are added in bucket
+     * order rather than list order so that each bucket is visited once
+     *
+     * @param states states to add
+     * @param ids    id of each state
+     */
+    public void addAll(List<? extends ClassifiedState> states, int[] ids) {
+        ClassifiedState[] stateArray = toArray(states);
+        for (long entry : bucketOrder(stateArray)) {
+            int i = (int) entry;
+            add(stateArray[i], ids[i]);
         }
     }
 
@@ -92,6 +116,64 @@ public final class ExploredSet {
         return structure.containsKey(wrappedHash);
     }
 
+    /**
+     * @param states to search for
+     * @return whether each state is in the set, in the same order
+     */
+    public boolean[] containsAll(List<? extends ClassifiedState> states) {
+        int[] ids = getIds(states);
+        boolean[] contained = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            contained[i] = ids[i] != NOT_PRESENT;
+        }
+        return contained;
+    }
+
+    /**
+     * Looks up every state, visiting the buckets in order rather than jumping
+     * between them in list order
+     *
+     * @param states to search for
+     * @return id of each state in the same order, or NOT_PRESENT if it is not in the set
+     */
+    public int[] getIds(List<? extends ClassifiedState> states) {
+        ClassifiedState[] stateArray = toArray(states);
+        int[] ids = new int[stateArray.length];
+        TreeMap<WrappedHash, Integer> structure = null;
+        int structureLocation = -1;
+        for (long entry : bucketOrder(stateArray)) {
+            int location = (int) (entry >>> 32);
+            int i = (int) entry;
+            if (location != structureLocation) {
+                structure = array.get(location);
+                structureLocation = location;
+            }
+            Integer id = structure.get(new WrappedHash(stateArray[i].secondaryHash()));
+            ids[i] = id == null ? NOT_PRESENT : id;
+        }
+        return ids;
+    }
+
+    /**
+     * Copies the states once so that they are indexed in constant time whatever the list implementation
+     */
+    private static ClassifiedState[] toArray(List<? extends ClassifiedState> states) {
+        return states.toArray(new ClassifiedState[states.size()]);
+    }
+
+    /**
+     * @param states to order
+     * @return location of each state in the upper 32 bits and its position in the lower, sorted by location
+     */
+    private long[] bucketOrder(ClassifiedState[] states) {
+        long[] order = new long[states.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = ((long) getLocation(states[i]) << 32) | i;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
     /**
      * Works out where the state should be placed/found in array.
      * <p>
@@ -108,6 +190,37 @@ public final class ExploredSet {
         return Math.abs(location);
     }
 
+    /**
+     * @param primaryHash primary hash of a state
+     * @return the location that a state with the hash falls in the array
+     */
+    int getLocation(int primaryHash) {
+        return Math.abs(primaryHash % arraySize);
+    }
+
+    /**
+     * Puts the hash straight into its bucket without counting it, for loaders that
+     * fill disjoint buckets from several threads and then call {@link #recount()}
+     *
+     * @param location of the bucket
+     * @param secondaryHash secondary hash of the state
+     * @param id of the state
+     */
+    void putInBucket(int location, HashCode secondaryHash, int id) {
+        array.get(location).put(new WrappedHash(secondaryHash), id);
+    }
+
+    /**
+     * Sets the number of items to the number of hashes in the buckets
+     */
+    void recount() {
+        int count = 0;
+        for (TreeMap<WrappedHash, Integer> structure : array) {
+            count += structure.size();
+        }
+        itemCount = count;
+    }
+
     /**
      *
      * @param state to be hashed
@@ -143,6 +256,17 @@ public final class ExploredSet {
         return itemCount;
     }
 
+    /**
+     * @return report of how evenly the states are spread over the buckets
+     */
+    public HashDistributionReport getDistributionReport() {
+        int[] bucketSizes = new int[arraySize];
+        for (int i = 0; i < arraySize; i++) {
+            bucketSizes[i] = array.get(i).size();
+        }
+        return new HashDistributionReport(bucketSizes);
+    }
+
     /**
      * @param state state
      * @return the unique id given to this state
@@ -155,6 +279,67 @@ public final class ExploredSet {
         return structure.get(wrappedHash);
     }
 
+    /**
+     * Writes the entire set so that it can be restored by {@link #read(Input)}.
+     * <p>
+     * The set is written as primitive values rather than object by object:
+     * the number of entries in each bucket, followed by the secondary hash and id of every entry
+     * in bucket order. Entries are streamed from the buckets, so no copy of the set is made, and are
+     * read straight back into their buckets.
+     * </p>
+     * @param output to write to
+     */
+    public void write(Output output) {
+        int[] bucketSizes = new int[arraySize];
+        int entries = 0;
+        int hashBytes = 0;
+        for (int i = 0; i < arraySize; i++) {
+            TreeMap<WrappedHash, Integer> structure = array.get(i);
+            bucketSizes[i] = structure.size();
+            entries += structure.size();
+            if (hashBytes == 0 && !structure.isEmpty()) {
+                hashBytes = structure.firstKey().hash.bits() / 8;
+            }
+        }
+
+        output.writeInt(arraySize);
+        output.writeInt(entries);
+        output.writeInt(hashBytes);
+        output.writeInts(bucketSizes, true);
+        byte[] hash = new byte[hashBytes];
+        for (TreeMap<WrappedHash, Integer> structure : array) {
+            for (Map.Entry<WrappedHash, Integer> entry : structure.entrySet()) {
+                entry.getKey().hash.writeBytesTo(hash, 0, hashBytes);
+                output.writeBytes(hash);
+                output.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Restores a set written by {@link #write(Output)}
+     *
+     * @param input to read from
+     * @return set containing the same states and ids as the one written
+     */
+    public static ExploredSet read(Input input) {
+        int arraySize = input.readInt();
+        int entries = input.readInt();
+        int hashBytes = input.readInt();
+        int[] bucketSizes = input.readInts(arraySize, true);
+        ExploredSet set = new ExploredSet(arraySize);
+        byte[] hash = new byte[hashBytes];
+        for (int i = 0; i < arraySize; i++) {
+            TreeMap<WrappedHash, Integer> structure = set.array.get(i);
+            for (int j = 0; j < bucketSizes[i]; j++) {
+                input.readBytes(hash);
+                structure.put(new WrappedHash(HashCode.fromBytes(hash)), input.readInt());
+            }
+        }
+        set.itemCount = entries;
+        return set;
+    }
+
     /**
      * Private class for the TreeMap in order to make a states hash codes comparable
      */
@@ -0,0 +1,237 @@
+package uk.ac.imperial.utils;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.hash.HashCode;
+import uk.ac.imperial.io.Fingerprint;
+import uk.ac.imperial.io.FingerprintedStateIO;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuilds an {@link uk.ac.imperial.utils.ExploredSet} from stored hashes, without reading
+ * or hashing any token counts.
+ * <p>
+ * Hashes can be read from a state file written by {@link uk.ac.imperial.io.FingerprintedStateIO},
+ * or from a fingerprint sidecar file of fixed size records written by
+ * {@link #writeFingerprint(ClassifiedState, int, Output)}. Since sidecar records have a fixed size
+ * the file is split into segments that are read in parallel. Each thread then fills a disjoint
+ * set of buckets, so no locking is needed.
+ * </p>
+ */
+public final class ExploredSetLoader {
+
+    /**
+     * Private constructor for utility class
+     */
+    private ExploredSetLoader() {}
+
+    /**
+     * Writes a sidecar record in the order
+     *   - id
+     *   - Primary hash
+     *   - Number of bytes in the secondary hash
+     *   - Secondary hash
+     * Every record of a sidecar must have secondary hashes of the same length.
+     *
+     * @param state to write the hashes of
+     * @param id of the state
+     * @param output sidecar to write to
+     */
+    public static void writeFingerprint(ClassifiedState state, int id, Output output) {
+        byte[] secondaryHash = state.secondaryHash().asBytes();
+        output.writeInt(id);
+        output.writeInt(state.primaryHash());
+        output.writeByte(secondaryHash.length);
+        output.writeBytes(secondaryHash);
+    }
+
+    /**
+     * @param input states written by a {@link uk.ac.imperial.io.FingerprintedStateIO}
+     * @param io reads the hashes of each state
+     * @param arraySize size of the set
+     * @return set containing every state in the input
+     */
+    public static ExploredSet loadStates(Input input, FingerprintedStateIO io, int arraySize) {
+        ExploredSet set = new ExploredSet(arraySize);
+        while (!input.eof()) {
+            Fingerprint fingerprint = io.readFingerprint(input);
+            set.putInBucket(set.getLocation(fingerprint.primaryHash), fingerprint.secondaryHash, fingerprint.id);
+        }
+        set.recount();
+        return set;
+    }
+
+    /**
+     * @param sidecar fingerprint sidecar file
+     * @param arraySize size of the set
+     * @param threads number of segments to read in parallel
+     * @return set containing every state in the sidecar
+     * @throws IOException if the sidecar cannot be read
+     */
+    public static ExploredSet loadFingerprints(File sidecar, int arraySize, int threads) throws IOException {
+        ExploredSet set = new ExploredSet(arraySize);
+        long length = sidecar.length();
+        if (length == 0) {
+            return set;
+        }
+        int recordSize;
+        try (Input input = new Input(new FileInputStream(sidecar))) {
+            input.skip(8);
+            recordSize = 9 + input.readByte();
+        }
+        if (length % recordSize != 0) {
+            throw new IOException("Sidecar length " + length + " is not a multiple of its record size " + recordSize);
+        }
+        long records = length / recordSize;
+        int segments = (int) Math.max(1, Math.min(threads, records));
+
+        ExecutorService executor = Executors.newFixedThreadPool(segments);
+        try {
+            List<Future<Partitions>> reads = new ArrayList<>(segments);
+            for (int segment = 0; segment < segments; segment++) {
+                long first = records * segment / segments;
+                long last = records * (segment + 1) / segments;
+                reads.add(executor.submit(readTask(sidecar, set, recordSize, first, last, segments)));
+            }
+            List<Partitions> partitions = new ArrayList<>(segments);
+            for (Future<Partitions> read : reads) {
+                partitions.add(read.get());
+            }
+
+            List<Future<Void>> fills = new ArrayList<>(segments);
+            for (int partition = 0; partition < segments; partition++) {
+                fills.add(executor.submit(fillTask(set, partitions, partition, recordSize - 9)));
+            }
+            for (Future<Void> fill : fills) {
+                fill.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst loading fingerprints", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Loading fingerprints failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        set.recount();
+        return set;
+    }
+
+    /**
+     * Reads the records of a segment, grouping them by the partition of buckets they fall in
+     */
+    private static Callable<Partitions> readTask(final File sidecar, final ExploredSet set, final int recordSize,
+                                                 final long first, final long last, final int partitions) {
+        return new Callable<Partitions>() {
+            @Override
+            public Partitions call() throws IOException {
+                Partitions result = new Partitions(partitions, recordSize - 9);
+                try (FileInputStream stream = new FileInputStream(sidecar)) {
+                    long offset = first * recordSize;
+                    while (offset > 0) {
+                        offset -= stream.skip(offset);
+                    }
+                    Input input = new Input(stream);
+                    for (long record = first; record < last; record++) {
+                        int id = input.readInt();
+                        int location = set.getLocation(input.readInt());
+                        input.readByte();
+                        result.add(location % partitions, location, id, input);
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Puts every record of the partition from every segment into its bucket. Each hash is gathered into
+     * a reused buffer, since HashCode.fromBytes takes its own copy
+     */
+    private static Callable<Void> fillTask(final ExploredSet set, final List<Partitions> segments,
+                                           final int partition, final int hashBytes) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() {
+                byte[] hash = new byte[hashBytes];
+                for (Partitions segment : segments) {
+                    Partition entries = segment.partitions[partition];
+                    for (int i = 0; i < entries.size; i++) {
+                        System.arraycopy(entries.hashes, i * hashBytes, hash, 0, hashBytes);
+                        set.putInBucket(entries.locations[i], HashCode.fromBytes(hash), entries.ids[i]);
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Records read by one segment, grouped by partition
+     */
+    private static final class Partitions {
+        private final Partition[] partitions;
+
+        private Partitions(int count, int hashBytes) {
+            partitions = new Partition[count];
+            for (int i = 0; i < count; i++) {
+                partitions[i] = new Partition(hashBytes);
+            }
+        }
+
+        private void add(int partition, int location, int id, Input input) {
+            partitions[partition].add(location, id, input);
+        }
+    }
+
+    /**
+     * Growable primitive arrays of the records falling in one partition of buckets
+     */
+    private static final class Partition {
+        private final int hashBytes;
+
+        private int[] locations = new int[256];
+
+        private int[] ids = new int[256];
+
+        private byte[] hashes;
+
+        private int size = 0;
+
+        private Partition(int hashBytes) {
+            this.hashBytes = hashBytes;
+            hashes = new byte[256 * hashBytes];
+        }
+
+        private void add(int location, int id, Input input) {
+            if (size == ids.length) {
+                int capacity = (int) Math.min(size * 2L, Integer.MAX_VALUE / hashBytes);
+                if (capacity == size) {
+                    throw new IllegalStateException("Too many records in one partition, use more threads");
+                }
+                locations = Arrays.copyOf(locations, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                hashes = Arrays.copyOf(hashes, capacity * hashBytes);
+            }
+            locations[size] = location;
+            ids[size] = id;
+            input.readBytes(hashes, size * hashBytes, hashBytes);
+            size++;
+        }
+    }
+}
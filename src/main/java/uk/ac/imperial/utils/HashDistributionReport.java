@@ -0,0 +1,101 @@
+package uk.ac.imperial.utils;
+
+import com.google.common.hash.HashFunction;
+import uk.ac.imperial.state.State;
+
+/**
+ * Summary of how evenly a hash function spreads states over the buckets of an
+ * {@link uk.ac.imperial.utils.ExploredSet}. For a well distributed hash the bucket
+ * occupancies are Poisson distributed, so the index of dispersion, the variance
+ * divided by the mean, is close to one. Larger values mean crowded buckets.
+ */
+public final class HashDistributionReport {
+
+    /**
+     * Number of buckets
+     */
+    public final int buckets;
+
+    /**
+     * Number of items over all buckets
+     */
+    public final long items;
+
+    /**
+     * Mean items per bucket
+     */
+    public final double mean;
+
+    /**
+     * Variance of the items per bucket
+     */
+    public final double variance;
+
+    /**
+     * Most items in a single bucket
+     */
+    public final int maxOccupancy;
+
+    /**
+     * Number of buckets without any items
+     */
+    public final int emptyBuckets;
+
+    /**
+     * @param bucketSizes number of items in each bucket
+     */
+    public HashDistributionReport(int[] bucketSizes) {
+        buckets = bucketSizes.length;
+        long total = 0;
+        int max = 0;
+        int empty = 0;
+        for (int size : bucketSizes) {
+            total += size;
+            max = Math.max(max, size);
+            if (size == 0) {
+                empty++;
+            }
+        }
+        items = total;
+        maxOccupancy = max;
+        emptyBuckets = empty;
+        mean = buckets == 0 ? 0 : (double) total / buckets;
+        double squares = 0;
+        for (int size : bucketSizes) {
+            squares += (size - mean) * (size - mean);
+        }
+        variance = buckets == 0 ? 0 : squares / buckets;
+    }
+
+    /**
+     * Places every state in a bucket as {@link uk.ac.imperial.utils.ExploredSet#getLocation} would
+     * with the given primary hash
+     *
+     * @param states to place
+     * @param function primary hash function
+     * @param buckets number of buckets
+     * @return report of the bucket occupancy
+     */
+    public static HashDistributionReport analyse(Iterable<? extends State> states, HashFunction function,
+                                                 int buckets) {
+        int[] bucketSizes = new int[buckets];
+        for (State state : states) {
+            int hash = StateUtils.hashCodeForState(state, function).asInt();
+            bucketSizes[Math.abs(hash % buckets)]++;
+        }
+        return new HashDistributionReport(bucketSizes);
+    }
+
+    /**
+     * @return variance divided by mean, close to one for a well distributed hash
+     */
+    public double getDispersionIndex() {
+        return mean == 0 ? 0 : variance / mean;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d items in %d buckets: mean %.3f, variance %.3f, dispersion %.3f, max %d, empty %d",
+                items, buckets, mean, variance, getDispersionIndex(), maxOccupancy, emptyBuckets);
+    }
+}
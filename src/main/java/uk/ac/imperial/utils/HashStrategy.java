@@ -0,0 +1,48 @@
+package uk.ac.imperial.utils;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Hash functions that can be used to hash states, see
+ * {@link uk.ac.imperial.utils.StateUtils#setHashStrategies(HashStrategy, HashStrategy)}
+ */
+public enum HashStrategy {
+    /**
+     * Fast checksum, but poorly distributed on the short inputs states encode to
+     */
+    ADLER32(Hashing.adler32()),
+
+    /**
+     * Checksum with better distribution than adler32
+     */
+    CRC32(Hashing.crc32()),
+
+    /**
+     * 32 bit murmur3, well distributed and fast
+     */
+    MURMUR3_32(Hashing.murmur3_32()),
+
+    /**
+     * 128 bit murmur3, for secondary hashes with a low chance of collision
+     */
+    MURMUR3_128(Hashing.murmur3_128()),
+
+    /**
+     * 64 bit SipHash-2-4
+     */
+    SIP_HASH_24(Hashing.sipHash24());
+
+    private final HashFunction function;
+
+    HashStrategy(HashFunction function) {
+        this.function = function;
+    }
+
+    /**
+     * @return hash function of the strategy
+     */
+    public HashFunction getFunction() {
+        return function;
+    }
+}
@@ -0,0 +1,54 @@
+package uk.ac.imperial.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declares that a set of replicated components of a Petri net are interchangeable.
+ * <p>
+ * Each component is an ordered list of places, and the i'th place of every component plays the
+ * same role. Any permutation of the components maps a reachable marking to an equivalent one, e.g. for
+ * components (Idle1, Busy1), (Idle2, Busy2) the marking where component 1 is busy is equivalent to
+ * the marking where component 2 is busy.
+ * </p>
+ */
+public final class PlaceSymmetryGroup {
+
+    /**
+     * Interchangeable components, each an ordered list of places
+     */
+    private final List<List<String>> components;
+
+    /**
+     * @param components interchangeable components, each an ordered list of places of the same length
+     */
+    public PlaceSymmetryGroup(List<List<String>> components) {
+        if (components.isEmpty()) {
+            throw new IllegalArgumentException("A symmetry group needs at least one component");
+        }
+        int places = components.get(0).size();
+        List<List<String>> copy = new ArrayList<>(components.size());
+        for (List<String> component : components) {
+            if (component.size() != places) {
+                throw new IllegalArgumentException("All components must contain the same number of places");
+            }
+            copy.add(Collections.unmodifiableList(new ArrayList<>(component)));
+        }
+        this.components = Collections.unmodifiableList(copy);
+    }
+
+    /**
+     * @return interchangeable components, each an ordered list of places
+     */
+    public List<List<String>> getComponents() {
+        return components;
+    }
+
+    /**
+     * @return number of places in each component
+     */
+    public int getPlacesPerComponent() {
+        return components.get(0).size();
+    }
+}
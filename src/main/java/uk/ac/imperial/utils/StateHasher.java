@@ -0,0 +1,111 @@
+package uk.ac.imperial.utils;
+
+import com.google.common.hash.HashCode;
+import uk.ac.imperial.state.HashedState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds {@link uk.ac.imperial.state.HashedState}s in batches, calculating the same hashes as
+ * {@link uk.ac.imperial.utils.StateUtils#hashCodeForState} with less work per state.
+ * <p>
+ * Each state is encoded once into a reused byte buffer, in exactly the bytes the state funnel
+ * would feed a hasher, and both hash functions are then run over the buffer. The encoded bytes
+ * of every place and colour name are cached and the place ordering is sorted in a reused list.
+ * Instances are not thread safe, so each thread should use its own.
+ * </p>
+ */
+public final class StateHasher {
+
+    /**
+     * Encoded bytes of every name seen
+     */
+    private final Map<String, byte[]> nameBytes = new HashMap<>();
+
+    /**
+     * Reused place ordering
+     */
+    private final List<String> places = new ArrayList<>();
+
+    /**
+     * Reused encoding buffer
+     */
+    private byte[] buffer = new byte[256];
+
+    private int length = 0;
+
+    /**
+     * @param tokenCounts token counts of the state
+     * @return state with the token counts and their hashes
+     */
+    public HashedState build(Map<String, Map<String, Integer>> tokenCounts) {
+        encode(tokenCounts);
+        int primaryHash = StateUtils.getPrimaryHash().hashBytes(buffer, 0, length).asInt();
+        HashCode secondaryHash = StateUtils.getSecondaryHash().hashBytes(buffer, 0, length);
+        return new HashedState(tokenCounts, primaryHash, secondaryHash);
+    }
+
+    /**
+     * @param markings token counts of each state
+     * @return states with the token counts and their hashes, in the same order
+     */
+    public List<HashedState> buildAll(List<Map<String, Map<String, Integer>>> markings) {
+        List<HashedState> states = new ArrayList<>(markings.size());
+        for (Map<String, Map<String, Integer>> tokenCounts : markings) {
+            states.add(build(tokenCounts));
+        }
+        return states;
+    }
+
+    /**
+     * Encodes the token counts as the state funnel does, every place in sorted order followed
+     * by each of its colours and little endian count in iteration order
+     */
+    private void encode(Map<String, Map<String, Integer>> tokenCounts) {
+        places.clear();
+        places.addAll(tokenCounts.keySet());
+        Collections.sort(places);
+        length = 0;
+        for (String place : places) {
+            append(bytes(place));
+            for (Map.Entry<String, Integer> entry : tokenCounts.get(place).entrySet()) {
+                append(bytes(entry.getKey()));
+                appendInt(entry.getValue());
+            }
+        }
+    }
+
+    private byte[] bytes(String name) {
+        byte[] bytes = nameBytes.get(name);
+        if (bytes == null) {
+            bytes = name.getBytes();
+            nameBytes.put(name, bytes);
+        }
+        return bytes;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void appendInt(int value) {
+        ensureCapacity(4);
+        buffer[length++] = (byte) value;
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 24);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package uk.ac.imperial.utils;
 
 import com.google.common.hash.*;
+import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.type.TypeReference;
 import uk.ac.imperial.state.ClassifiedState;
@@ -16,6 +17,33 @@ import java.util.*;
  */
 public final class StateUtils {
 
+    /**
+     * System property naming the {@link uk.ac.imperial.utils.HashStrategy} used for primary hashes
+     */
+    public static final String PRIMARY_HASH_PROPERTY = "uk.ac.imperial.primaryHash";
+
+    /**
+     * System property naming the {@link uk.ac.imperial.utils.HashStrategy} used for secondary hashes
+     */
+    public static final String SECONDARY_HASH_PROPERTY = "uk.ac.imperial.secondaryHash";
+
+    /**
+     * Strategy for primary hashes, which place states in explored set buckets
+     */
+    private static volatile HashStrategy primaryStrategy =
+            strategyProperty(PRIMARY_HASH_PROPERTY, HashStrategy.ADLER32);
+
+    /**
+     * Strategy for secondary hashes, which are compared for state equality
+     */
+    private static volatile HashStrategy secondaryStrategy =
+            strategyProperty(SECONDARY_HASH_PROPERTY, HashStrategy.MURMUR3_128);
+
+    /**
+     * Shared mapper, which is thread safe once configured
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * Private constrictor for utility class
      */
@@ -29,9 +57,8 @@ public final class StateUtils {
      * @throws IOException if IO error occurs during read
      */
     public static State stateFromJson(String jsonState) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
         Map<String, Map<String, Integer>> map =
-                mapper.readValue(jsonState, new TypeReference<HashMap<String, HashMap<String, Integer>>>() {
+                MAPPER.readValue(jsonState, new TypeReference<HashMap<String, HashMap<String, Integer>>>() {
                 });
         return new HashedState(map);
     }
@@ -60,6 +87,13 @@ public final class StateUtils {
         return HashedClassifiedState.tangibleState(state);
     }
 
+    /**
+     * @return factory shared by every JSON parser and generator of states
+     */
+    public static JsonFactory getJsonFactory() {
+        return MAPPER.getJsonFactory();
+    }
+
     /**
      * Funnel used to generate HashCode of ExplorerState
      * <p>
@@ -75,6 +109,8 @@ public final class StateUtils {
     public static Funnel<State> getFunnel(final Collection<String> placeOrdering) {
 
         return new Funnel<State>() {
+            private static final long serialVersionUID = 1L;
+
             @Override
             public void funnel(State from, PrimitiveSink into) {
                 for (String place : placeOrdering) {
@@ -93,7 +129,7 @@ public final class StateUtils {
      * @return primary hash function to be used
      */
     public static HashFunction getPrimaryHash() {
-        return Hashing.adler32();
+        return primaryStrategy.getFunction();
     }
 
     /**
@@ -101,7 +137,46 @@ public final class StateUtils {
      * @return secondary hash function to be used
      */
     public static HashFunction getSecondaryHash() {
-        return  Hashing.murmur3_128();
+        return secondaryStrategy.getFunction();
+    }
+
+    /**
+     * Changes the hash functions used for states. The defaults are adler32 and murmur3_128, unless
+     * overridden by the primary and secondary hash system properties.
+     * <p>
+     * States keep the hashes they were created with, so this must be called before any states
+     * are created, and saved explored sets can only be restored with the strategies they were saved with.
+     * </p>
+     * @param primary strategy for primary hashes
+     * @param secondary strategy for secondary hashes
+     */
+    public static void setHashStrategies(HashStrategy primary, HashStrategy secondary) {
+        primaryStrategy = primary;
+        secondaryStrategy = secondary;
+    }
+
+    /**
+     * @return strategy used for primary hashes
+     */
+    public static HashStrategy getPrimaryStrategy() {
+        return primaryStrategy;
+    }
+
+    /**
+     * @return strategy used for secondary hashes
+     */
+    public static HashStrategy getSecondaryStrategy() {
+        return secondaryStrategy;
+    }
+
+    /**
+     * @param property system property naming a strategy
+     * @param defaultStrategy strategy if the property is not set
+     * @return strategy named by the property
+     */
+    private static HashStrategy strategyProperty(String property, HashStrategy defaultStrategy) {
+        String name = System.getProperty(property);
+        return name == null ? defaultStrategy : HashStrategy.valueOf(name);
     }
 
 
@@ -0,0 +1,145 @@
+package uk.ac.imperial.utils;
+
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Maps every marking to a canonical representative of its orbit under the declared
+ * {@link uk.ac.imperial.utils.PlaceSymmetryGroup}s, so that equivalent markings hash to the same value.
+ * <p>
+ * Since each group may permute its components arbitrarily, the representative is found by sorting
+ * the components of the group by their token counts and placing them back in sorted order. This costs
+ * a sort of the components rather than a search of every permutation.
+ * </p><p>
+ * Groups must not share places.
+ * </p>
+ */
+public final class SymmetryReduction {
+
+    /**
+     * Declared symmetries
+     */
+    private final List<PlaceSymmetryGroup> groups;
+
+    /**
+     * @param groups declared symmetries, which must not share places
+     */
+    public SymmetryReduction(List<PlaceSymmetryGroup> groups) {
+        this.groups = new ArrayList<>(groups);
+    }
+
+    /**
+     * @param state to canonicalize
+     * @return representative of the states orbit, with the same classification. The state itself
+     * is returned if it is already the representative
+     */
+    public ClassifiedState canonicalize(ClassifiedState state) {
+        Map<String, Map<String, Integer>> tokenCounts = state.asMap();
+        Map<String, Map<String, Integer>> canonical = null;
+        for (PlaceSymmetryGroup group : groups) {
+            List<List<String>> components = group.getComponents();
+            Integer[] order = sortedComponents(group, tokenCounts);
+            for (int position = 0; position < order.length; position++) {
+                if (order[position] == position) {
+                    continue;
+                }
+                if (canonical == null) {
+                    canonical = new HashMap<>(tokenCounts);
+                }
+                List<String> target = components.get(position);
+                List<String> source = components.get(order[position]);
+                for (int place = 0; place < target.size(); place++) {
+                    Map<String, Integer> tokens = tokenCounts.get(source.get(place));
+                    if (tokens == null) {
+                        canonical.remove(target.get(place));
+                    } else {
+                        canonical.put(target.get(place), tokens);
+                    }
+                }
+            }
+        }
+        if (canonical == null) {
+            return state;
+        }
+        return new HashedClassifiedState(new HashedState(canonical), state.isTangible());
+    }
+
+    /**
+     * @param group whose components are sorted
+     * @param tokenCounts marking of the state
+     * @return component indexes ordered by the components token counts
+     */
+    private Integer[] sortedComponents(PlaceSymmetryGroup group, Map<String, Map<String, Integer>> tokenCounts) {
+        List<List<String>> components = group.getComponents();
+        List<String> colours = colours(components, tokenCounts);
+        final int[][] keys = new int[components.size()][];
+        Integer[] order = new Integer[components.size()];
+        for (int i = 0; i < components.size(); i++) {
+            keys[i] = key(components.get(i), colours, tokenCounts);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                int[] a = keys[first];
+                int[] b = keys[second];
+                for (int i = 0; i < a.length; i++) {
+                    if (a[i] != b[i]) {
+                        return Integer.compare(a[i], b[i]);
+                    }
+                }
+                return 0;
+            }
+        });
+        return order;
+    }
+
+    /**
+     * @param components of the group
+     * @param tokenCounts marking of the state
+     * @return every token colour present in the components, sorted
+     */
+    private static List<String> colours(List<List<String>> components, Map<String, Map<String, Integer>> tokenCounts) {
+        TreeSet<String> colours = new TreeSet<>();
+        for (List<String> component : components) {
+            for (String place : component) {
+                Map<String, Integer> tokens = tokenCounts.get(place);
+                if (tokens != null) {
+                    colours.addAll(tokens.keySet());
+                }
+            }
+        }
+        return new ArrayList<>(colours);
+    }
+
+    /**
+     * Absent places and colours are distinguished from zero counts since they hash differently
+     *
+     * @param component places of a single component
+     * @param colours every colour present in the group
+     * @param tokenCounts marking of the state
+     * @return sort key of the component, one entry per place and colour
+     */
+    private static int[] key(List<String> component, List<String> colours, Map<String, Map<String, Integer>> tokenCounts) {
+        int[] key = new int[component.size() * (colours.size() + 1)];
+        int index = 0;
+        for (String place : component) {
+            Map<String, Integer> tokens = tokenCounts.get(place);
+            key[index++] = tokens == null ? 0 : 1;
+            for (String colour : colours) {
+                Integer count = tokens == null ? null : tokens.get(colour);
+                key[index++] = count == null ? Integer.MIN_VALUE : count;
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,113 @@
+package uk.ac.imperial.benchmark;
+
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal timing harness shared by the benchmarks in this package.
+ * <p>
+ * The benchmarks are not run by the test suite, since their useful sizes take minutes and gigabytes.
+ * Each has a main method taking its sizes as arguments, and is run against the test classpath:
+ * </p>
+ * <pre>
+ *   mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ *   java -Xmx4g -cp target/classes:target/test-classes:$(cat cp.txt) uk.ac.imperial.benchmark.FrontierQueueBenchmark
+ * </pre>
+ * <p>
+ * Every task is run once to warm up and then timed over several runs, reporting the fastest.
+ * </p>
+ */
+final class Benchmark {
+
+    /**
+     * Work to time
+     */
+    interface Task {
+        /**
+         * @throws Exception if the work fails, which stops the benchmark
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Private constructor for utility class
+     */
+    private Benchmark() {}
+
+    /**
+     * @param name printed with the result
+     * @param operations number of operations performed by each run of the task
+     * @param unit name of an operation
+     * @param runs number of timed runs after the warm up run
+     * @param task work to time
+     * @return fastest time of a single run in seconds
+     * @throws Exception if the task fails
+     */
+    static double time(String name, long operations, String unit, int runs, Task task) throws Exception {
+        task.run();
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+            System.gc();
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return report(name, operations, unit, best);
+    }
+
+    /**
+     * @param name printed with the result
+     * @param operations number of operations performed
+     * @param unit name of an operation
+     * @param nanos time taken
+     * @return time taken in seconds
+     */
+    static double report(String name, long operations, String unit, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%-48s %10.3f s %14.0f %s/s", name, seconds,
+                operations / seconds, unit));
+        return seconds;
+    }
+
+    /**
+     * @param args command line arguments
+     * @param index of the argument
+     * @param defaultValue used if the argument is missing
+     * @return argument as a long
+     */
+    static long argument(String[] args, int index, long defaultValue) {
+        return args.length > index ? Long.parseLong(args[index]) : defaultValue;
+    }
+
+    /**
+     * Prints the heap available, since several claims depend on the data being larger than it
+     */
+    static void printEnvironment() {
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(String.format(Locale.ROOT, "%d processors, %d MB max heap",
+                runtime.availableProcessors(), runtime.maxMemory() >> 20));
+    }
+
+    /**
+     * Thread safe processor that only counts what it is given
+     */
+    static final class CountingProcessor implements StateProcessor {
+        final AtomicLong states = new AtomicLong();
+
+        final AtomicLong transitions = new AtomicLong();
+
+        @Override
+        public void processTransitions(int stateId, Map<Integer, Double> successorRates) {
+            transitions.addAndGet(successorRates.size());
+        }
+
+        @Override
+        public void processState(ClassifiedState state, int stateId) {
+            states.incrementAndGet();
+        }
+    }
+}
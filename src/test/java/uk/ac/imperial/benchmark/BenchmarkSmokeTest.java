@@ -0,0 +1,39 @@
+package uk.ac.imperial.benchmark;
+
+import org.junit.Test;
+
+/**
+ * Runs every benchmark at a tiny size so that they keep compiling and working
+ */
+public class BenchmarkSmokeTest {
+
+    @Test
+    public void exploration() throws Exception {
+        ExplorationBenchmark.main(new String[]{"10", "2", "1"});
+    }
+
+    @Test
+    public void stateReload() throws Exception {
+        StateReloadBenchmark.main(new String[]{"1000", "1"});
+    }
+
+    @Test
+    public void json() throws Exception {
+        JsonBenchmark.main(new String[]{"1000", "2", "1"});
+    }
+
+    @Test
+    public void chainImport() throws Exception {
+        ImportBenchmark.main(new String[]{"1", "2", "1"});
+    }
+
+    @Test
+    public void frontierQueue() throws Exception {
+        FrontierQueueBenchmark.main(new String[]{"10000", "1000", "1"});
+    }
+
+    @Test
+    public void exploredSetLoad() throws Exception {
+        ExploredSetLoadBenchmark.main(new String[]{"10000", "2", "1"});
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.imperial.benchmark;
+
+import uk.ac.imperial.explorer.ParallelStateExplorer;
+import uk.ac.imperial.explorer.SuccessorFunction;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Speedup of the {@link uk.ac.imperial.explorer.ParallelStateExplorer} over its single threaded run,
+ * exploring tokens circulating around a ring of places.
+ * <p>
+ * Arguments: number of tokens (default 60), maximum number of threads (default all processors).
+ * The threads are doubled from 1 up to the maximum.
+ * </p>
+ */
+public final class ExplorationBenchmark {
+
+    /**
+     * Places in the ring
+     */
+    private static final int PLACES = 4;
+
+    /**
+     * Moves one token from each marked place to the next place in the ring
+     */
+    static final SuccessorFunction RING = new SuccessorFunction() {
+        @Override
+        public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) {
+            int[] tokens = new int[PLACES];
+            for (int place = 0; place < PLACES; place++) {
+                tokens[place] = state.getTokens("P" + place).get("Default");
+            }
+            Map<ClassifiedState, Double> successors = new HashMap<>();
+            for (int place = 0; place < PLACES; place++) {
+                if (tokens[place] > 0) {
+                    tokens[place]--;
+                    tokens[(place + 1) % PLACES]++;
+                    successors.put(ring(tokens), place + 1.0);
+                    tokens[(place + 1) % PLACES]--;
+                    tokens[place]++;
+                }
+            }
+            return successors;
+        }
+    };
+
+    private ExplorationBenchmark() {}
+
+    /**
+     * @param tokens token count of each place
+     * @return tangible state of the ring
+     */
+    static ClassifiedState ring(int[] tokens) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (int place = 0; place < tokens.length; place++) {
+            builder.placeWithToken("P" + place, "Default", tokens[place]);
+        }
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tokens = (int) Benchmark.argument(args, 0, 60);
+        int maxThreads = (int) Benchmark.argument(args, 1, Runtime.getRuntime().availableProcessors());
+        int runs = (int) Benchmark.argument(args, 2, 3);
+        Benchmark.printEnvironment();
+
+        final int[] marking = new int[PLACES];
+        marking[0] = tokens;
+        long states = new ParallelStateExplorer(RING, new Benchmark.CountingProcessor(), 1, 1 << 16, false)
+                .explore(ring(marking));
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            final int explorerThreads = threads;
+            double seconds = Benchmark.time("explore, " + threads + " threads", states, "states", runs,
+                    new Benchmark.Task() {
+                        @Override
+                        public void run() throws Exception {
+                            new ParallelStateExplorer(RING, new Benchmark.CountingProcessor(), explorerThreads,
+                                    1 << 16, false).explore(ring(marking));
+                        }
+                    });
+            if (threads == 1) {
+                single = seconds;
+            }
+            System.out.println(String.format("  speedup %.2f", single / seconds));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package uk.ac.imperial.benchmark;
+
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.hash.HashCode;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.utils.ExploredSet;
+import uk.ac.imperial.utils.ExploredSetLoader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Time to rebuild an {@link uk.ac.imperial.utils.ExploredSet} from a fingerprint sidecar with the
+ * {@link uk.ac.imperial.utils.ExploredSetLoader}, on one thread and in parallel, against adding the same
+ * hashes one state at a time. The entries are random 32 bit primary and 128 bit secondary hashes, so no
+ * token counts are read or hashed by either. A set takes around 150 bytes of heap per entry, so 10^8
+ * entries need a heap of about 16 GB.
+ * <p>
+ * Arguments: number of entries (default 10^7), number of threads (default all processors).
+ * </p>
+ */
+public final class ExploredSetLoadBenchmark {
+
+    /**
+     * Bytes in each secondary hash, as for murmur3_128
+     */
+    private static final int HASH_BYTES = 16;
+
+    private ExploredSetLoadBenchmark() {}
+
+    /**
+     * @param random source of the hashes
+     * @return state with no token counts and random hashes
+     */
+    private static ClassifiedState fingerprint(Random random) {
+        byte[] secondaryHash = new byte[HASH_BYTES];
+        random.nextBytes(secondaryHash);
+        return HashedClassifiedState.tangibleState(new HashedState(new HashMap<String, Map<String, Integer>>(),
+                random.nextInt(), HashCode.fromBytes(secondaryHash)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        final long entries = Benchmark.argument(args, 0, 10000000);
+        final int threads = (int) Benchmark.argument(args, 1, Runtime.getRuntime().availableProcessors());
+        int runs = (int) Benchmark.argument(args, 2, 1);
+        final int arraySize = (int) Math.max(1, entries / 4);
+        Benchmark.printEnvironment();
+
+        final File sidecar = File.createTempFile("explored", ".fingerprints");
+        try {
+            try (Output output = new Output(new FileOutputStream(sidecar))) {
+                Random random = new Random(42);
+                for (long i = 0; i < entries; i++) {
+                    ExploredSetLoader.writeFingerprint(fingerprint(random), (int) i, output);
+                }
+            }
+
+            Benchmark.time("ExploredSet.add one at a time", entries, "entries", runs, new Benchmark.Task() {
+                @Override
+                public void run() {
+                    ExploredSet set = new ExploredSet(arraySize);
+                    Random random = new Random(42);
+                    for (long i = 0; i < entries; i++) {
+                        set.add(fingerprint(random), (int) i);
+                    }
+                    check(set, entries);
+                }
+            });
+            for (final int loadThreads : new int[]{1, threads}) {
+                Benchmark.time("loadFingerprints, " + loadThreads + " threads", entries, "entries", runs,
+                        new Benchmark.Task() {
+                            @Override
+                            public void run() throws Exception {
+                                check(ExploredSetLoader.loadFingerprints(sidecar, arraySize, loadThreads), entries);
+                            }
+                        });
+                if (threads == 1) {
+                    break;
+                }
+            }
+        } finally {
+            sidecar.delete();
+        }
+    }
+
+    private static void check(ExploredSet set, long entries) {
+        if (set.size() != entries) {
+            throw new IllegalStateException("Loaded " + set.size() + " of " + entries + " entries");
+        }
+    }
+}
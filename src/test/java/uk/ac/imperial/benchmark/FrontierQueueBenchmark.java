@@ -0,0 +1,65 @@
+package uk.ac.imperial.benchmark;
+
+import uk.ac.imperial.explorer.FrontierQueue;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Push and poll throughput of a {@link uk.ac.imperial.explorer.FrontierQueue} holding far more states than
+ * its memory limit, in both orders. Every state is pushed before any is polled, so almost all of them are
+ * spilled to disk and loaded back. Run with a heap smaller than the states would take as objects,
+ * around 500 bytes each, to show the queue is not bound by the heap.
+ * <p>
+ * Arguments: number of states (default 10^7), memory limit in states (default 10^5).
+ * </p>
+ */
+public final class FrontierQueueBenchmark {
+
+    /**
+     * Distinct states pushed in turn, so that building states is not timed
+     */
+    private static final int DISTINCT_STATES = 4096;
+
+    private FrontierQueueBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        long states = Benchmark.argument(args, 0, 10000000);
+        int memoryLimit = (int) Benchmark.argument(args, 1, 100000);
+        int runs = (int) Benchmark.argument(args, 2, 2);
+        Benchmark.printEnvironment();
+
+        ClassifiedState[] pool = new ClassifiedState[DISTINCT_STATES];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = StateReloadBenchmark.state(i * 7919L);
+        }
+        File directory = Files.createTempDirectory("frontier").toFile();
+        try {
+            for (FrontierQueue.Order order : FrontierQueue.Order.values()) {
+                for (int run = 0; run < runs; run++) {
+                    try (FrontierQueue queue = new FrontierQueue(directory, order, memoryLimit)) {
+                        long start = System.nanoTime();
+                        for (long i = 0; i < states; i++) {
+                            queue.push(pool[(int) (i % DISTINCT_STATES)], (int) i);
+                        }
+                        long pushed = System.nanoTime();
+                        long polled = 0;
+                        while (queue.poll() != null) {
+                            polled++;
+                        }
+                        long end = System.nanoTime();
+                        if (polled != states) {
+                            throw new IllegalStateException("Polled " + polled + " of " + states + " states");
+                        }
+                        System.out.println("run " + run + ", " + queue.getSpilledSegments() + " segments spilled");
+                        Benchmark.report("push, " + order, states, "states", pushed - start);
+                        Benchmark.report("poll, " + order, states, "states", end - pushed);
+                    }
+                }
+            }
+        } finally {
+            directory.delete();
+        }
+    }
+}
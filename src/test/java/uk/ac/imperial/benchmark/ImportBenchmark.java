@@ -0,0 +1,111 @@
+package uk.ac.imperial.benchmark;
+
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.ChainImporter;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateIOProcessor;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Throughput of the {@link uk.ac.imperial.io.ChainImporter} on a synthetic PRISM .tra file, against
+ * reading the same file without parsing it. The file is read once before timing, so unless it is larger
+ * than the page cache both are measured from memory rather than disk.
+ * <p>
+ * Arguments: size of the file in MB (default 256, use several GB to exceed the page cache),
+ * number of parsing threads (default all processors).
+ * </p>
+ */
+public final class ImportBenchmark {
+
+    /**
+     * Transitions out of every state
+     */
+    private static final int TRANSITIONS_PER_STATE = 4;
+
+    private ImportBenchmark() {}
+
+    /**
+     * Writes a .tra file of at least the given size
+     *
+     * @return number of transitions written
+     */
+    static long writeTra(File tra, long bytes) throws Exception {
+        long states = bytes / (TRANSITIONS_PER_STATE * 24) + 1;
+        long transitions = states * TRANSITIONS_PER_STATE;
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(tra), 1 << 16)) {
+            output.write((states + " " + transitions + "\n").getBytes(StandardCharsets.US_ASCII));
+            StringBuilder line = new StringBuilder(64);
+            for (long state = 0; state < states; state++) {
+                for (int k = 1; k <= TRANSITIONS_PER_STATE; k++) {
+                    line.setLength(0);
+                    line.append(state).append(' ').append((state + k * 7919) % states).append(' ')
+                            .append(k * 0.125).append('\n');
+                    output.write(line.toString().getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+        }
+        return transitions;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long megabytes = Benchmark.argument(args, 0, 256);
+        int threads = (int) Benchmark.argument(args, 1, Runtime.getRuntime().availableProcessors());
+        int runs = (int) Benchmark.argument(args, 2, 3);
+        Benchmark.printEnvironment();
+
+        final File tra = File.createTempFile("chain", ".tra");
+        final File kryo = File.createTempFile("chain", ".transitions");
+        try {
+            writeTra(tra, megabytes << 20);
+            double size = tra.length() / (double) (1 << 20);
+
+            Benchmark.time("read without parsing", (long) size, "MB", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+                    try (FileChannel channel = new FileInputStream(tra).getChannel()) {
+                        while (channel.read(buffer) >= 0) {
+                            buffer.clear();
+                        }
+                    }
+                }
+            });
+            for (final int importThreads : new int[]{1, threads}) {
+                Benchmark.time("import, counting, " + importThreads + " threads", (long) size, "MB", runs,
+                        new Benchmark.Task() {
+                            @Override
+                            public void run() throws Exception {
+                                new ChainImporter(new Benchmark.CountingProcessor(), importThreads)
+                                        .importTransitions(tra);
+                            }
+                        });
+                Benchmark.time("import to Kryo, " + importThreads + " threads", (long) size, "MB", runs,
+                        new Benchmark.Task() {
+                            @Override
+                            public void run() throws Exception {
+                                try (Output transitions = new Output(new FileOutputStream(kryo));
+                                     Output states = new Output(new FileOutputStream(kryo + ".states"))) {
+                                    new ChainImporter(new StateIOProcessor(new KryoStateIO(), transitions, states),
+                                            importThreads).importTransitions(tra);
+                                }
+                            }
+                        });
+                if (threads == 1) {
+                    break;
+                }
+            }
+        } finally {
+            tra.delete();
+            kryo.delete();
+            new File(kryo + ".states").delete();
+        }
+    }
+}
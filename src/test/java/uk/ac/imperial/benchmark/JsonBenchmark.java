@@ -0,0 +1,93 @@
+package uk.ac.imperial.benchmark;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import uk.ac.imperial.io.JsonStateReader;
+import uk.ac.imperial.io.JsonStateWriter;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * States per second read from a JSON lines file by the {@link uk.ac.imperial.io.JsonStateReader}, on one
+ * thread and in parallel, against binding each line with {@link uk.ac.imperial.utils.StateUtils#stateFromJson}
+ * and against binding each line with a new ObjectMapper, as stateFromJson used to.
+ * <p>
+ * Arguments: number of states (default 10^6), number of parallel threads (default all processors).
+ * </p>
+ */
+public final class JsonBenchmark {
+
+    private JsonBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        final long states = Benchmark.argument(args, 0, 1000000);
+        final int threads = (int) Benchmark.argument(args, 1, Runtime.getRuntime().availableProcessors());
+        int runs = (int) Benchmark.argument(args, 2, 3);
+        Benchmark.printEnvironment();
+
+        final File file = File.createTempFile("states", ".jsonl");
+        try {
+            try (JsonStateWriter writer = new JsonStateWriter(new FileOutputStream(file))) {
+                for (long i = 0; i < states; i++) {
+                    writer.write(StateReloadBenchmark.state(i));
+                }
+            }
+
+            Benchmark.time("new ObjectMapper per line", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    try (BufferedReader reader = reader(file)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            HashMap<String, HashMap<String, Integer>> map = new ObjectMapper().readValue(line,
+                                    new TypeReference<HashMap<String, HashMap<String, Integer>>>() {
+                                    });
+                            new HashedState(new HashMap<String, java.util.Map<String, Integer>>(map));
+                        }
+                    }
+                }
+            });
+            Benchmark.time("StateUtils.stateFromJson per line", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    try (BufferedReader reader = reader(file)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            StateUtils.stateFromJson(line);
+                        }
+                    }
+                }
+            });
+            Benchmark.time("JsonStateReader, streaming", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    try (JsonStateReader reader = new JsonStateReader(new FileInputStream(file))) {
+                        while (reader.nextState() != null) {
+                            continue;
+                        }
+                    }
+                }
+            });
+            Benchmark.time("JsonStateReader, " + threads + " threads", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    JsonStateReader.readAll(file, threads);
+                }
+            });
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static BufferedReader reader(File file) throws Exception {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,131 @@
+package uk.ac.imperial.benchmark;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.FingerprintedStateIO;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateWriter;
+import uk.ac.imperial.io.TokenCountVisitor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+/**
+ * Reload time of a state file written by {@link uk.ac.imperial.io.FingerprintedStateIO}, which trusts the
+ * stored hashes, against {@link uk.ac.imperial.io.KryoStateIO}, which hashes every state again, and against
+ * decoding the Kryo token counts alone.
+ * <p>
+ * Arguments: number of states (default 10^6).
+ * </p>
+ */
+public final class StateReloadBenchmark {
+
+    /**
+     * Places in every state
+     */
+    private static final int PLACES = 10;
+
+    private StateReloadBenchmark() {}
+
+    /**
+     * @param index of the state
+     * @return distinct state for every index
+     */
+    static ClassifiedState state(long index) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        long remaining = index;
+        for (int place = 0; place < PLACES; place++) {
+            builder.placeWithToken("P" + place, "Default", (int) (remaining % 8));
+            remaining /= 8;
+        }
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    /**
+     * @param file to write
+     * @param writer encodes the states
+     * @param states number of states to write
+     */
+    static void write(File file, StateWriter writer, long states) throws Exception {
+        try (Output output = new Output(new FileOutputStream(file))) {
+            for (long i = 0; i < states; i++) {
+                writer.writeState(state(i), (int) i, output);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final long states = Benchmark.argument(args, 0, 1000000);
+        int runs = (int) Benchmark.argument(args, 1, 3);
+        Benchmark.printEnvironment();
+
+        final File kryoFile = File.createTempFile("reload", ".kryo");
+        final File fingerprintedFile = File.createTempFile("reload", ".fingerprinted");
+        try {
+            write(kryoFile, new KryoStateIO(), states);
+            write(fingerprintedFile, new FingerprintedStateIO(), states);
+
+            Benchmark.time("decode token counts only", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    KryoStateIO io = new KryoStateIO();
+                    try (Input input = new Input(new FileInputStream(kryoFile))) {
+                        for (long i = 0; i < states; i++) {
+                            io.readTokenCounts(input);
+                        }
+                    }
+                }
+            });
+            Benchmark.time("visit token counts without maps", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    KryoStateIO io = new KryoStateIO();
+                    TokenCountVisitor visitor = new TokenCountVisitor() {
+                        @Override
+                        public boolean visitPlace(String place) {
+                            return true;
+                        }
+
+                        @Override
+                        public void visitTokens(String colour, int count) {
+                        }
+                    };
+                    try (Input input = new Input(new FileInputStream(kryoFile))) {
+                        for (long i = 0; i < states; i++) {
+                            io.readTokenCounts(input, visitor);
+                        }
+                    }
+                }
+            });
+            Benchmark.time("KryoStateIO, rehashing", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    KryoStateIO io = new KryoStateIO();
+                    try (Input input = new Input(new FileInputStream(kryoFile))) {
+                        for (long i = 0; i < states; i++) {
+                            io.readState(input).state.primaryHash();
+                        }
+                    }
+                }
+            });
+            Benchmark.time("FingerprintedStateIO, stored hashes", states, "states", runs, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    FingerprintedStateIO io = new FingerprintedStateIO();
+                    try (Input input = new Input(new FileInputStream(fingerprintedFile))) {
+                        for (long i = 0; i < states; i++) {
+                            io.readState(input).state.primaryHash();
+                        }
+                    }
+                }
+            });
+        } finally {
+            kryoFile.delete();
+            fingerprintedFile.delete();
+        }
+    }
+}
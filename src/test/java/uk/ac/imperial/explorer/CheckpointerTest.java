@@ -0,0 +1,117 @@
+package uk.ac.imperial.explorer;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateIOProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CheckpointerTest {
+
+    private static final int TOKENS = 20;
+
+    private static final int STATES = (TOKENS + 1) * (TOKENS + 2) / 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumedExplorationMatchesUninterrupted() throws Exception {
+        File expectedTransitions = folder.newFile();
+        File expectedStates = folder.newFile();
+        explore(ParallelStateExplorerTest.CYCLIC_NET, expectedTransitions, expectedStates, folder.newFile());
+
+        File transitions = folder.newFile();
+        File states = folder.newFile();
+        File checkpointFile = new File(folder.getRoot(), "checkpoint");
+        try {
+            explore(crashesAfter(100), transitions, states, checkpointFile);
+            fail("Exploration should have crashed");
+        } catch (ExplorationException ignored) {
+            //Pass
+        }
+
+        ExplorationCheckpoint checkpoint = ExplorationCheckpoint.read(checkpointFile);
+        assertTrue(checkpoint.explored.size() < STATES);
+        assertEquals(checkpoint.explored.size(), checkpoint.nextId);
+        checkpoint.truncate(transitions, states);
+
+        KryoStateIO io = new KryoStateIO();
+        try (Output transitionOutput = new Output(new FileOutputStream(transitions, true));
+             Output stateOutput = new Output(new FileOutputStream(states, true))) {
+            ParallelStateExplorer explorer = new ParallelStateExplorer(ParallelStateExplorerTest.CYCLIC_NET,
+                    new StateIOProcessor(io, transitionOutput, stateOutput), 4, 1000, true);
+            Checkpointer checkpointer = new Checkpointer(checkpointFile, 0, transitionOutput, stateOutput, checkpoint);
+            assertEquals(STATES, explorer.resume(checkpoint, checkpointer));
+        }
+
+        assertArrayEquals(Files.readAllBytes(expectedTransitions.toPath()), Files.readAllBytes(transitions.toPath()));
+        assertArrayEquals(Files.readAllBytes(expectedStates.toPath()), Files.readAllBytes(states.toPath()));
+    }
+
+    @Test
+    public void checkpointOffsetsMatchFileLengths() throws Exception {
+        File transitions = folder.newFile();
+        File states = folder.newFile();
+        File checkpointFile = new File(folder.getRoot(), "checkpoint");
+        try {
+            explore(crashesAfter(50), transitions, states, checkpointFile);
+            fail("Exploration should have crashed");
+        } catch (ExplorationException ignored) {
+            //Pass
+        }
+        ExplorationCheckpoint checkpoint = ExplorationCheckpoint.read(checkpointFile);
+        assertTrue(checkpoint.transitionOffset <= transitions.length());
+        assertTrue(checkpoint.stateOffset <= states.length());
+        assertEquals(checkpoint.frontier.size(), checkpoint.frontierIds.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void checkpointingRequiresDeterministicIds() throws Exception {
+        ParallelStateExplorer explorer = new ParallelStateExplorer(ParallelStateExplorerTest.CYCLIC_NET,
+                new ParallelStateExplorerTest.RecordingProcessor(), 4, 1000, false);
+        explorer.explore(ParallelStateExplorerTest.createState(TOKENS, 0, 0), null);
+    }
+
+    /**
+     * Explores the cyclic net from all tokens in P0, checkpointing after every level
+     */
+    private void explore(SuccessorFunction function, File transitions, File states, File checkpointFile)
+            throws Exception {
+        KryoStateIO io = new KryoStateIO();
+        try (Output transitionOutput = new Output(new FileOutputStream(transitions));
+             Output stateOutput = new Output(new FileOutputStream(states))) {
+            ParallelStateExplorer explorer = new ParallelStateExplorer(function,
+                    new StateIOProcessor(io, transitionOutput, stateOutput), 4, 1000, true);
+            Checkpointer checkpointer = new Checkpointer(checkpointFile, 0, transitionOutput, stateOutput);
+            assertEquals(STATES, explorer.explore(ParallelStateExplorerTest.createState(TOKENS, 0, 0), checkpointer));
+        }
+    }
+
+    /**
+     * @param expansions number of states expanded before crashing
+     * @return successor function for the cyclic net that fails after the given number of expansions
+     */
+    private SuccessorFunction crashesAfter(final int expansions) {
+        final AtomicInteger count = new AtomicInteger(0);
+        return new SuccessorFunction() {
+            @Override
+            public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException {
+                if (count.incrementAndGet() > expansions) {
+                    throw new ExplorationException("Preempted");
+                }
+                return ParallelStateExplorerTest.CYCLIC_NET.getSuccessors(state);
+            }
+        };
+    }
+}
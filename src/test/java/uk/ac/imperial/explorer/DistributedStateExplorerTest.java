@@ -0,0 +1,250 @@
+package uk.ac.imperial.explorer;
+
+import com.esotericsoftware.kryo.io.Input;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.io.EntireStateReader;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DistributedStateExplorerTest {
+
+    /**
+     * Number of tokens circulating P0 -&gt; P1 -&gt; P2 -&gt; P0
+     */
+    private static final int TOKENS = 20;
+
+    /**
+     * Number of ways of placing the tokens in three places
+     */
+    private static final int STATES = (TOKENS + 1) * (TOKENS + 2) / 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void singleWorkerExploresEverything() throws Exception {
+        List<ParallelStateExplorerTest.RecordingProcessor> processors = exploreWithThreads(1, 8);
+        assertConsistent(processors.get(0).states, processors.get(0).transitions);
+    }
+
+    @Test
+    public void renumbersIdsDensely() throws Exception {
+        List<ParallelStateExplorerTest.RecordingProcessor> processors = exploreWithThreads(3, 4);
+        int[] stateCounts = new int[processors.size()];
+        for (int worker = 0; worker < stateCounts.length; worker++) {
+            stateCounts[worker] = processors.get(worker).states.size();
+        }
+        boolean[] seen = new boolean[STATES];
+        for (ParallelStateExplorerTest.RecordingProcessor processor : processors) {
+            for (int id : processor.states.keySet()) {
+                int dense = DistributedStateExplorer.denseId(id, stateCounts);
+                assertFalse(seen[dense]);
+                seen[dense] = true;
+            }
+        }
+    }
+
+    @Test
+    public void workersExploreTheirPartitions() throws Exception {
+        List<ParallelStateExplorerTest.RecordingProcessor> processors = exploreWithThreads(3, 4);
+        Map<Integer, ClassifiedState> states = new HashMap<>();
+        Map<Integer, Map<Integer, Double>> transitions = new HashMap<>();
+        for (int worker = 0; worker < processors.size(); worker++) {
+            ParallelStateExplorerTest.RecordingProcessor processor = processors.get(worker);
+            for (Map.Entry<Integer, ClassifiedState> entry : processor.states.entrySet()) {
+                assertEquals(worker, DistributedStateExplorer.owner(entry.getValue(), 3));
+                assertEquals(worker, entry.getKey() % 3);
+                assertNull(states.put(entry.getKey(), entry.getValue()));
+            }
+            transitions.putAll(processor.transitions);
+        }
+        assertConsistent(states, transitions);
+    }
+
+    @Test(timeout = 120000)
+    public void workersInSeparateProcesses() throws Exception {
+        int workers = 3;
+        StringBuilder ports = new StringBuilder();
+        for (int worker = 0; worker < workers; worker++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.append(worker == 0 ? "" : ",").append(socket.getLocalPort());
+            }
+        }
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int worker = 0; worker < workers; worker++) {
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        DistributedWorkerProcess.class.getName(), Integer.toString(worker), ports.toString(),
+                        folder.getRoot().getAbsolutePath(), Integer.toString(TOKENS));
+                builder.redirectErrorStream(true);
+                builder.redirectOutput(new File(folder.getRoot(), "worker" + worker + ".log"));
+                processes.add(builder.start());
+            }
+            for (Process process : processes) {
+                assertEquals(0, process.waitFor());
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+
+        KryoStateIO io = new KryoStateIO();
+        EntireStateReader reader = new EntireStateReader(io);
+        Map<Integer, ClassifiedState> states = new HashMap<>();
+        Map<Integer, Map<Integer, Double>> transitions = new HashMap<>();
+        for (int worker = 0; worker < workers; worker++) {
+            try (Input input = new Input(new FileInputStream(new File(folder.getRoot(), "states" + worker)))) {
+                Map<Integer, ClassifiedState> shard = reader.readStates(input);
+                for (Map.Entry<Integer, ClassifiedState> entry : shard.entrySet()) {
+                    assertNull(states.put(entry.getKey(), entry.getValue()));
+                }
+            }
+            try (Input input = new Input(new FileInputStream(new File(folder.getRoot(), "transitions" + worker)))) {
+                for (Record record : reader.readRecords(input)) {
+                    assertNull(transitions.put(record.state, record.successors));
+                }
+            }
+        }
+        assertConsistent(states, transitions);
+    }
+
+    @Test(expected = ExplorationException.class)
+    public void failureAbortsAllWorkers() throws Throwable {
+        SuccessorFunction failing = new SuccessorFunction() {
+            @Override
+            public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException {
+                if (state.getTokens("P2").get("Default") > 2) {
+                    throw new ExplorationException("Timeless trap");
+                }
+                return ParallelStateExplorerTest.CYCLIC_NET.getSuccessors(state);
+            }
+        };
+        try {
+            explore(failing, 3, 4);
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void processorFailureAbortsAllWorkers() throws Exception {
+        final int workers = 3;
+        final List<Transport> transports = LoopbackTransport.createNetwork(workers);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int worker = 0; worker < workers; worker++) {
+            final int index = worker;
+            final StateProcessor processor = new StateProcessor() {
+                private int states = 0;
+
+                @Override
+                public void processTransitions(int stateId, Map<Integer, Double> successorRates) {
+                }
+
+                @Override
+                public void processState(ClassifiedState state, int stateId) {
+                    if (index == 1 && ++states > 5) {
+                        throw new IllegalStateException("Disk full");
+                    }
+                }
+            };
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    DistributedStateExplorer explorer = new DistributedStateExplorer(index, workers,
+                            transports.get(index), ParallelStateExplorerTest.CYCLIC_NET, processor, 100, 4);
+                    return explorer.explore(ParallelStateExplorerTest.createState(TOKENS, 0, 0));
+                }
+            }));
+        }
+        for (int worker = 0; worker < workers; worker++) {
+            try {
+                futures.get(worker).get();
+                fail("Worker " + worker + " should have failed");
+            } catch (ExecutionException e) {
+                if (worker == 1) {
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                } else {
+                    assertTrue(e.getCause() instanceof ExplorationException);
+                }
+            }
+        }
+        executor.shutdown();
+    }
+
+    private List<ParallelStateExplorerTest.RecordingProcessor> exploreWithThreads(int workers, int batchSize)
+            throws Exception {
+        return explore(ParallelStateExplorerTest.CYCLIC_NET, workers, batchSize);
+    }
+
+    /**
+     * Runs each worker on its own thread connected by a loopback transport
+     */
+    private List<ParallelStateExplorerTest.RecordingProcessor> explore(final SuccessorFunction function, final int workers,
+                                                                     final int batchSize) throws Exception {
+        final List<Transport> transports = LoopbackTransport.createNetwork(workers);
+        final List<ParallelStateExplorerTest.RecordingProcessor> processors = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int worker = 0; worker < workers; worker++) {
+            final ParallelStateExplorerTest.RecordingProcessor processor = new ParallelStateExplorerTest.RecordingProcessor();
+            processors.add(processor);
+            final int index = worker;
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    DistributedStateExplorer explorer = new DistributedStateExplorer(index, workers,
+                            transports.get(index), function, processor, 100, batchSize);
+                    return explorer.explore(ParallelStateExplorerTest.createState(TOKENS, 0, 0));
+                }
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            total += future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(STATES, total);
+        return processors;
+    }
+
+    /**
+     * Checks every state has a unique id, and every id has its transitions recorded
+     */
+    private void assertConsistent(Map<Integer, ClassifiedState> states, Map<Integer, Map<Integer, Double>> transitions)
+            throws ExplorationException {
+        assertEquals(STATES, states.size());
+        assertEquals(STATES, transitions.size());
+        for (Map.Entry<Integer, ClassifiedState> entry : states.entrySet()) {
+            Map<ClassifiedState, Double> expected = ParallelStateExplorerTest.CYCLIC_NET.getSuccessors(entry.getValue());
+            Map<Integer, Double> rates = transitions.get(entry.getKey());
+            assertEquals(expected.size(), rates.size());
+            for (Map.Entry<Integer, Double> rate : rates.entrySet()) {
+                assertEquals(expected.get(states.get(rate.getKey())), rate.getValue());
+            }
+        }
+    }
+}
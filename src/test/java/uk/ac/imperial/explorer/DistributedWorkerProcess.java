@@ -0,0 +1,44 @@
+package uk.ac.imperial.explorer;
+
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateIOProcessor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs one worker of {@link DistributedStateExplorerTest} in its own JVM, exploring the
+ * cyclic net over sockets and writing its shard of states and transitions to files
+ */
+public final class DistributedWorkerProcess {
+
+    private DistributedWorkerProcess() {}
+
+    /**
+     * @param args worker index, comma separated ports of every worker, output directory, number of tokens
+     * @throws Exception if the exploration fails
+     */
+    public static void main(String[] args) throws Exception {
+        int worker = Integer.parseInt(args[0]);
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String port : args[1].split(",")) {
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port)));
+        }
+        File directory = new File(args[2]);
+        int tokens = Integer.parseInt(args[3]);
+
+        KryoStateIO io = new KryoStateIO();
+        try (SocketTransport transport = new SocketTransport(worker, addresses);
+             Output transitions = new Output(new FileOutputStream(new File(directory, "transitions" + worker)));
+             Output states = new Output(new FileOutputStream(new File(directory, "states" + worker)))) {
+            DistributedStateExplorer explorer = new DistributedStateExplorer(worker, addresses.size(), transport,
+                    ParallelStateExplorerTest.CYCLIC_NET, new StateIOProcessor(io, transitions, states), 100, 16);
+            explorer.explore(ParallelStateExplorerTest.createState(tokens, 0, 0));
+        }
+    }
+}
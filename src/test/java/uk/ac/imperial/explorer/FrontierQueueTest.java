@@ -0,0 +1,161 @@
+package uk.ac.imperial.explorer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.io.StateMapping;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class FrontierQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ClassifiedState state(int i) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", i);
+        builder.placeWithToken("P1", "Default", i % 5);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    @Test
+    public void pollsOldestFirstAcrossSpills() throws IOException {
+        try (FrontierQueue queue = new FrontierQueue(folder.getRoot(), FrontierQueue.Order.FIFO, 10)) {
+            for (int i = 0; i < 50; i++) {
+                queue.push(state(i), i);
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i, queue.poll().id);
+            }
+            for (int i = 50; i < 100; i++) {
+                queue.push(state(i), i);
+            }
+            assertTrue(queue.getSpilledSegments() > 0);
+            assertEquals(80, queue.size());
+            for (int i = 20; i < 100; i++) {
+                StateMapping mapping = queue.poll();
+                assertEquals(i, mapping.id);
+                assertEquals(state(i), mapping.state);
+            }
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void pollsNewestFirstAcrossSpills() throws IOException {
+        try (FrontierQueue queue = new FrontierQueue(folder.getRoot(), FrontierQueue.Order.LIFO, 8)) {
+            for (int i = 0; i < 40; i++) {
+                queue.push(state(i), i);
+            }
+            assertTrue(queue.getSpilledSegments() > 0);
+            for (int i = 39; i >= 10; i--) {
+                assertEquals(i, queue.poll().id);
+            }
+            queue.push(state(100), 100);
+            assertEquals(100, queue.poll().id);
+            for (int i = 9; i >= 0; i--) {
+                assertEquals(state(i), queue.poll().state);
+            }
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void keepsStatesWhenSpillFails() throws IOException {
+        File missing = new File(folder.getRoot(), "missing");
+        try (FrontierQueue queue = new FrontierQueue(missing, FrontierQueue.Order.LIFO, 4)) {
+            for (int i = 0; i < 3; i++) {
+                queue.push(state(i), i);
+            }
+            try {
+                queue.push(state(3), 3);
+                fail("Expected the spill to fail");
+            } catch (IOException expected) {
+                assertEquals(4, queue.size());
+            }
+            for (int i = 3; i >= 0; i--) {
+                assertEquals(state(i), queue.poll().state);
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void deletesSegmentsOnceLoaded() throws IOException {
+        try (FrontierQueue queue = new FrontierQueue(folder.getRoot(), FrontierQueue.Order.FIFO, 4)) {
+            for (int i = 0; i < 40; i++) {
+                queue.push(state(i), i);
+            }
+            assertTrue(queue.getSpilledSegments() > 1);
+            for (int i = 0; i < 40; i++) {
+                assertEquals(state(i), queue.poll().state);
+            }
+            assertEquals(0, folder.getRoot().list().length);
+        }
+    }
+
+    @Test
+    public void closeDeletesSpilledSegments() throws IOException {
+        FrontierQueue queue = new FrontierQueue(folder.getRoot(), FrontierQueue.Order.FIFO, 4);
+        for (int i = 0; i < 40; i++) {
+            queue.push(state(i), i);
+        }
+        assertTrue(folder.getRoot().list().length > 0);
+        queue.close();
+        assertEquals(0, folder.getRoot().list().length);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void concurrentProducersAndConsumersSeeEveryState() throws Exception {
+        final FrontierQueue queue = new FrontierQueue(folder.getRoot(), FrontierQueue.Order.FIFO, 16);
+        final int perProducer = 2000;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(4 * perProducer);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Void>> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            final int offset = p * perProducer;
+            producers.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.push(state(offset + i), offset + i);
+                        StateMapping mapping = queue.poll();
+                        if (mapping != null) {
+                            seen.incrementAndGet(mapping.id);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> producer : producers) {
+            producer.get();
+        }
+        executor.shutdown();
+        StateMapping mapping;
+        while ((mapping = queue.poll()) != null) {
+            seen.incrementAndGet(mapping.id);
+        }
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i));
+        }
+        queue.close();
+    }
+}
@@ -0,0 +1,161 @@
+package uk.ac.imperial.explorer;
+
+import org.junit.Test;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ParallelStateExplorerTest {
+
+    /**
+     * Number of tokens circulating P0 -&gt; P1 -&gt; P2 -&gt; P0
+     */
+    private static final int TOKENS = 20;
+
+    /**
+     * Number of ways of placing the tokens in three places
+     */
+    private static final int STATES = (TOKENS + 1) * (TOKENS + 2) / 2;
+
+    /**
+     * @return state with the specified number of Default tokens in P0, P1 and P2
+     */
+    static ClassifiedState createState(int p0, int p1, int p2) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", p0);
+        builder.placeWithToken("P1", "Default", p1);
+        builder.placeWithToken("P2", "Default", p2);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    /**
+     * Cyclic net moving a token P0 -&gt; P1 at rate 1, P1 -&gt; P2 at rate 2 and P2 -&gt; P0 at rate 3
+     */
+    static final SuccessorFunction CYCLIC_NET = new SuccessorFunction() {
+        @Override
+        public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) {
+            int p0 = state.getTokens("P0").get("Default");
+            int p1 = state.getTokens("P1").get("Default");
+            int p2 = state.getTokens("P2").get("Default");
+            Map<ClassifiedState, Double> successors = new HashMap<>();
+            if (p0 > 0) {
+                successors.put(createState(p0 - 1, p1 + 1, p2), 1.0);
+            }
+            if (p1 > 0) {
+                successors.put(createState(p0, p1 - 1, p2 + 1), 2.0);
+            }
+            if (p2 > 0) {
+                successors.put(createState(p0 + 1, p1, p2 - 1), 3.0);
+            }
+            return successors;
+        }
+    };
+
+    @Test
+    public void exploresEveryStateConcurrently() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor();
+        ParallelStateExplorer explorer = new ParallelStateExplorer(CYCLIC_NET, processor, 4, 1000, false);
+        assertEquals(STATES, explorer.explore(createState(TOKENS, 0, 0)));
+        assertConsistent(processor);
+    }
+
+    @Test
+    public void exploresEveryStateDeterministically() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor();
+        ParallelStateExplorer explorer = new ParallelStateExplorer(CYCLIC_NET, processor, 4, 1000, true);
+        assertEquals(STATES, explorer.explore(createState(TOKENS, 0, 0)));
+        assertConsistent(processor);
+    }
+
+    @Test
+    public void deterministicIdsAreRepeatable() throws Exception {
+        RecordingProcessor first = new RecordingProcessor();
+        new ParallelStateExplorer(CYCLIC_NET, first, 4, 1000, true).explore(createState(TOKENS, 0, 0));
+        RecordingProcessor second = new RecordingProcessor();
+        new ParallelStateExplorer(CYCLIC_NET, second, 2, 1000, true).explore(createState(TOKENS, 0, 0));
+        assertEquals(first.states, second.states);
+        assertEquals(first.transitions, second.transitions);
+    }
+
+    @Test
+    public void initialStateHasIdZero() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor();
+        ClassifiedState initial = createState(TOKENS, 0, 0);
+        new ParallelStateExplorer(CYCLIC_NET, processor, 4, 1000, false).explore(initial);
+        assertEquals(initial, processor.states.get(0));
+    }
+
+    @Test(expected = ExplorationException.class)
+    public void propagatesFailure() throws Exception {
+        SuccessorFunction failing = new SuccessorFunction() {
+            @Override
+            public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) throws ExplorationException {
+                if (state.getTokens("P2").get("Default") > 2) {
+                    throw new ExplorationException("Timeless trap");
+                }
+                return CYCLIC_NET.getSuccessors(state);
+            }
+        };
+        new ParallelStateExplorer(failing, new RecordingProcessor(), 4, 1000, false).explore(createState(TOKENS, 0, 0));
+    }
+
+    @Test(expected = ExplorationException.class)
+    public void propagatesProcessorFailureConcurrently() throws Exception {
+        StateProcessor failing = new StateProcessor() {
+            @Override
+            public void processTransitions(int stateId, Map<Integer, Double> successorRates) {
+            }
+
+            @Override
+            public void processState(ClassifiedState state, int stateId) {
+                if (state.getTokens("P2").get("Default") > 2) {
+                    throw new IllegalStateException("Disk full");
+                }
+            }
+        };
+        new ParallelStateExplorer(CYCLIC_NET, failing, 4, 1000, false).explore(createState(TOKENS, 0, 0));
+    }
+
+    /**
+     * Checks every state has a unique id, and every id has its transitions recorded
+     */
+    private void assertConsistent(RecordingProcessor processor) throws ExplorationException {
+        assertEquals(STATES, processor.states.size());
+        assertEquals(STATES, processor.transitions.size());
+        for (int id = 0; id < STATES; id++) {
+            ClassifiedState state = processor.states.get(id);
+            assertNotNull(state);
+            Map<ClassifiedState, Double> expected = CYCLIC_NET.getSuccessors(state);
+            Map<Integer, Double> rates = processor.transitions.get(id);
+            assertEquals(expected.size(), rates.size());
+            for (Map.Entry<Integer, Double> entry : rates.entrySet()) {
+                assertEquals(expected.get(processor.states.get(entry.getKey())), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Records all states and transitions processed, failing if any are processed twice
+     */
+    static final class RecordingProcessor implements StateProcessor {
+        final Map<Integer, ClassifiedState> states = new HashMap<>();
+
+        final Map<Integer, Map<Integer, Double>> transitions = new HashMap<>();
+
+        @Override
+        public void processTransitions(int stateId, Map<Integer, Double> successorRates) {
+            assertNull(transitions.put(stateId, successorRates));
+        }
+
+        @Override
+        public void processState(ClassifiedState state, int stateId) {
+            assertNull(states.put(stateId, state));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package uk.ac.imperial.explorer;
+
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static uk.ac.imperial.explorer.ParallelStateExplorerTest.CYCLIC_NET;
+import static uk.ac.imperial.explorer.ParallelStateExplorerTest.createState;
+
+public class ReachabilityCheckerTest {
+
+    private static final int TOKENS = 20;
+
+    private final ReachabilityChecker checker = new ReachabilityChecker(CYCLIC_NET, 1000);
+
+    @Test
+    public void findsShortestPathToShallowWitness() throws ExplorationException {
+        ReachabilityResult result = checker.check(createState(TOKENS, 0, 0), TokenPredicate.atLeast("P2", "Default", 2));
+        assertTrue(result.isReachable());
+        assertEquals(5, result.path.size());
+        assertEquals(createState(TOKENS, 0, 0), result.path.get(0));
+        assertEquals(Integer.valueOf(2), result.getWitness().getTokens("P2").get("Default"));
+        assertEquals(0, result.pathIds[0]);
+        assertTrue(result.exploredStates < (TOKENS + 1) * (TOKENS + 2) / 2);
+    }
+
+    @Test
+    public void pathFollowsTransitions() throws ExplorationException {
+        ReachabilityResult result = checker.check(createState(TOKENS, 0, 0),
+                TokenPredicate.equalTo("P0", "Default", 15).and(TokenPredicate.atLeast("P2", "Default", 3)));
+        assertTrue(result.isReachable());
+        for (int i = 1; i < result.path.size(); i++) {
+            Map<ClassifiedState, Double> successors = CYCLIC_NET.getSuccessors(result.path.get(i - 1));
+            assertTrue(successors.containsKey(result.path.get(i)));
+        }
+        assertEquals(result.path.size(), result.pathIds.length);
+    }
+
+    @Test
+    public void initialStateCanBeWitness() throws ExplorationException {
+        ReachabilityResult result = checker.check(createState(TOKENS, 0, 0), TokenPredicate.equalTo("P1", "Default", 0));
+        assertEquals(1, result.path.size());
+        assertEquals(1, result.exploredStates);
+    }
+
+    @Test
+    public void exploresEverythingWhenUnreachable() throws ExplorationException {
+        ReachabilityResult result = checker.check(createState(TOKENS, 0, 0),
+                TokenPredicate.atLeast("P0", "Default", TOKENS + 1).or(TokenPredicate.atLeast("Missing", "Default", 1)));
+        assertFalse(result.isReachable());
+        assertNull(result.getWitness());
+        assertEquals((TOKENS + 1) * (TOKENS + 2) / 2, result.exploredStates);
+    }
+
+    @Test
+    public void negatesPredicate() {
+        TokenPredicate predicate = TokenPredicate.atLeast("P0", "Default", 1).negate();
+        assertTrue(predicate.test(createState(0, 1, 1)));
+        assertFalse(predicate.test(createState(1, 0, 0)));
+    }
+
+    @Test
+    public void combinedPredicatesPassEachConditionItsOwnTokens() {
+        TokenPredicate sum = new TokenPredicate(new String[]{"P1", "P2"}, new String[]{"Default", "Default"},
+                new TokenPredicate.Condition() {
+                    @Override
+                    public boolean test(int[] tokens) {
+                        assertEquals(2, tokens.length);
+                        return tokens[0] + tokens[1] == 3;
+                    }
+                });
+        TokenPredicate predicate = TokenPredicate.equalTo("P0", "Default", 1).and(sum)
+                .or(TokenPredicate.atLeast("P2", "Default", 5).and(sum.negate()));
+        assertTrue(predicate.test(createState(1, 1, 2)));
+        assertFalse(predicate.test(createState(1, 1, 1)));
+        assertTrue(predicate.test(createState(0, 0, 5)));
+        assertFalse(predicate.test(createState(0, 0, 3)));
+    }
+}
@@ -0,0 +1,61 @@
+package uk.ac.imperial.explorer;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SocketTransportTest {
+
+    private static List<InetSocketAddress> addresses(int workers) throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int worker = 0; worker < workers; worker++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort()));
+            }
+        }
+        return addresses;
+    }
+
+    @Test(timeout = 30000)
+    public void closingCleanlyIsNotAFailure() throws Exception {
+        List<InetSocketAddress> addresses = addresses(2);
+        try (SocketTransport receiver = new SocketTransport(0, addresses)) {
+            try (SocketTransport sender = new SocketTransport(1, addresses)) {
+                sender.send(0, new byte[]{1, 2, 3});
+            }
+            assertArrayEquals(new byte[]{1, 2, 3}, receiver.poll(10000));
+            assertNull(receiver.poll(200));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void connectionEndingWithoutMarkerFailsPoll() throws Exception {
+        List<InetSocketAddress> addresses = addresses(1);
+        try (SocketTransport receiver = new SocketTransport(0, addresses)) {
+            InetSocketAddress address = addresses.get(0);
+            try (Socket crashed = new Socket(address.getAddress(), address.getPort());
+                 DataOutputStream output = new DataOutputStream(crashed.getOutputStream())) {
+                output.writeInt(1);
+                output.write(7);
+            }
+            assertArrayEquals(new byte[]{7}, receiver.poll(10000));
+            try {
+                while (receiver.poll(100) == null) {
+                    continue;
+                }
+                fail("Expected the crashed connection to fail the transport");
+            } catch (IOException expected) {
+                assertNotNull(expected.getCause());
+            }
+        }
+    }
+}
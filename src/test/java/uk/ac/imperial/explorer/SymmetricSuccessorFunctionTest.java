@@ -0,0 +1,100 @@
+package uk.ac.imperial.explorer;
+
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.utils.PlaceSymmetryGroup;
+import uk.ac.imperial.utils.SymmetryReduction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SymmetricSuccessorFunctionTest {
+
+    /**
+     * Number of replicated components
+     */
+    private static final int COMPONENTS = 3;
+
+    /**
+     * @param busy number of busy components, the first ones being busy
+     * @return state of the replicated components
+     */
+    private static ClassifiedState createState(boolean[] busy) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (int i = 0; i < busy.length; i++) {
+            builder.placeWithToken("Idle" + i, "Default", busy[i] ? 0 : 1);
+            builder.placeWithToken("Busy" + i, "Default", busy[i] ? 1 : 0);
+        }
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    /**
+     * Each component independently becomes busy at rate 1 and idle at rate 2
+     */
+    private static final SuccessorFunction COMPONENTS_NET = new SuccessorFunction() {
+        @Override
+        public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) {
+            Map<ClassifiedState, Double> successors = new HashMap<>();
+            boolean[] busy = new boolean[COMPONENTS];
+            for (int i = 0; i < COMPONENTS; i++) {
+                busy[i] = state.getTokens("Busy" + i).get("Default") == 1;
+            }
+            for (int i = 0; i < COMPONENTS; i++) {
+                boolean[] next = busy.clone();
+                next[i] = !busy[i];
+                successors.put(createState(next), busy[i] ? 2.0 : 1.0);
+            }
+            return successors;
+        }
+    };
+
+    private static SymmetryReduction reduction() {
+        List<List<String>> components = new ArrayList<>();
+        for (int i = 0; i < COMPONENTS; i++) {
+            components.add(Arrays.asList("Idle" + i, "Busy" + i));
+        }
+        return new SymmetryReduction(Collections.singletonList(new PlaceSymmetryGroup(components)));
+    }
+
+    @Test
+    public void lumpsEquivalentSuccessors() throws ExplorationException {
+        SymmetricSuccessorFunction function = new SymmetricSuccessorFunction(COMPONENTS_NET, reduction());
+        Map<ClassifiedState, Double> successors = function.getSuccessors(createState(new boolean[COMPONENTS]));
+        assertEquals(1, successors.size());
+        assertEquals(3.0, successors.values().iterator().next(), 0.0);
+    }
+
+    @Test
+    public void exploresOnlyRepresentatives() throws Exception {
+        SymmetryReduction reduction = reduction();
+        ParallelStateExplorerTest.RecordingProcessor full = new ParallelStateExplorerTest.RecordingProcessor();
+        new ParallelStateExplorer(COMPONENTS_NET, full, 2, 100, true).explore(createState(new boolean[COMPONENTS]));
+        assertEquals(8, full.states.size());
+
+        ParallelStateExplorerTest.RecordingProcessor reduced = new ParallelStateExplorerTest.RecordingProcessor();
+        ClassifiedState initial = reduction.canonicalize(createState(new boolean[COMPONENTS]));
+        new ParallelStateExplorer(new SymmetricSuccessorFunction(COMPONENTS_NET, reduction), reduced, 2, 100, true)
+                .explore(initial);
+        assertEquals(COMPONENTS + 1, reduced.states.size());
+
+        for (Map.Entry<Integer, ClassifiedState> entry : reduced.states.entrySet()) {
+            int busy = 0;
+            for (int i = 0; i < COMPONENTS; i++) {
+                busy += entry.getValue().getTokens("Busy" + i).get("Default");
+            }
+            double total = 0;
+            for (double rate : reduced.transitions.get(entry.getKey()).values()) {
+                total += rate;
+            }
+            assertEquals((COMPONENTS - busy) * 1.0 + busy * 2.0, total, 1e-9);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package uk.ac.imperial.explorer;
+
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static uk.ac.imperial.explorer.ParallelStateExplorerTest.CYCLIC_NET;
+import static uk.ac.imperial.explorer.ParallelStateExplorerTest.RecordingProcessor;
+import static uk.ac.imperial.explorer.ParallelStateExplorerTest.createState;
+
+public class TruncatedExplorerTest {
+
+    private static ClassifiedState queue(int length) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("Queue", "Default", length);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    /**
+     * Unbounded queue with arrivals at rate 1 and services at rate 2
+     */
+    private static final SuccessorFunction UNBOUNDED_QUEUE = new SuccessorFunction() {
+        @Override
+        public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) {
+            int length = state.getTokens("Queue").get("Default");
+            Map<ClassifiedState, Double> successors = new HashMap<>();
+            successors.put(queue(length + 1), 1.0);
+            if (length > 0) {
+                successors.put(queue(length - 1), 2.0);
+            }
+            return successors;
+        }
+    };
+
+    @Test
+    public void truncatesUnboundedNet() throws ExplorationException {
+        RecordingProcessor processor = new RecordingProcessor();
+        TruncationResult result = new TruncatedExplorer(UNBOUNDED_QUEUE, processor, 1000).explore(queue(0), 1e-6);
+        assertTrue(result.remainingMass < 1e-6);
+        assertEquals(1, result.truncatedStates);
+        int rest = result.getRestStateId();
+        assertEquals(rest + 1, processor.states.size());
+        assertEquals(TruncatedExplorer.REST_STATE, processor.states.get(rest));
+        assertTrue(processor.transitions.get(rest).isEmpty());
+
+        assertEquals(queue(0), processor.states.get(0));
+        for (int id = 0; id < rest; id++) {
+            int length = processor.states.get(id).getTokens("Queue").get("Default");
+            assertEquals(length, id);
+            Map<Integer, Double> rates = processor.transitions.get(id);
+            assertEquals(1.0, rates.get(id == rest - 1 ? rest : id + 1), 0);
+        }
+    }
+
+    @Test
+    public void expandsMostProbableStatesFirst() throws ExplorationException {
+        RecordingProcessor processor = new RecordingProcessor();
+        new TruncatedExplorer(CYCLIC_NET, processor, 1000).explore(createState(20, 0, 0), 0, 3);
+        assertEquals(createState(20, 0, 0), processor.states.get(0));
+        assertEquals(createState(19, 1, 0), processor.states.get(1));
+        assertEquals(4, processor.states.size());
+    }
+
+    @Test
+    public void exploresBoundedNetFully() throws ExplorationException {
+        RecordingProcessor processor = new RecordingProcessor();
+        TruncationResult result = new TruncatedExplorer(CYCLIC_NET, processor, 1000).explore(createState(5, 0, 0), 0);
+        assertEquals(21, result.expandedStates);
+        assertEquals(0, result.truncatedStates);
+        for (int id = 0; id < result.expandedStates; id++) {
+            assertFalse(processor.transitions.get(id).containsKey(result.getRestStateId()));
+        }
+    }
+
+    /**
+     * A to B at rate 100 and to the absorbing state C at rate 1, and B back to A at rate 100, where
+     * C is only likely to be reached after many returns to A
+     */
+    private static final SuccessorFunction RETURNING_CHAIN = new SuccessorFunction() {
+        @Override
+        public Map<ClassifiedState, Double> getSuccessors(ClassifiedState state) {
+            int length = state.getTokens("Queue").get("Default");
+            Map<ClassifiedState, Double> successors = new HashMap<>();
+            if (length == 0) {
+                successors.put(queue(1), 100.0);
+                successors.put(queue(2), 1.0);
+            } else if (length == 1) {
+                successors.put(queue(0), 100.0);
+            }
+            return successors;
+        }
+    };
+
+    @Test
+    public void passesOnMassReturningToExpandedStates() throws ExplorationException {
+        RecordingProcessor processor = new RecordingProcessor();
+        TruncationResult result = new TruncatedExplorer(RETURNING_CHAIN, processor, 1000).explore(queue(0), 0.01);
+        assertEquals(3, result.expandedStates);
+        assertEquals(0, result.truncatedStates);
+        assertEquals(0, result.remainingMass, 0);
+        assertTrue(processor.states.containsValue(queue(2)));
+    }
+
+    @Test
+    public void boundsMassOfCyclesLeavingExpandedStates() throws ExplorationException {
+        RecordingProcessor processor = new RecordingProcessor();
+        TruncationResult result = new TruncatedExplorer(RETURNING_CHAIN, processor, 1000).explore(queue(0), 0.01, 2);
+        assertEquals(2, result.expandedStates);
+        assertEquals(1, result.truncatedStates);
+        assertTrue(result.remainingMass > 0.5);
+    }
+}
@@ -0,0 +1,114 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ChainExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File transitions;
+
+    private File states;
+
+    private final KryoStateIO io = new KryoStateIO();
+
+    @Before
+    public void setUp() throws IOException {
+        transitions = folder.newFile("transitions");
+        states = folder.newFile("states");
+        try (Output output = new Output(new FileOutputStream(transitions))) {
+            for (int i = 0; i < 10000; i++) {
+                Map<Integer, Double> successors = new LinkedHashMap<>();
+                successors.put((i + 1) % 10000, 2.0);
+                successors.put((i + 7) % 10000, 0.25);
+                io.writeTransitions(i, successors, output);
+            }
+        }
+        try (Output output = new Output(new FileOutputStream(states))) {
+            HashedStateBuilder first = new HashedStateBuilder();
+            first.placeWithToken("P0", "Default", 1);
+            first.placeWithToken("P 1", "Red", 2);
+            io.writeState(HashedClassifiedState.tangibleState(first.build()), 0, output);
+            HashedStateBuilder second = new HashedStateBuilder();
+            second.placeWithToken("P0", "Default", 3);
+            io.writeState(HashedClassifiedState.tangibleState(second.build()), 1, output);
+        }
+    }
+
+    private static List<String> lines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void writesPrismTransitions() throws IOException {
+        File tra = folder.newFile("chain.tra");
+        new ChainExporter(io).exportPrismTransitions(transitions, tra);
+        List<String> lines = lines(tra);
+        assertEquals("10000 20000", lines.get(0));
+        assertEquals(20001, lines.size());
+        assertTrue(lines.contains("0 1 2"));
+        assertTrue(lines.contains("9999 6 0.25"));
+    }
+
+    @Test
+    public void writesMatrixMarketIndexedFromOne() throws IOException {
+        File mtx = folder.newFile("chain.mtx");
+        new ChainExporter(io).exportMatrixMarket(transitions, mtx);
+        List<String> lines = lines(mtx);
+        assertEquals("%%MatrixMarket matrix coordinate real general", lines.get(0));
+        assertEquals("10000 10000 20000", lines.get(1));
+        assertTrue(lines.contains("1 2 2"));
+        assertTrue(lines.contains("10000 7 0.25"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonContiguousIds() throws IOException {
+        File sparse = folder.newFile("sparse");
+        try (Output output = new Output(new FileOutputStream(sparse))) {
+            for (int i = 0; i < 10; i++) {
+                io.writeTransitions(3 * i, new LinkedHashMap<Integer, Double>(), output);
+            }
+        }
+        new ChainExporter(io).exportPrismTransitions(sparse, folder.newFile("sparse.tra"));
+    }
+
+    @Test
+    public void parallelOutputMatchesSequential() throws IOException {
+        File sequential = folder.newFile("sequential.tra");
+        File parallel = folder.newFile("parallel.tra");
+        new ChainExporter(io).exportPrismTransitions(transitions, sequential);
+        new ChainExporter(io, 4).exportPrismTransitions(transitions, parallel);
+        assertEquals(lines(sequential), lines(parallel));
+    }
+
+    @Test
+    public void writesPrismStatesWithEveryVariable() throws IOException {
+        File sta = folder.newFile("chain.sta");
+        new ChainExporter(io).exportPrismStates(states, sta);
+        List<String> lines = lines(sta);
+        assertEquals("(P_1_Red,P0_Default)", lines.get(0));
+        Set<String> rows = new HashSet<>(lines.subList(1, lines.size()));
+        assertTrue(rows.contains("0:(2,1)"));
+        assertTrue(rows.contains("1:(0,3)"));
+    }
+}
@@ -0,0 +1,144 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.Record;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ChainImporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final KryoStateIO io = new KryoStateIO();
+
+    private File text(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private List<Record> readRecords(Output output) throws IOException {
+        List<Record> records = new ArrayList<>();
+        Input input = new Input(output.toBytes());
+        while (!input.eof()) {
+            records.add(io.readRecord(input));
+        }
+        return records;
+    }
+
+    private static Map<Integer, Double> successors(int state, double rate) {
+        Map<Integer, Double> successors = new HashMap<>();
+        successors.put(state, rate);
+        return successors;
+    }
+
+    @Test
+    public void importsTransitionsGroupedBySource() throws IOException {
+        File tra = text("chain.tra", "3 4\n0 1 1.5e-3\n0 2 0.1\r\n1 2 3 label\n\n2 0 12345678901234567\n");
+        Output transitions = new Output(1024, -1);
+        long count = new ChainImporter(new StateIOProcessor(io, transitions, new Output(16, -1))).importTransitions(tra);
+        assertEquals(4, count);
+
+        List<Record> records = readRecords(transitions);
+        assertEquals(3, records.size());
+        Map<Integer, Double> first = new HashMap<>();
+        first.put(1, 1.5e-3);
+        first.put(2, 0.1);
+        assertEquals(new Record(0, first), records.get(0));
+        assertEquals(new Record(1, successors(2, 3.0)), records.get(1));
+        assertEquals(new Record(2, successors(0, 12345678901234567.0)), records.get(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsWrongTransitionCount() throws IOException {
+        File tra = text("chain.tra", "2 3\n0 1 1\n1 0 1\n");
+        new ChainImporter(new StateIOProcessor(io, new Output(16, -1), new Output(16, -1))).importTransitions(tra);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedRate() throws IOException {
+        File tra = text("chain.tra", "2 1\n0 1 fast\n");
+        new ChainImporter(new StateIOProcessor(io, new Output(16, -1), new Output(16, -1))).importTransitions(tra);
+    }
+
+    @Test
+    public void parallelImportOfLargeFileMatchesSequential() throws IOException {
+        File tra = folder.newFile("large.tra");
+        int states = 500000;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tra), StandardCharsets.US_ASCII)) {
+            writer.write(states + " " + (2 * states) + "\n");
+            for (int i = 0; i < states; i++) {
+                writer.write(i + " " + ((i + 1) % states) + " 0.25\n");
+                writer.write(i + " " + ((i + 3) % states) + " " + (i % 10) + ".5\n");
+            }
+        }
+        Output sequential = new Output(1024, -1);
+        Output parallel = new Output(1024, -1);
+        new ChainImporter(new StateIOProcessor(io, sequential, new Output(16, -1))).importTransitions(tra);
+        new ChainImporter(new StateIOProcessor(io, parallel, new Output(16, -1)), 3).importTransitions(tra);
+        assertArrayEquals(sequential.toBytes(), parallel.toBytes());
+        assertEquals(states, readRecords(parallel).size());
+    }
+
+    @Test
+    public void roundTripsStatesExportedByChainExporter() throws IOException {
+        File kryoStates = folder.newFile("states");
+        List<ClassifiedState> expected = new ArrayList<>();
+        try (Output output = new Output(new FileOutputStream(kryoStates))) {
+            for (int i = 0; i < 100; i++) {
+                HashedStateBuilder builder = new HashedStateBuilder();
+                builder.placeWithToken("P0", "Default", i);
+                builder.placeWithToken("P1", "Red", i % 3);
+                ClassifiedState state = HashedClassifiedState.tangibleState(builder.build());
+                expected.add(state);
+                io.writeState(state, i, output);
+            }
+        }
+        File sta = folder.newFile("chain.sta");
+        new ChainExporter(io).exportPrismStates(kryoStates, sta);
+
+        Output output = new Output(1024, -1);
+        long count = new ChainImporter(new StateIOProcessor(io, new Output(16, -1), output), 2).importStates(sta);
+        assertEquals(100, count);
+        Input input = new Input(output.toBytes());
+        for (int i = 0; i < 100; i++) {
+            StateMapping mapping = io.readState(input);
+            assertEquals(i, mapping.id);
+            assertEquals(expected.get(i), mapping.state);
+            assertEquals(expected.get(i).secondaryHash(), mapping.state.secondaryHash());
+        }
+    }
+
+    @Test
+    public void readsBooleanAndUnderscoreFreeVariables() throws IOException {
+        File sta = text("chain.sta", "(Idle,Busy_Red)\n0:(true,2)\n1:(false,0)\n");
+        Output output = new Output(1024, -1);
+        new ChainImporter(new StateIOProcessor(io, new Output(16, -1), output)).importStates(sta);
+        Input input = new Input(output.toBytes());
+        ClassifiedState first = io.readState(input).state;
+        assertEquals(Integer.valueOf(1), first.getTokens("Idle").get(ChainImporter.DEFAULT_COLOUR));
+        assertEquals(Integer.valueOf(2), first.getTokens("Busy").get("Red"));
+        assertEquals(Integer.valueOf(0), io.readState(input).state.getTokens("Idle").get("Default"));
+    }
+}
@@ -0,0 +1,139 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ColumnarStateWriterTest {
+
+    /**
+     * States with a large place of slowly changing counts, a small place of
+     * varied counts and a place that only appears part way through
+     */
+    private static List<ClassifiedState> states(int count) {
+        List<ClassifiedState> states = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("Buffer", "Default", i / 100);
+            builder.placeWithToken("Server", "Default", i % 7);
+            builder.placeWithToken("Server", "Red", (i * 31) % 11);
+            if (i > count / 2) {
+                builder.placeWithToken("Late", "Default", 1);
+            }
+            if (i % 3 == 0) {
+                builder.placeWithTokens("Empty", new HashMap<String, Integer>());
+            }
+            HashedState state = builder.build();
+            states.add(i % 2 == 0 ? HashedClassifiedState.tangibleState(state)
+                    : HashedClassifiedState.vanishingState(state));
+        }
+        return states;
+    }
+
+    private static byte[] writeColumnar(List<ClassifiedState> states) {
+        Output output = new Output(1024, -1);
+        ColumnarStateWriter writer = new ColumnarStateWriter(output, 1000);
+        for (int i = 0; i < states.size(); i++) {
+            writer.write(states.get(i), i * 2);
+        }
+        writer.flush();
+        return output.toBytes();
+    }
+
+    @Test
+    public void roundTripsStates() {
+        List<ClassifiedState> states = states(2500);
+        ColumnarStateReader reader = new ColumnarStateReader(new Input(writeColumnar(states)));
+        int index = 0;
+        StateChunk chunk;
+        while ((chunk = reader.readChunk()) != null) {
+            for (int row = 0; row < chunk.size(); row++) {
+                ClassifiedState expected = states.get(index);
+                ClassifiedState actual = chunk.getState(row);
+                assertEquals(index * 2, chunk.getId(row));
+                assertEquals(expected.isTangible(), actual.isTangible());
+                assertEquals(expected.asMap(), actual.asMap());
+                assertEquals(expected.primaryHash(), actual.primaryHash());
+                assertEquals(expected.secondaryHash(), actual.secondaryHash());
+                assertEquals(new HashedState(expected.asMap()), new HashedState(actual.asMap()));
+                index++;
+            }
+        }
+        assertEquals(states.size(), index);
+    }
+
+    @Test
+    public void equalsHashedStates() {
+        List<ClassifiedState> states = states(10);
+        ColumnarStateReader reader = new ColumnarStateReader(new Input(writeColumnar(states)));
+        StateChunk chunk = reader.readChunk();
+        for (int row = 0; row < chunk.size(); row++) {
+            ClassifiedState expected = states.get(row);
+            ClassifiedState actual = chunk.getState(row);
+            assertEquals(expected, actual);
+            assertEquals(actual, expected);
+            assertEquals(expected.hashCode(), actual.hashCode());
+            assertFalse(actual.equals(states.get((row + 1) % states.size())));
+        }
+    }
+
+    @Test
+    public void projectsPlaces() {
+        List<ClassifiedState> states = states(2500);
+        ColumnarStateReader reader =
+                new ColumnarStateReader(new Input(writeColumnar(states)), Arrays.asList("Server"));
+        int index = 0;
+        StateChunk chunk;
+        while ((chunk = reader.readChunk()) != null) {
+            for (int row = 0; row < chunk.size(); row++) {
+                assertEquals(index % 7, chunk.getTokenCount(row, "Server", "Default"));
+                assertEquals(0, chunk.getTokenCount(row, "Buffer", "Default"));
+                assertEquals(Arrays.asList("Server"), chunk.getState(row).getPlaces());
+                assertFalse(chunk.getState(row).containsTokens("Buffer"));
+                index++;
+            }
+        }
+        assertEquals(states.size(), index);
+    }
+
+    @Test
+    public void smallerThanKryoStates() {
+        List<ClassifiedState> states = states(2500);
+        KryoStateIO io = new KryoStateIO();
+        Output output = new Output(1024, -1);
+        for (int i = 0; i < states.size(); i++) {
+            io.writeState(states.get(i), i * 2, output);
+        }
+        assertTrue(writeColumnar(states).length * 10 < output.total());
+    }
+
+    @Test
+    public void bitPacksVariedColumns() {
+        int[] values = new int[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 7919) % 1000;
+        }
+        Output output = new Output(1024, -1);
+        ColumnCodec.write(values, values.length, output);
+        assertTrue(output.total() < values.length * 2);
+        assertArrayEquals(values, ColumnCodec.read(new Input(output.toBytes()), values.length));
+    }
+
+    @Test
+    public void writesNothingWithoutStates() {
+        Output output = new Output(1024, -1);
+        new ColumnarStateWriter(output).flush();
+        assertNull(new ColumnarStateReader(new Input(output.toBytes())).readChunk());
+    }
+}
@@ -0,0 +1,169 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.TokenMapInterner;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DeltaStateIOTest {
+
+    /**
+     * States that change a token or two at a time, with places and colours
+     * appearing and disappearing
+     */
+    private static List<ClassifiedState> states() {
+        List<ClassifiedState> states = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("Queue", "Default", i / 3);
+            builder.placeWithToken("Server", "Default", i % 2);
+            if (i % 10 < 5) {
+                builder.placeWithToken("Server", "Priority", i % 5);
+            }
+            if (i % 7 == 0) {
+                builder.placeWithToken("Failed", "Default", 1);
+            }
+            if (i % 11 == 0) {
+                builder.placeWithTokens("Empty", new HashMap<String, Integer>());
+            }
+            builder.placeWithToken("Counter", "Default", 50 - i);
+            states.add(i % 4 == 0 ? HashedClassifiedState.vanishingState(builder.build())
+                    : HashedClassifiedState.tangibleState(builder.build()));
+        }
+        return states;
+    }
+
+    private static byte[] write(DeltaStateIO writer, List<ClassifiedState> states) {
+        Output output = new Output(1024, -1);
+        for (int i = 0; i < states.size(); i++) {
+            writer.writeState(states.get(i), 1000 - 3 * i, output);
+        }
+        return output.toBytes();
+    }
+
+    @Test
+    public void roundTripsStates() {
+        List<ClassifiedState> states = states();
+        Input input = new Input(write(new DeltaStateIO(64), states));
+        DeltaStateIO reader = new DeltaStateIO();
+        for (int i = 0; i < states.size(); i++) {
+            StateMapping mapping = reader.readState(input);
+            assertEquals(1000 - 3 * i, mapping.id);
+            assertEquals(states.get(i), mapping.state);
+            assertEquals(states.get(i).asMap(), mapping.state.asMap());
+        }
+        assertTrue(input.eof());
+    }
+
+    @Test
+    public void readsFromAnyKeyframe() {
+        List<ClassifiedState> states = states();
+        DeltaStateIO writer = new DeltaStateIO(64);
+        byte[] bytes = write(writer, states);
+        assertEquals(5, writer.getKeyframePositions().size());
+
+        int position = writer.getKeyframePositions().get(2).intValue();
+        Input input = new Input(bytes, position, bytes.length - position);
+        DeltaStateIO reader = new DeltaStateIO();
+        for (int i = 128; i < states.size(); i++) {
+            assertEquals(states.get(i), reader.readState(input).state);
+        }
+    }
+
+    @Test
+    public void seeksWithWrittenKeyframeIndex() {
+        List<ClassifiedState> states = states();
+        DeltaStateIO writer = new DeltaStateIO(64);
+        byte[] bytes = write(writer, states);
+        Output indexOutput = new Output(64, -1);
+        writer.writeKeyframeIndex(indexOutput);
+
+        KeyframeIndex index = DeltaStateIO.readKeyframeIndex(new Input(indexOutput.toBytes()));
+        assertEquals(64, index.keyframeInterval);
+        assertEquals(states.size(), index.stateCount);
+        assertEquals(2, index.keyframeBefore(150));
+        for (int i = 0; i < index.positions.length; i++) {
+            assertEquals(writer.getKeyframePositions().get(i).longValue(), index.positions[i]);
+        }
+
+        Input input = new Input(new ByteArrayInputStream(bytes), 16);
+        DeltaStateIO reader = new DeltaStateIO();
+        reader.seek(input, index, 150);
+        for (int i = 150; i < 200; i++) {
+            StateMapping mapping = reader.readState(input);
+            assertEquals(1000 - 3 * i, mapping.id);
+            assertEquals(states.get(i), mapping.state);
+        }
+        reader.seek(input, index, 260);
+        assertEquals(states.get(260), reader.readState(input).state);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotSeekPastLastState() {
+        List<ClassifiedState> states = states();
+        DeltaStateIO writer = new DeltaStateIO(64);
+        write(writer, states);
+        Output indexOutput = new Output(64, -1);
+        writer.writeKeyframeIndex(indexOutput);
+        DeltaStateIO.readKeyframeIndex(new Input(indexOutput.toBytes())).keyframeBefore(states.size());
+    }
+
+    @Test
+    public void keepsColourOrderOfInternedStates() {
+        TokenMapInterner interner = new TokenMapInterner();
+        List<ClassifiedState> states = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Integer> colours = new LinkedHashMap<>();
+            for (int c = 20; c > 0; c--) {
+                colours.put("Colour" + ((c + i) % 20), c);
+            }
+            Map<String, Map<String, Integer>> tokenCounts = new HashMap<>();
+            tokenCounts.put("Queue", colours);
+            tokenCounts.put("Server", Collections.singletonMap("Default", i % 2));
+            states.add(HashedClassifiedState.tangibleState(new HashedState(interner.internAll(tokenCounts))));
+        }
+        Input input = new Input(write(new DeltaStateIO(4), states));
+        DeltaStateIO reader = new DeltaStateIO();
+        for (ClassifiedState state : states) {
+            ClassifiedState read = reader.readState(input).state;
+            assertEquals(state.primaryHash(), read.primaryHash());
+            assertEquals(state.secondaryHash(), read.secondaryHash());
+            assertEquals(state, read);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotStartFromDelta() {
+        List<ClassifiedState> states = states();
+        DeltaStateIO writer = new DeltaStateIO(64);
+        byte[] bytes = write(writer, states);
+        Input input = new Input(bytes);
+        new DeltaStateIO().readState(input);
+        new DeltaStateIO().readState(input);
+    }
+
+    @Test
+    public void smallerThanDictionaryStates() {
+        List<ClassifiedState> states = states();
+        Output dictionary = new Output(1024, -1);
+        DictionaryStateIO dictionaryIO = new DictionaryStateIO();
+        for (int i = 0; i < states.size(); i++) {
+            dictionaryIO.writeState(states.get(i), 1000 - 3 * i, dictionary);
+        }
+        assertTrue(write(new DeltaStateIO(), states).length < dictionary.total());
+    }
+}
@@ -0,0 +1,100 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DictionaryStateIOTest {
+
+    private static List<ClassifiedState> states() {
+        List<ClassifiedState> states = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("WaitingForServer", "Default", i % 4);
+            builder.placeWithToken("BeingServed", "Default", i % 2);
+            builder.placeWithToken("BeingServed", "Priority", i % 3);
+            if (i > 250) {
+                builder.placeWithToken("Overflow", "Default", -i);
+            }
+            states.add(i % 5 == 0 ? HashedClassifiedState.vanishingState(builder.build())
+                    : HashedClassifiedState.tangibleState(builder.build()));
+        }
+        return states;
+    }
+
+    @Test
+    public void roundTripsStates() {
+        List<ClassifiedState> states = states();
+        Output output = new Output(1024, -1);
+        DictionaryStateIO writer = new DictionaryStateIO();
+        for (int i = 0; i < states.size(); i++) {
+            writer.writeState(states.get(i), i, output);
+        }
+
+        Input input = new Input(output.toBytes());
+        DictionaryStateIO reader = new DictionaryStateIO();
+        for (int i = 0; i < states.size(); i++) {
+            StateMapping mapping = reader.readState(input);
+            assertEquals(i, mapping.id);
+            assertEquals(states.get(i), mapping.state);
+        }
+        assertTrue(input.eof());
+    }
+
+    @Test
+    public void sharesNameInstances() throws IOException {
+        ClassifiedState state = StateUtils.tangibleStateFromJson("{\"P0\": {\"Default\": 1}, \"P1\": {\"Default\": 0}}");
+        Output output = new Output(1024, -1);
+        DictionaryStateIO writer = new DictionaryStateIO();
+        writer.writeState(state, 0, output);
+        writer.writeState(state, 1, output);
+
+        Input input = new Input(output.toBytes());
+        DictionaryStateIO reader = new DictionaryStateIO();
+        Map<String, Map<String, Integer>> first = reader.readTokenCounts(input).tokenCounts;
+        Map<String, Map<String, Integer>> second = reader.readTokenCounts(input).tokenCounts;
+        for (String place : first.keySet()) {
+            String firstColour = first.get(place).keySet().iterator().next();
+            String secondColour = second.get(place).keySet().iterator().next();
+            assertSame(firstColour, secondColour);
+        }
+    }
+
+    @Test
+    public void smallerThanKryoStates() {
+        List<ClassifiedState> states = states();
+        Output dictionary = new Output(1024, -1);
+        Output kryo = new Output(1024, -1);
+        DictionaryStateIO dictionaryIO = new DictionaryStateIO();
+        KryoStateIO kryoIO = new KryoStateIO();
+        for (int i = 0; i < states.size(); i++) {
+            dictionaryIO.writeState(states.get(i), i, dictionary);
+            kryoIO.writeState(states.get(i), i, kryo);
+        }
+        assertTrue(dictionary.total() * 4 < kryo.total());
+    }
+
+    @Test
+    public void writesTransitionsAsKryo() throws IOException {
+        Map<Integer, Double> successors = new HashMap<>();
+        successors.put(2, 1.5);
+        Output output = new Output(1024, -1);
+        new DictionaryStateIO().writeTransitions(1, successors, output);
+        Record record = new KryoStateIO().readRecord(new Input(output.toBytes()));
+        assertEquals(1, record.state);
+        assertEquals(successors, record.successors);
+    }
+}
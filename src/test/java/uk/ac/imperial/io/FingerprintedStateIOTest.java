@@ -0,0 +1,80 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.utils.HashStrategy;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FingerprintedStateIOTest {
+
+    @After
+    public void restoreDefaults() {
+        StateUtils.setHashStrategies(HashStrategy.ADLER32, HashStrategy.MURMUR3_128);
+    }
+
+    private static List<ClassifiedState> states() {
+        List<ClassifiedState> states = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("P0", "Default", i);
+            builder.placeWithToken("P1", "Red", i % 4);
+            states.add(i % 3 == 0 ? HashedClassifiedState.vanishingState(builder.build())
+                    : HashedClassifiedState.tangibleState(builder.build()));
+        }
+        return states;
+    }
+
+    private static byte[] write(List<ClassifiedState> states) {
+        Output output = new Output(1024, -1);
+        FingerprintedStateIO io = new FingerprintedStateIO();
+        for (int i = 0; i < states.size(); i++) {
+            io.writeState(states.get(i), i, output);
+        }
+        return output.toBytes();
+    }
+
+    @Test
+    public void roundTripsStatesWithHashes() {
+        List<ClassifiedState> states = states();
+        Input input = new Input(write(states));
+        FingerprintedStateIO io = new FingerprintedStateIO(1);
+        for (int i = 0; i < states.size(); i++) {
+            StateMapping mapping = io.readState(input);
+            assertEquals(i, mapping.id);
+            assertEquals(states.get(i), mapping.state);
+            assertEquals(states.get(i).primaryHash(), mapping.state.primaryHash());
+            assertEquals(states.get(i).asMap(), mapping.state.asMap());
+        }
+        assertTrue(input.eof());
+    }
+
+    @Test
+    public void trustsStoredHashesWithoutVerification() {
+        List<ClassifiedState> states = states();
+        byte[] bytes = write(states);
+        StateUtils.setHashStrategies(HashStrategy.MURMUR3_32, HashStrategy.MURMUR3_128);
+        StateMapping mapping = new FingerprintedStateIO().readState(new Input(bytes));
+        assertEquals(states.get(0).primaryHash(), mapping.state.primaryHash());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verificationDetectsOtherStrategies() {
+        byte[] bytes = write(states());
+        StateUtils.setHashStrategies(HashStrategy.MURMUR3_32, HashStrategy.MURMUR3_128);
+        Input input = new Input(bytes);
+        FingerprintedStateIO io = new FingerprintedStateIO(10);
+        for (int i = 0; i < 10; i++) {
+            io.readState(input);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package uk.ac.imperial.io;
+
+import org.codehaus.jackson.JsonParseException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.State;
+import uk.ac.imperial.utils.StateUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonStateReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String marking(int i) {
+        return "{\"P0\": {\"Default\": " + (i % 7) + ", \"Red\": " + (i % 3) + "}, \"P1\": {\"Default\": " + i + "}}";
+    }
+
+    private static JsonStateReader reader(String json) throws IOException {
+        return new JsonStateReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readsJsonLines() throws IOException {
+        try (JsonStateReader reader = reader(marking(0) + "\n" + marking(1) + "\n")) {
+            assertEquals(StateUtils.stateFromJson(marking(0)), reader.nextState());
+            assertEquals(StateUtils.stateFromJson(marking(1)), reader.nextState());
+            assertNull(reader.nextState());
+        }
+    }
+
+    @Test
+    public void readsArray() throws IOException {
+        try (JsonStateReader reader = reader("[" + marking(0) + ", " + marking(1) + "]")) {
+            List<HashedState> states = reader.readAll();
+            assertEquals(2, states.size());
+            assertEquals(StateUtils.stateFromJson(marking(1)), states.get(1));
+        }
+    }
+
+    @Test
+    public void hashesMatchPerCallParsing() throws IOException {
+        try (JsonStateReader reader = reader(marking(5))) {
+            State expected = StateUtils.stateFromJson(marking(5));
+            HashedState state = reader.nextState();
+            assertEquals(expected.primaryHash(), state.primaryHash());
+            assertEquals(expected.secondaryHash(), state.secondaryHash());
+        }
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void rejectsNonIntegerCounts() throws IOException {
+        try (JsonStateReader reader = reader("{\"P0\": {\"Default\": \"one\"}}")) {
+            reader.nextState();
+        }
+    }
+
+    @Test
+    public void readsFileInParallelInOrder() throws IOException {
+        File file = folder.newFile("states.json");
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            for (int i = 0; i < 1000; i++) {
+                output.write((marking(i) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        List<HashedState> states = JsonStateReader.readAll(file, 7);
+        assertEquals(1000, states.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(StateUtils.stateFromJson(marking(i)), states.get(i));
+        }
+    }
+}
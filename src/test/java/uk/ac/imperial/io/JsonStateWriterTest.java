@@ -0,0 +1,58 @@
+package uk.ac.imperial.io;
+
+import org.junit.Test;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonStateWriterTest {
+
+    private static List<State> states() {
+        List<State> states = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("Waiting", "Default", i % 4);
+            builder.placeWithToken("Served", "Default", i % 2);
+            builder.placeWithToken("Served", "Priority", i);
+            states.add(builder.build());
+        }
+        return states;
+    }
+
+    @Test
+    public void writesOneMarkingPerLine() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonStateWriter writer = new JsonStateWriter(output)) {
+            for (State state : states()) {
+                writer.write(state);
+            }
+        }
+        String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(100, lines.length);
+        assertFalse(lines[0].isEmpty());
+    }
+
+    @Test
+    public void roundTripsThroughReader() throws IOException {
+        List<State> states = states();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonStateWriter writer = new JsonStateWriter(output)) {
+            for (State state : states) {
+                writer.write(state);
+            }
+        }
+        try (JsonStateReader reader = new JsonStateReader(new ByteArrayInputStream(output.toByteArray()))) {
+            List<HashedState> read = reader.readAll();
+            assertEquals(states, read);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.esotericsoftware.kryo.io.Output;
 import org.junit.Before;
 import org.junit.Test;
 import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
 import uk.ac.imperial.state.Record;
 import uk.ac.imperial.utils.StateUtils;
 
@@ -12,6 +14,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -83,6 +86,72 @@ public class KryoStateIOTest {
         }
     }
 
+    @Test
+    public void readsTokenCounts() throws IOException {
+        ClassifiedState state =
+            StateUtils.tangibleStateFromJson("{\"P0\": {\"Default\": 1}, \"P1\": {\"Default\": 0}}");
+        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
+            try  (Output outputStream = new Output(stream)) {
+                io.writeState(state, 4, outputStream);
+            }
+            try (ByteArrayInputStream s = new ByteArrayInputStream(stream.toByteArray());
+                 Input inputStream = new Input(s)) {
+                TokenCountMapping mapping = io.readTokenCounts(inputStream);
+
+                assertEquals(4, mapping.id);
+                assertEquals(true, mapping.tangible);
+                assertEquals(state.asMap(), mapping.tokenCounts);
+            }
+        }
+    }
+
+    @Test
+    public void visitsTokenCountsWithoutBuildingMaps() {
+        Map<String, Integer> shared = new LinkedHashMap<>();
+        shared.put("Red", 2);
+        shared.put("Blue", 3);
+        Map<String, Map<String, Integer>> tokenCounts = new HashMap<>();
+        tokenCounts.put("P0", shared);
+        tokenCounts.put("P1", shared);
+        tokenCounts.put("P2", new HashMap<>(shared));
+        Map<String, Integer> skipped = new HashMap<>();
+        skipped.put("Default", 7);
+        tokenCounts.put("Skipped", skipped);
+        ClassifiedState state = HashedClassifiedState.vanishingState(new HashedState(tokenCounts));
+
+        Output output = new Output(1024, -1);
+        for (int id = 0; id < 3; id++) {
+            io.writeState(state, id, output);
+        }
+        Input input = new Input(output.toBytes());
+        for (int id = 0; id < 3; id++) {
+            final Map<String, Map<String, Integer>> visited = new HashMap<>();
+            int readId = io.readTokenCounts(input, new TokenCountVisitor() {
+                private Map<String, Integer> colours;
+
+                @Override
+                public boolean visitPlace(String place) {
+                    if (place.equals("Skipped")) {
+                        return false;
+                    }
+                    colours = new HashMap<>();
+                    visited.put(place, colours);
+                    return true;
+                }
+
+                @Override
+                public void visitTokens(String colour, int count) {
+                    colours.put(colour, count);
+                }
+            });
+            assertEquals(id, readId);
+            Map<String, Map<String, Integer>> expected = new HashMap<>(tokenCounts);
+            expected.remove("Skipped");
+            assertEquals(expected, visited);
+        }
+        assertEquals(true, input.eof());
+    }
+
     @Test
     public void handlesBogusRead() throws IOException {
         String bogus = "jfjashf;sjaah";
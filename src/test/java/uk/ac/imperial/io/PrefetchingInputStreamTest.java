@@ -0,0 +1,57 @@
+package uk.ac.imperial.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PrefetchingInputStreamTest {
+
+    @Test
+    public void readsEveryByteAcrossBuffers() throws IOException {
+        byte[] bytes = new byte[10000];
+        new Random(7).nextBytes(bytes);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        try (InputStream input = new PrefetchingInputStream(new ByteArrayInputStream(bytes), 64)) {
+            byte[] buffer = new byte[100];
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                copy.write(buffer, 0, count);
+            }
+            assertEquals(-1, input.read());
+        }
+        assertArrayEquals(bytes, copy.toByteArray());
+    }
+
+    @Test
+    public void readsEmptyStream() throws IOException {
+        try (InputStream input = new PrefetchingInputStream(new ByteArrayInputStream(new byte[0]), 64)) {
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rethrowsReadFailures() throws IOException {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Disk failure");
+            }
+        };
+        try (InputStream input = new PrefetchingInputStream(failing, 64)) {
+            input.read();
+        }
+    }
+
+    @Test
+    public void closesBeforeEnd() throws IOException {
+        InputStream input = new PrefetchingInputStream(new ByteArrayInputStream(new byte[100000]), 16);
+        assertEquals(0, input.read());
+        input.close();
+    }
+}
@@ -0,0 +1,106 @@
+package uk.ac.imperial.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RateDictionaryStateIOTest {
+
+    private static final double[] RATES = {1.0, 0.5, 1.0 / 3, 2.5e-7, 12345.678};
+
+    private static List<Record> records() {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < 500; state++) {
+            Map<Integer, Double> successors = new HashMap<>();
+            successors.put(state + 1, RATES[state % RATES.length]);
+            successors.put(state + 2, RATES[(state * 3) % RATES.length]);
+            if (state % 50 == 0) {
+                successors.put(0, Math.PI * state);
+            }
+            records.add(new Record(state, successors));
+        }
+        return records;
+    }
+
+    private static byte[] write(StateWriter writer, List<Record> records) {
+        Output output = new Output(1024, -1);
+        for (Record record : records) {
+            writer.writeTransitions(record.state, record.successors, output);
+        }
+        return output.toBytes();
+    }
+
+    private static void assertReads(List<Record> records, Input input, StateReader reader) throws IOException {
+        for (Record record : records) {
+            Record read = reader.readRecord(input);
+            assertEquals(record.state, read.state);
+            assertEquals(record.successors, read.successors);
+        }
+        assertTrue(input.eof());
+    }
+
+    @Test
+    public void roundTripsRatesExactly() throws IOException {
+        List<Record> records = records();
+        byte[] bytes = write(new RateDictionaryStateIO(), records);
+        assertReads(records, new Input(bytes), new RateDictionaryStateIO());
+    }
+
+    @Test
+    public void fallsBackToRawRatesWhenDictionaryIsFull() throws IOException {
+        List<Record> records = records();
+        byte[] bytes = write(new RateDictionaryStateIO(3), records);
+        assertReads(records, new Input(bytes), new RateDictionaryStateIO(3));
+    }
+
+    @Test
+    public void rereadsWithSameReader() throws IOException {
+        List<Record> records = records();
+        byte[] bytes = write(new RateDictionaryStateIO(), records);
+        RateDictionaryStateIO reader = new RateDictionaryStateIO();
+        assertReads(records, new Input(bytes), reader);
+        assertReads(records, new Input(bytes), reader);
+    }
+
+    @Test
+    public void eachFileDefinesItsOwnRates() throws IOException {
+        List<Record> records = records();
+        RateDictionaryStateIO writer = new RateDictionaryStateIO();
+        write(writer, records);
+        byte[] second = write(writer, records);
+        assertReads(records, new Input(second), new RateDictionaryStateIO());
+    }
+
+    @Test
+    public void resetDefinesRatesAgainOnSameOutput() throws IOException {
+        List<Record> records = records();
+        RateDictionaryStateIO writer = new RateDictionaryStateIO();
+        Output output = new Output(1024, -1);
+        for (Record record : records) {
+            writer.writeTransitions(record.state, record.successors, output);
+        }
+        output.clear();
+        writer.reset();
+        for (Record record : records) {
+            writer.writeTransitions(record.state, record.successors, output);
+        }
+        assertReads(records, new Input(output.toBytes()), new RateDictionaryStateIO());
+    }
+
+    @Test
+    public void smallerThanKryoTransitions() {
+        List<Record> records = records();
+        int dictionary = write(new RateDictionaryStateIO(), records).length;
+        int kryo = write(new KryoStateIO(), records).length;
+        assertTrue(dictionary * 2 < kryo);
+    }
+}
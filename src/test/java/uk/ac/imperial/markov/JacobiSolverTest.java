@@ -0,0 +1,92 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.state.Record;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static uk.ac.imperial.markov.SparseChainTest.record;
+
+public class JacobiSolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Record> cycle() {
+        List<Record> records = new ArrayList<>();
+        records.add(record(0, 1, 1.0));
+        records.add(record(1, 2, 2.0));
+        records.add(record(2, 0, 4.0, 2, 9.0));
+        return records;
+    }
+
+    /**
+     * Steady state of the cycle is proportional to the mean time spent in each state
+     */
+    private static void assertCycleSolution(double[] solution) {
+        double total = 1.0 + 0.5 + 0.25;
+        assertEquals(1.0 / total, solution[0], 1e-9);
+        assertEquals(0.5 / total, solution[1], 1e-9);
+        assertEquals(0.25 / total, solution[2], 1e-9);
+    }
+
+    @Test
+    public void solvesInMemory() throws IOException {
+        try (RateMatrix matrix = new SparseRateMatrix(SparseChain.fromRecords(cycle()), 2)) {
+            assertCycleSolution(new JacobiSolver(1e-12, 10000, 0.5).solve(matrix));
+        }
+    }
+
+    @Test
+    public void solvesStreamingFromDisk() throws IOException {
+        File file = folder.newFile("transitions");
+        KryoStateIO io = new KryoStateIO();
+        try (Output output = new Output(new FileOutputStream(file))) {
+            for (Record record : cycle()) {
+                io.writeTransitions(record.state, record.successors, output);
+            }
+        }
+        try (RateMatrix matrix = new StreamingRateMatrix(file, io)) {
+            assertCycleSolution(new JacobiSolver(1e-12, 10000, 0.5).solve(matrix));
+        }
+    }
+
+    @Test
+    public void solvesBirthDeathChain() throws IOException {
+        List<Record> records = new ArrayList<>();
+        int n = 20;
+        double birth = 1.0;
+        double death = 2.0;
+        records.add(record(0, 1, birth));
+        for (int i = 1; i < n - 1; i++) {
+            records.add(record(i, i + 1, birth, i - 1, death));
+        }
+        records.add(record(n - 1, n - 2, death));
+        double[] solution;
+        try (RateMatrix matrix = new SparseRateMatrix(SparseChain.fromRecords(records), 1)) {
+            solution = new JacobiSolver(1e-12, 100000, 0.9).solve(matrix);
+        }
+        for (int i = 1; i < n; i++) {
+            assertEquals(birth / death, solution[i] / solution[i - 1], 1e-8);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAbsorbingStates() throws IOException {
+        List<Record> records = new ArrayList<>();
+        records.add(record(0, 1, 1.0));
+        records.add(record(1));
+        try (RateMatrix matrix = new SparseRateMatrix(SparseChain.fromRecords(records), 1)) {
+            new JacobiSolver(1e-12, 100, 1.0).solve(matrix);
+        }
+    }
+}
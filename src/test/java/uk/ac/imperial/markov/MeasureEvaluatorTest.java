@@ -0,0 +1,109 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MeasureEvaluatorTest {
+
+    private static final int STATES = 10000;
+
+    /**
+     * Writes states where P0 holds id % 5 tokens and P1 holds id % 3 Red tokens
+     */
+    private static byte[] writeStates(KryoStateIO io) {
+        Output output = new Output(1024, -1);
+        for (int id = 0; id < STATES; id++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("P0", "Default", id % 5);
+            builder.placeWithToken("P1", "Red", id % 3);
+            io.writeState(HashedClassifiedState.tangibleState(builder.build()), id, output);
+        }
+        return output.toBytes();
+    }
+
+    private static List<Measure> measures() {
+        List<Measure> measures = new ArrayList<>();
+        measures.add(Measure.meanTokens("P0", "Default"));
+        measures.add(Measure.meanTokens("P1", "Red"));
+        measures.add(Measure.probabilityAtLeast("P0", "Default", 3));
+        measures.add(Measure.meanTokens("P1", "Blue"));
+        measures.add(Measure.meanTokens("P9", "Default"));
+        measures.add(new Measure(new String[]{"P0", "P1"}, new String[]{"Default", "Red"}, new Measure.Reward() {
+            @Override
+            public double value(int[] tokens) {
+                return tokens[0] * tokens[1];
+            }
+        }));
+        return measures;
+    }
+
+    private static double[] uniform() {
+        double[] probabilities = new double[STATES];
+        Arrays.fill(probabilities, 1.0 / STATES);
+        return probabilities;
+    }
+
+    /**
+     * Over every 15 consecutive ids each pair of residues mod 5 and mod 3 appears once
+     */
+    private static void assertMeasures(double[] results) {
+        assertEquals(2.0, results[0], 1e-3);
+        assertEquals(1.0, results[1], 1e-3);
+        assertEquals(0.4, results[2], 1e-3);
+        assertEquals(0.0, results[3], 0.0);
+        assertEquals(0.0, results[4], 0.0);
+        assertEquals(2.0, results[5], 1e-3);
+    }
+
+    @Test
+    public void evaluatesMeasuresInOnePass() {
+        KryoStateIO io = new KryoStateIO();
+        byte[] states = writeStates(io);
+        assertMeasures(new MeasureEvaluator(measures(), 1).evaluate(new Input(states), io, uniform()));
+    }
+
+    @Test
+    public void parallelEvaluationMatchesSequential() {
+        KryoStateIO io = new KryoStateIO();
+        byte[] states = writeStates(io);
+        double[] sequential = new MeasureEvaluator(measures(), 1).evaluate(new Input(states), io, uniform());
+        double[] parallel = new MeasureEvaluator(measures(), 4).evaluate(new Input(states), io, uniform());
+        assertArrayEquals(sequential, parallel, 0.0);
+    }
+
+    @Test
+    public void weightsByProbability() {
+        KryoStateIO io = new KryoStateIO();
+        byte[] states = writeStates(io);
+        double[] probabilities = new double[STATES];
+        probabilities[4] = 0.25;
+        probabilities[7] = 0.75;
+        double[] results = new MeasureEvaluator(measures(), 2).evaluate(new Input(states), io, probabilities);
+        assertEquals(0.25 * 4 + 0.75 * 2, results[0], 1e-12);
+        assertEquals(0.25 * 1 + 0.75 * 1, results[1], 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsProbabilityVectorShorterThanStates() {
+        KryoStateIO io = new KryoStateIO();
+        byte[] states = writeStates(io);
+        new MeasureEvaluator(measures(), 1).evaluate(new Input(states), io, new double[STATES - 1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsProbabilityVectorShorterThanStatesInParallel() {
+        KryoStateIO io = new KryoStateIO();
+        byte[] states = writeStates(io);
+        new MeasureEvaluator(measures(), 4).evaluate(new Input(states), io, new double[STATES - 1]);
+    }
+}
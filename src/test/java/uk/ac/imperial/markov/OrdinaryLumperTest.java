@@ -0,0 +1,197 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.io.EntireStateReader;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OrdinaryLumperTest {
+
+    private final OrdinaryLumper lumper = new OrdinaryLumper();
+
+    /**
+     * @param components number of independent components
+     * @param upRates rate each component becomes busy
+     * @return chain where each state is a bit mask of busy components, which become idle at rate 2
+     */
+    private static SparseChain components(int components, double... upRates) {
+        List<Record> records = new ArrayList<>();
+        for (int mask = 0; mask < 1 << components; mask++) {
+            Map<Integer, Double> successors = new HashMap<>();
+            for (int i = 0; i < components; i++) {
+                boolean busy = (mask & (1 << i)) != 0;
+                successors.put(mask ^ (1 << i), busy ? 2.0 : upRates[i]);
+            }
+            records.add(new Record(mask, successors));
+        }
+        return SparseChain.fromRecords(records);
+    }
+
+    /**
+     * @param size number of states
+     * @param state state to put in a block of its own
+     * @return initial partition with the state in block 1 and every other state in block 0
+     */
+    private static int[] separate(int size, int state) {
+        int[] blocks = new int[size];
+        blocks[state] = 1;
+        return blocks;
+    }
+
+    @Test
+    public void lumpsSymmetricComponents() {
+        SparseChain chain = components(3, 1.0, 1.0, 1.0);
+        Lumping lumping = lumper.lump(chain, separate(8, 0));
+        assertEquals(4, lumping.getBlockCount());
+        for (int mask = 0; mask < 8; mask++) {
+            for (int other = 0; other < 8; other++) {
+                boolean sameCount = Integer.bitCount(mask) == Integer.bitCount(other);
+                assertEquals(sameCount, lumping.getBlock(mask) == lumping.getBlock(other));
+            }
+        }
+        assertEquals(2.0, lumping.getReductionRatio(), 0.0);
+    }
+
+    @Test
+    public void doesNotLumpAsymmetricComponents() {
+        Lumping lumping = lumper.lump(components(3, 1.0, 1.5, 3.0), separate(8, 0));
+        assertEquals(8, lumping.getBlockCount());
+    }
+
+    @Test
+    public void partiallySymmetricComponents() {
+        Lumping lumping = lumper.lump(components(3, 1.0, 1.0, 3.0), separate(8, 0));
+        assertEquals(6, lumping.getBlockCount());
+    }
+
+    @Test
+    public void lumpsDiamond() {
+        List<Record> records = new ArrayList<>();
+        records.add(SparseChainTest.record(0, 1, 1.0, 2, 1.0));
+        records.add(SparseChainTest.record(1, 3, 2.0));
+        records.add(SparseChainTest.record(2, 3, 2.0));
+        records.add(SparseChainTest.record(3, 0, 5.0));
+        Lumping lumping = lumper.lump(SparseChain.fromRecords(records), separate(4, 3));
+        assertEquals(3, lumping.getBlockCount());
+        assertEquals(lumping.getBlock(1), lumping.getBlock(2));
+    }
+
+    @Test
+    public void doesNotSplitOnRatesIntoOwnBlock() {
+        List<Record> records = new ArrayList<>();
+        records.add(SparseChainTest.record(0, 1, 1.0, 2, 3.0));
+        records.add(SparseChainTest.record(1, 0, 2.0, 2, 3.0));
+        records.add(SparseChainTest.record(2, 0, 1.0));
+        SparseChain chain = SparseChain.fromRecords(records);
+        Lumping lumping = lumper.lump(chain, new int[]{0, 0, 1});
+        assertEquals(2, lumping.getBlockCount());
+        assertEquals(lumping.getBlock(0), lumping.getBlock(1));
+        assertLumpable(chain, lumping);
+    }
+
+    @Test
+    public void singleBlockIsCoarsestWithoutInitialPartition() {
+        assertEquals(1, lumper.lump(components(3, 1.0, 2.0, 3.0)).getBlockCount());
+    }
+
+    @Test
+    public void refinesInitialPartition() {
+        SparseChain chain = components(3, 1.0, 1.0, 1.0);
+        int[] initial = new int[8];
+        initial[1] = 1;
+        Lumping lumping = lumper.lump(chain, initial);
+        assertNotEquals(lumping.getBlock(1), lumping.getBlock(2));
+        assertEquals(lumping.getBlock(2), lumping.getBlock(4));
+    }
+
+    @Test
+    public void resultIsLumpableOnRandomChains() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 20; trial++) {
+            int n = 30;
+            List<Record> records = new ArrayList<>();
+            for (int state = 0; state < n; state++) {
+                Map<Integer, Double> successors = new HashMap<>();
+                for (int k = 0; k < 3; k++) {
+                    successors.put(random.nextInt(n), (double) (1 + random.nextInt(2)));
+                }
+                records.add(new Record(state, successors));
+            }
+            SparseChain chain = SparseChain.fromRecords(records);
+            Lumping lumping = lumper.lump(chain, separate(n, trial));
+            assertLumpable(chain, lumping);
+        }
+    }
+
+    @Test
+    public void writesLumpedChainAndMapping() throws IOException {
+        SparseChain chain = components(3, 1.0, 1.0, 1.0);
+        Lumping lumping = lumper.lump(chain, separate(8, 0));
+        KryoStateIO io = new KryoStateIO();
+        Output transitions = new Output(1024, -1);
+        lumping.writeTransitions(io, transitions);
+        Output mapping = new Output(1024, -1);
+        lumping.writeMapping(mapping);
+
+        Collection<Record> records = new EntireStateReader(io).readRecords(new Input(transitions.toBytes()));
+        assertEquals(4, records.size());
+        Map<Integer, Integer> blocks = Lumping.readMapping(new Input(mapping.toBytes()));
+        assertEquals(8, blocks.size());
+        for (Record record : records) {
+            int busy = Integer.bitCount(findState(blocks, record.state));
+            double total = 0;
+            for (double rate : record.successors.values()) {
+                total += rate;
+            }
+            assertEquals((3 - busy) * 1.0 + busy * 2.0, total, 1e-12);
+        }
+    }
+
+    private static int findState(Map<Integer, Integer> blocks, int block) {
+        for (Map.Entry<Integer, Integer> entry : blocks.entrySet()) {
+            if (entry.getValue() == block) {
+                return entry.getKey();
+            }
+        }
+        throw new AssertionError("No state in block " + block);
+    }
+
+    /**
+     * Checks every state of a block has the same rate into every other block
+     */
+    private static void assertLumpable(SparseChain chain, Lumping lumping) {
+        Map<Integer, Map<Integer, Double>> blockRates = new HashMap<>();
+        for (int state = 0; state < chain.size(); state++) {
+            int block = lumping.getBlock(chain.getStateId(state));
+            Map<Integer, Double> rates = new HashMap<>();
+            for (int k = chain.rowStart(state); k < chain.rowEnd(state); k++) {
+                int successorBlock = lumping.getBlock(chain.getStateId(chain.column(k)));
+                if (successorBlock != block) {
+                    Double previous = rates.get(successorBlock);
+                    rates.put(successorBlock, previous == null ? chain.rate(k) : previous + chain.rate(k));
+                }
+            }
+            Map<Integer, Double> expected = blockRates.get(block);
+            if (expected == null) {
+                blockRates.put(block, rates);
+            } else {
+                assertEquals(expected.keySet(), rates.keySet());
+                for (Map.Entry<Integer, Double> entry : rates.entrySet()) {
+                    assertEquals(expected.get(entry.getKey()), entry.getValue(), 1e-9);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SparseChainTest {
+
+    /**
+     * @param state source state id
+     * @param successorsAndRates alternating successor ids and rates
+     * @return record of the transitions
+     */
+    static Record record(int state, double... successorsAndRates) {
+        Map<Integer, Double> successors = new HashMap<>();
+        for (int i = 0; i < successorsAndRates.length; i += 2) {
+            successors.put((int) successorsAndRates[i], successorsAndRates[i + 1]);
+        }
+        return new Record(state, successors);
+    }
+
+    @Test
+    public void buildsRowsFromRecords() {
+        List<Record> records = new ArrayList<>();
+        records.add(record(1, 0, 2.0));
+        records.add(record(0, 1, 1.0, 2, 3.0));
+        records.add(record(2));
+        SparseChain chain = SparseChain.fromRecords(records);
+
+        assertEquals(3, chain.size());
+        assertEquals(3, chain.transitionCount());
+        assertEquals(2, chain.rowEnd(0) - chain.rowStart(0));
+        assertEquals(4.0, chain.exitRate(0), 0.0);
+        assertEquals(2.0, chain.exitRate(1), 0.0);
+        assertEquals(0.0, chain.exitRate(2), 0.0);
+        assertEquals(1, chain.indexOf(1));
+    }
+
+    @Test
+    public void mapsSparseIds() {
+        List<Record> records = new ArrayList<>();
+        records.add(record(10, 40, 2.0));
+        records.add(record(40, 10, 1.0));
+        SparseChain chain = SparseChain.fromRecords(records);
+
+        assertEquals(2, chain.size());
+        assertEquals(0, chain.indexOf(10));
+        assertEquals(1, chain.indexOf(40));
+        assertEquals(40, chain.getStateId(1));
+        assertTrue(chain.indexOf(20) < 0);
+        assertEquals(1, chain.column(chain.rowStart(0)));
+    }
+
+    @Test
+    public void ignoresSelfLoopsInExitRate() {
+        List<Record> records = new ArrayList<>();
+        records.add(record(0, 0, 5.0, 1, 1.0));
+        records.add(record(1));
+        assertEquals(1.0, SparseChain.fromRecords(records).exitRate(0), 0.0);
+    }
+
+    @Test
+    public void transposes() {
+        List<Record> records = new ArrayList<>();
+        records.add(record(0, 1, 1.0, 2, 3.0));
+        records.add(record(1, 2, 2.0));
+        records.add(record(2));
+        SparseChain transposed = SparseChain.fromRecords(records).transpose();
+
+        assertEquals(0, transposed.rowEnd(0) - transposed.rowStart(0));
+        assertEquals(2, transposed.rowEnd(2) - transposed.rowStart(2));
+        assertEquals(0, transposed.column(transposed.rowStart(1)));
+        assertEquals(1.0, transposed.rate(transposed.rowStart(1)), 0.0);
+    }
+
+    @Test
+    public void readsFromInput() throws IOException {
+        KryoStateIO io = new KryoStateIO();
+        Output output = new Output(1024, -1);
+        Map<Integer, Double> successors = new HashMap<>();
+        successors.put(1, 2.5);
+        io.writeTransitions(0, successors, output);
+        io.writeTransitions(1, new HashMap<Integer, Double>(), output);
+
+        SparseChain chain = SparseChain.read(new Input(output.toBytes()), io);
+        assertEquals(2, chain.size());
+        assertEquals(2.5, chain.exitRate(0), 0.0);
+    }
+}
@@ -0,0 +1,119 @@
+package uk.ac.imperial.markov;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.state.Record;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static uk.ac.imperial.markov.SparseChainTest.record;
+
+public class TransientSolverTest {
+
+    private static final double A = 2.0;
+
+    private static final double B = 3.0;
+
+    private static final double[] TIMES = {0.0, 0.1, 0.5, 2.0, 10.0};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Record> twoStateChain() {
+        List<Record> records = new ArrayList<>();
+        records.add(record(0, 1, A, 0, 7.0));
+        records.add(record(1, 0, B));
+        return records;
+    }
+
+    /**
+     * @return analytic probability of being in state 1 at time t having started in state 0
+     */
+    private static double expected(double t) {
+        return A / (A + B) * (1 - Math.exp(-(A + B) * t));
+    }
+
+    private static void assertSolution(double[][] solution) {
+        for (int t = 0; t < TIMES.length; t++) {
+            assertEquals(expected(TIMES[t]), solution[t][1], 1e-9);
+            assertEquals(1.0, solution[t][0] + solution[t][1], 1e-9);
+        }
+    }
+
+    @Test
+    public void solvesInMemory() throws IOException {
+        try (RateMatrix matrix = new SparseRateMatrix(SparseChain.fromRecords(twoStateChain()), 1)) {
+            assertSolution(new TransientSolver(1e-12).solve(matrix, new double[]{1, 0}, TIMES));
+        }
+    }
+
+    @Test
+    public void solvesInParallel() throws IOException {
+        List<Record> records = new ArrayList<>();
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            records.add(record(i, (i + 1) % n, 1.0 + i % 3, (i + 7) % n, 0.5));
+        }
+        SparseChain chain = SparseChain.fromRecords(records);
+        double[] initial = new double[n];
+        initial[0] = 1;
+        double[] times = {0.3, 4.0};
+        double[][] sequential;
+        try (RateMatrix matrix = new SparseRateMatrix(chain, 1)) {
+            sequential = new TransientSolver(1e-12).solve(matrix, initial, times);
+        }
+        try (RateMatrix matrix = new SparseRateMatrix(chain, 4)) {
+            double[][] parallel = new TransientSolver(1e-12).solve(matrix, initial, times);
+            for (int t = 0; t < times.length; t++) {
+                assertArrayEquals(sequential[t], parallel[t], 1e-15);
+            }
+        }
+    }
+
+    @Test
+    public void solvesStreamingFromDisk() throws IOException {
+        File file = folder.newFile("transitions");
+        KryoStateIO io = new KryoStateIO();
+        try (Output output = new Output(new FileOutputStream(file))) {
+            for (Record record : twoStateChain()) {
+                io.writeTransitions(record.state, record.successors, output);
+            }
+        }
+        try (RateMatrix matrix = new StreamingRateMatrix(file, io)) {
+            assertEquals(2, matrix.size());
+            assertSolution(new TransientSolver(1e-12).solve(matrix, new double[]{1, 0}, TIMES));
+        }
+    }
+
+    @Test
+    public void poissonWeightsSumToOne() {
+        for (double lambda : new double[]{0.5, 5, 100, 100000}) {
+            FoxGlynn foxGlynn = FoxGlynn.compute(lambda, 1e-10);
+            double total = 0;
+            for (double weight : foxGlynn.weights) {
+                total += weight;
+            }
+            assertEquals(1.0, total, 1e-12);
+            assertTrue(foxGlynn.left <= lambda && lambda <= foxGlynn.right);
+        }
+    }
+
+    @Test
+    public void poissonWeightsMatchDistribution() {
+        double lambda = 5;
+        FoxGlynn foxGlynn = FoxGlynn.compute(lambda, 1e-14);
+        double probability = Math.exp(-lambda);
+        for (int k = 0; k <= 20; k++) {
+            assertEquals(probability, foxGlynn.weight(k), 1e-12);
+            probability *= lambda / (k + 1);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package uk.ac.imperial.state;
+
+import org.junit.Test;
+import uk.ac.imperial.utils.ExploredSet;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LazyHashedStateTest {
+
+    private static Map<String, Map<String, Integer>> marking(int p0, int p1) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", p0);
+        builder.placeWithToken("P1", "Red", p1);
+        return builder.build().asMap();
+    }
+
+    @Test
+    public void hashesMatchHashedState() {
+        Map<String, Map<String, Integer>> marking = marking(3, 4);
+        HashedState eager = new HashedState(marking);
+        LazyHashedState lazy = new LazyHashedState(marking);
+        assertEquals(eager.primaryHash(), lazy.primaryHash());
+        assertEquals(eager.secondaryHash(), lazy.secondaryHash());
+        assertEquals(eager.hashCode(), lazy.hashCode());
+    }
+
+    @Test
+    public void equalToHashedStateBothWays() {
+        Map<String, Map<String, Integer>> marking = marking(1, 2);
+        HashedState eager = new HashedState(marking);
+        LazyHashedState lazy = LazyHashedState.ofImmutable(marking);
+        assertEquals(eager, lazy);
+        assertEquals(lazy, eager);
+        assertNotEquals(lazy, new HashedState(marking(2, 1)));
+        assertEquals(HashedClassifiedState.tangibleState(lazy), HashedClassifiedState.tangibleState(eager));
+    }
+
+    @Test
+    public void doesNotHashSecondaryForDifferentPrimary() {
+        LazyHashedState first = new LazyHashedState(marking(1, 0));
+        LazyHashedState second = new LazyHashedState(marking(5, 9));
+        assertNotEquals(first.primaryHash(), second.primaryHash());
+        assertFalse(first.equals(second));
+        assertFalse(first.isSecondaryHashed());
+        assertFalse(second.isSecondaryHashed());
+    }
+
+    @Test
+    public void sharesImmutableMarking() {
+        Map<String, Map<String, Integer>> marking = marking(1, 2);
+        assertSame(marking, LazyHashedState.ofImmutable(marking).asMap());
+        assertNotSame(marking, new LazyHashedState(marking).asMap());
+    }
+
+    @Test
+    public void foundInExploredSet() {
+        ExploredSet set = new ExploredSet(10);
+        set.add(HashedClassifiedState.tangibleState(new HashedState(marking(2, 2))), 7);
+        ClassifiedState lazy = HashedClassifiedState.tangibleState(LazyHashedState.ofImmutable(marking(2, 2)));
+        assertTrue(set.contains(lazy));
+        assertEquals(7, set.getId(lazy));
+    }
+}
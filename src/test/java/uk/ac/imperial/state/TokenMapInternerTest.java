@@ -0,0 +1,66 @@
+package uk.ac.imperial.state;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TokenMapInternerTest {
+
+    @Test
+    public void sharesEqualPlaceContents() {
+        TokenMapInterner interner = new TokenMapInterner();
+        HashedState first = new HashedStateBuilder()
+                .placeWithToken("P0", "Default", 1).placeWithToken("P1", "Default", 5).build(interner);
+        HashedState second = new HashedStateBuilder()
+                .placeWithToken("P0", "Default", 1).placeWithToken("P1", "Default", 6).build(interner);
+
+        assertSame(first.getTokens("P0"), second.getTokens("P0"));
+        assertNotSame(first.getTokens("P1"), second.getTokens("P1"));
+        assertEquals(3, interner.getDistinctCount());
+        assertEquals(4, interner.getRequestCount());
+        assertEquals(0.25, interner.getSharingRatio(), 0.0);
+    }
+
+    @Test
+    public void internedStatesEqualUninternedStates() {
+        TokenMapInterner interner = new TokenMapInterner();
+        HashedStateBuilder builder = new HashedStateBuilder()
+                .placeWithToken("P0", "Default", 1).placeWithToken("P0", "Red", 2);
+        HashedState interned = builder.build(interner);
+        assertEquals(builder.build(), interned);
+        assertEquals(builder.build().asMap(), interned.asMap());
+    }
+
+    @Test
+    public void doesNotShareCallersMap() {
+        TokenMapInterner interner = new TokenMapInterner();
+        Map<String, Integer> tokens = new HashMap<>();
+        tokens.put("Default", 1);
+        Map<String, Integer> shared = interner.intern(tokens);
+        tokens.put("Default", 2);
+        assertEquals(Integer.valueOf(1), shared.get("Default"));
+        assertNotSame(shared, interner.intern(tokens));
+    }
+
+    @Test
+    public void keepsIterationOrderOfFirstMap() {
+        Map<String, Integer> tokens = new LinkedHashMap<>();
+        for (int i = 20; i > 0; i--) {
+            tokens.put("Colour" + i, i);
+        }
+        Map<String, Integer> shared = new TokenMapInterner().intern(tokens);
+        assertEquals(new ArrayList<>(tokens.keySet()), new ArrayList<>(shared.keySet()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedMapsAreUnmodifiable() {
+        Map<String, Integer> tokens = new HashMap<>();
+        tokens.put("Default", 1);
+        new TokenMapInterner().intern(tokens).put("Default", 3);
+    }
+}
@@ -0,0 +1,112 @@
+package uk.ac.imperial.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentExploredSetTest {
+
+    ConcurrentExploredSet set;
+
+    @Before
+    public void setUp() {
+        set = new ConcurrentExploredSet(100, 4);
+    }
+
+    /**
+     * @param p1Tokens
+     * @param p2Tokens
+     * @return State representation of a state with two places P1, P2 with the specified number of Default tokens
+     */
+    public ClassifiedState createState(int p1Tokens, int p2Tokens) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P1", "Default", p1Tokens);
+        builder.placeWithToken("P2", "Default", p2Tokens);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    @Test
+    public void containsEmpty() {
+        assertFalse(set.contains(createState(1, 2)));
+    }
+
+    @Test
+    public void addIfAbsentAssignsIds() {
+        assertEquals(0, set.addIfAbsent(createState(1, 2)));
+        assertEquals(1, set.addIfAbsent(createState(2, 1)));
+        assertEquals(0, set.getId(createState(1, 2)));
+        assertEquals(1, set.getId(createState(2, 1)));
+    }
+
+    @Test
+    public void addIfAbsentDuplicate() {
+        set.addIfAbsent(createState(1, 2));
+        assertEquals(ConcurrentExploredSet.ALREADY_PRESENT, set.addIfAbsent(createState(1, 2)));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void addWithId() {
+        set.add(createState(1, 2), 7);
+        set.add(createState(1, 2), 7);
+        assertTrue(set.contains(createState(1, 2)));
+        assertEquals(7, set.getId(createState(1, 2)));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void clear() {
+        set.addIfAbsent(createState(1, 2));
+        set.clear();
+        assertFalse(set.contains(createState(1, 2)));
+        assertEquals(0, set.size());
+        assertEquals(0, set.addIfAbsent(createState(2, 1)));
+    }
+
+    @Test
+    public void concurrentAddsGiveEachStateOneId() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            futures.add(executor.submit(new Callable<List<Integer>>() {
+                @Override
+                public List<Integer> call() {
+                    List<Integer> ids = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        int id = set.addIfAbsent(createState(i, 0));
+                        if (id != ConcurrentExploredSet.ALREADY_PRESENT) {
+                            ids.add(id);
+                        }
+                    }
+                    return ids;
+                }
+            }));
+        }
+        List<Integer> allIds = new ArrayList<>();
+        for (Future<List<Integer>> future : futures) {
+            allIds.addAll(future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(500, set.size());
+        assertEquals(500, allIds.size());
+        Set<Integer> unique = new HashSet<>(allIds);
+        assertEquals(500, unique.size());
+        assertEquals(0, (int) Collections.min(allIds));
+        assertEquals(499, (int) Collections.max(allIds));
+    }
+}
@@ -0,0 +1,85 @@
+package uk.ac.imperial.utils;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.imperial.io.FingerprintedStateIO;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExploredSetLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<ClassifiedState> states() {
+        List<ClassifiedState> states = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("P0", "Default", i % 37);
+            builder.placeWithToken("P1", "Default", i / 37);
+            states.add(HashedClassifiedState.tangibleState(builder.build()));
+        }
+        return states;
+    }
+
+    private static void assertLoaded(List<ClassifiedState> states, ExploredSet set) {
+        assertEquals(states.size(), set.size());
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(10 * i, set.getId(states.get(i)));
+        }
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", "Default", 100);
+        assertFalse(set.contains(HashedClassifiedState.tangibleState(builder.build())));
+    }
+
+    @Test
+    public void loadsFromStateFile() {
+        List<ClassifiedState> states = states();
+        FingerprintedStateIO io = new FingerprintedStateIO();
+        Output output = new Output(1024, -1);
+        for (int i = 0; i < states.size(); i++) {
+            io.writeState(states.get(i), 10 * i, output);
+        }
+        ExploredSet set = ExploredSetLoader.loadStates(new Input(output.toBytes()), new FingerprintedStateIO(), 101);
+        assertLoaded(states, set);
+    }
+
+    private File writeSidecar(List<ClassifiedState> states) throws IOException {
+        File sidecar = folder.newFile("fingerprints");
+        try (Output output = new Output(new FileOutputStream(sidecar))) {
+            for (int i = 0; i < states.size(); i++) {
+                ExploredSetLoader.writeFingerprint(states.get(i), 10 * i, output);
+            }
+        }
+        return sidecar;
+    }
+
+    @Test
+    public void loadsFromSidecar() throws IOException {
+        List<ClassifiedState> states = states();
+        assertLoaded(states, ExploredSetLoader.loadFingerprints(writeSidecar(states), 101, 1));
+    }
+
+    @Test
+    public void loadsFromSidecarInParallel() throws IOException {
+        List<ClassifiedState> states = states();
+        assertLoaded(states, ExploredSetLoader.loadFingerprints(writeSidecar(states), 101, 4));
+    }
+
+    @Test
+    public void loadsEmptySidecar() throws IOException {
+        assertEquals(0, ExploredSetLoader.loadFingerprints(folder.newFile("empty"), 10, 4).size());
+    }
+}
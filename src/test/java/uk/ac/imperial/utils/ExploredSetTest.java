@@ -1,12 +1,17 @@
 package uk.ac.imperial.utils;
 
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import org.junit.Test;
 import uk.ac.imperial.state.ClassifiedState;
 import uk.ac.imperial.state.HashedClassifiedState;
 import uk.ac.imperial.state.HashedStateBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -231,4 +236,102 @@ public class ExploredSetTest {
         assertFalse(set.contains(state2));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void writeAndRead() {
+        set = new ExploredSet(10);
+        for (int i = 0; i < 40; i++) {
+            set.add(createState(0, i), i);
+        }
+        Output output = new Output(1024, -1);
+        set.write(output);
+
+        ExploredSet read = ExploredSet.read(new Input(output.toBytes()));
+        assertEquals(40, read.size());
+        for (int i = 0; i < 40; i++) {
+            assertTrue(read.contains(createState(0, i)));
+            assertEquals(i, read.getId(createState(0, i)));
+        }
+        assertFalse(read.contains(createState(1, 0)));
+    }
+
+    @Test
+    public void writeAndReadEmpty() {
+        set = new ExploredSet(10);
+        Output output = new Output(1024, -1);
+        set.write(output);
+
+        ExploredSet read = ExploredSet.read(new Input(output.toBytes()));
+        assertEquals(0, read.size());
+        assertFalse(read.contains(explorerState));
+    }
+
+
+    @Test
+    public void addsAndContainsAll() {
+        set = new ExploredSet(10);
+        List<ClassifiedState> states = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            states.add(createState(i, 2 * i));
+        }
+        int[] ids = new int[10];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 100 + i;
+        }
+        set.addAll(states.subList(0, 10), ids);
+
+        boolean[] contained = set.containsAll(states);
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(i < 10, contained[i]);
+        }
+        assertEquals(105, set.getId(states.get(5)));
+        assertEquals(10, set.size());
+    }
+
+    @Test
+    public void getsIdsInListOrder() {
+        set = new ExploredSet(7);
+        List<ClassifiedState> states = new ArrayList<>();
+        int[] ids = new int[50];
+        for (int i = 0; i < ids.length; i++) {
+            states.add(createState(i, i % 5));
+            ids[i] = 3 * i;
+        }
+        set.addAll(states.subList(0, 25), Arrays.copyOf(ids, 25));
+
+        int[] found = set.getIds(states);
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(i < 25 ? 3 * i : ExploredSet.NOT_PRESENT, found[i]);
+        }
+    }
+
+    @Test
+    public void addsAllFromLinkedList() {
+        set = new ExploredSet(10);
+        List<ClassifiedState> states = new LinkedList<>();
+        List<Integer> ids = new LinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            states.add(createState(i, 0));
+            ids.add(i + 1);
+        }
+        set.addAll(states, ids);
+        assertEquals(4, set.getId(createState(3, 0)));
+    }
+
+    @Test
+    public void addsAndGetsIdsFromLinkedListInBucketOrder() {
+        set = new ExploredSet(7);
+        List<ClassifiedState> states = new LinkedList<>();
+        int[] ids = new int[2000];
+        for (int i = 0; i < ids.length; i++) {
+            states.add(createState(i, i % 5));
+            ids[i] = 2 * i;
+        }
+        set.addAll(states, ids);
+
+        int[] found = set.getIds(states);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(2 * i, found[i]);
+        }
+        assertEquals(ids.length, set.size());
+    }
+}
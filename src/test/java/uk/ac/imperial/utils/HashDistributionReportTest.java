@@ -0,0 +1,89 @@
+package uk.ac.imperial.utils;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HashDistributionReportTest {
+
+    private static final int BUCKETS = 1000;
+
+    @After
+    public void restoreDefaults() {
+        StateUtils.setHashStrategies(HashStrategy.ADLER32, HashStrategy.MURMUR3_128);
+    }
+
+    /**
+     * Small markings of three places, typical of explored states
+     */
+    private static List<State> states() {
+        List<State> states = new ArrayList<>();
+        for (int a = 0; a < 20; a++) {
+            for (int b = 0; b < 20; b++) {
+                for (int c = 0; c < 20; c++) {
+                    HashedStateBuilder builder = new HashedStateBuilder();
+                    builder.placeWithToken("P0", "Default", a);
+                    builder.placeWithToken("P1", "Default", b);
+                    builder.placeWithToken("P2", "Default", c);
+                    states.add(builder.build());
+                }
+            }
+        }
+        return states;
+    }
+
+    @Test
+    public void reportsOccupancy() {
+        HashDistributionReport report = new HashDistributionReport(new int[]{0, 2, 4, 2});
+        assertEquals(8, report.items);
+        assertEquals(2.0, report.mean, 0.0);
+        assertEquals(2.0, report.variance, 0.0);
+        assertEquals(1.0, report.getDispersionIndex(), 0.0);
+        assertEquals(4, report.maxOccupancy);
+        assertEquals(1, report.emptyBuckets);
+    }
+
+    @Test
+    public void murmurSpreadsSmallMarkingsBetterThanAdler() {
+        List<State> states = states();
+        HashDistributionReport adler =
+                HashDistributionReport.analyse(states, HashStrategy.ADLER32.getFunction(), BUCKETS);
+        HashDistributionReport murmur =
+                HashDistributionReport.analyse(states, HashStrategy.MURMUR3_32.getFunction(), BUCKETS);
+        assertEquals(states.size(), murmur.items);
+        assertTrue(murmur.getDispersionIndex() < 1.5);
+        assertTrue(adler.getDispersionIndex() > 2 * murmur.getDispersionIndex());
+    }
+
+    @Test
+    public void selectsPrimaryStrategy() {
+        StateUtils.setHashStrategies(HashStrategy.MURMUR3_32, HashStrategy.SIP_HASH_24);
+        HashedState state = new HashedStateBuilder().placeWithToken("P0", "Default", 1).build();
+        assertEquals(StateUtils.hashCodeForState(state, HashStrategy.MURMUR3_32.getFunction()).asInt(),
+                state.primaryHash());
+        assertEquals(64, state.secondaryHash().bits());
+    }
+
+    @Test
+    public void reportsExploredSetOccupancy() {
+        StateUtils.setHashStrategies(HashStrategy.MURMUR3_32, HashStrategy.MURMUR3_128);
+        ExploredSet set = new ExploredSet(BUCKETS);
+        int id = 0;
+        for (State state : states()) {
+            ClassifiedState classified = HashedClassifiedState.tangibleState(new HashedState(state.asMap()));
+            set.add(classified, id++);
+        }
+        HashDistributionReport report = set.getDistributionReport();
+        assertEquals(8000, report.items);
+        assertTrue(report.getDispersionIndex() < 1.5);
+    }
+}
@@ -0,0 +1,51 @@
+package uk.ac.imperial.utils;
+
+import org.junit.Test;
+import uk.ac.imperial.state.HashedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StateHasherTest {
+
+    private static List<Map<String, Map<String, Integer>>> markings() {
+        List<Map<String, Map<String, Integer>>> markings = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            HashedStateBuilder builder = new HashedStateBuilder();
+            builder.placeWithToken("P" + (i % 4), "Default", i);
+            builder.placeWithToken("Buffer", "Red", i % 3);
+            builder.placeWithToken("Buffer", "Blue", -i);
+            builder.placeWithToken("AVeryLongPlaceNameThatOutgrowsTheInitialEncodingBufferOfTheHasher" + i,
+                    "AnEquallyLongColourNameSoThatTheBufferHasToGrowMoreThanOnceWhilstEncoding", i);
+            markings.add(builder.build().asMap());
+        }
+        return markings;
+    }
+
+    @Test
+    public void matchesHashedStateHashes() {
+        StateHasher hasher = new StateHasher();
+        for (Map<String, Map<String, Integer>> marking : markings()) {
+            HashedState expected = new HashedState(marking);
+            HashedState actual = hasher.build(marking);
+            assertEquals(expected.primaryHash(), actual.primaryHash());
+            assertEquals(expected.secondaryHash(), actual.secondaryHash());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void buildsBatchesInOrder() {
+        List<Map<String, Map<String, Integer>>> markings = markings();
+        List<HashedState> states = new StateHasher().buildAll(markings);
+        assertEquals(markings.size(), states.size());
+        for (int i = 0; i < markings.size(); i++) {
+            assertEquals(new HashedState(markings.get(i)), states.get(i));
+            assertEquals(markings.get(i), states.get(i).asMap());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package uk.ac.imperial.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SymmetryReductionTest {
+
+    SymmetryReduction reduction;
+
+    @Before
+    public void setUp() {
+        List<List<String>> components = Arrays.asList(
+                Arrays.asList("Idle1", "Busy1"),
+                Arrays.asList("Idle2", "Busy2"),
+                Arrays.asList("Idle3", "Busy3"));
+        reduction = new SymmetryReduction(Collections.singletonList(new PlaceSymmetryGroup(components)));
+    }
+
+    /**
+     * @param busy true for each component that is busy
+     * @return state of three components with a shared Server place
+     */
+    private ClassifiedState createState(boolean... busy) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (int i = 0; i < busy.length; i++) {
+            builder.placeWithToken("Idle" + (i + 1), "Default", busy[i] ? 0 : 1);
+            builder.placeWithToken("Busy" + (i + 1), "Default", busy[i] ? 1 : 0);
+        }
+        builder.placeWithToken("Server", "Default", 1);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    @Test
+    public void equivalentStatesHaveSameRepresentative() {
+        ClassifiedState first = reduction.canonicalize(createState(true, false, false));
+        ClassifiedState second = reduction.canonicalize(createState(false, true, false));
+        ClassifiedState third = reduction.canonicalize(createState(false, false, true));
+        assertEquals(first, second);
+        assertEquals(first, third);
+        assertEquals(first.primaryHash(), third.primaryHash());
+    }
+
+    @Test
+    public void inequivalentStatesHaveDifferentRepresentatives() {
+        ClassifiedState one = reduction.canonicalize(createState(true, false, false));
+        ClassifiedState two = reduction.canonicalize(createState(true, true, false));
+        assertNotEquals(one, two);
+    }
+
+    @Test
+    public void representativeIsCanonical() {
+        ClassifiedState representative = reduction.canonicalize(createState(false, true, true));
+        assertSame(representative, reduction.canonicalize(representative));
+    }
+
+    @Test
+    public void keepsPlacesOutsideGroups() {
+        ClassifiedState representative = reduction.canonicalize(createState(false, true, false));
+        assertEquals(1, (int) representative.getTokens("Server").get("Default"));
+    }
+
+    @Test
+    public void keepsClassification() {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("Idle1", "Default", 0).placeWithToken("Busy1", "Default", 1);
+        builder.placeWithToken("Idle2", "Default", 1).placeWithToken("Busy2", "Default", 0);
+        builder.placeWithToken("Idle3", "Default", 1).placeWithToken("Busy3", "Default", 0);
+        ClassifiedState vanishing = HashedClassifiedState.vanishingState(builder.build());
+        assertFalse(reduction.canonicalize(vanishing).isTangible());
+    }
+
+    @Test
+    public void sortsColouredTokens() {
+        List<List<String>> components = Arrays.asList(Collections.singletonList("P1"), Collections.singletonList("P2"));
+        SymmetryReduction coloured =
+                new SymmetryReduction(Collections.singletonList(new PlaceSymmetryGroup(components)));
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P1", "Red", 1).placeWithToken("P1", "Blue", 0);
+        builder.placeWithToken("P2", "Red", 0).placeWithToken("P2", "Blue", 2);
+        ClassifiedState state = HashedClassifiedState.tangibleState(builder.build());
+
+        HashedStateBuilder swapped = new HashedStateBuilder();
+        swapped.placeWithToken("P2", "Red", 1).placeWithToken("P2", "Blue", 0);
+        swapped.placeWithToken("P1", "Red", 0).placeWithToken("P1", "Blue", 2);
+        ClassifiedState swappedState = HashedClassifiedState.tangibleState(swapped.build());
+
+        assertEquals(coloured.canonicalize(state), coloured.canonicalize(swappedState));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void componentsMustHaveSameSize() {
+        new PlaceSymmetryGroup(Arrays.asList(Arrays.asList("P0", "P1"), Collections.singletonList("P2")));
+    }
+}